@@ -0,0 +1,45 @@
+package log;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Добавление в журнал из нескольких потоков: неблокирующий
+ * {@link ConcurrentLogBuffer} против {@link CircularLogBuffer} с блокировкой.
+ * Число потоков задается ключом {@code -t}, например
+ * {@code -Djmh.args="LogBufferContention -t 1"} и {@code -t 8}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LogBufferContentionBenchmark {
+    private static final int CAPACITY = 4096;
+
+    private final LogEntry entry = new LogEntry(LogLevel.Debug, "tick");
+    private final ConcurrentLogBuffer<LogEntry> lockFree = new ConcurrentLogBuffer<>(CAPACITY);
+    private final CircularLogBuffer<LogEntry> locked = new CircularLogBuffer<>(CAPACITY);
+
+    @Benchmark
+    public long lockFreeAppend() {
+        return lockFree.append(entry);
+    }
+
+    @Benchmark
+    public void lockedAppend() {
+        locked.append(entry);
+    }
+}
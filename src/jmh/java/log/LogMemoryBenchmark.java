@@ -0,0 +1,107 @@
+package log;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Сколько байт кучи занимает одна хранимая запись журнала в
+ * {@link CompactLogBuffer}, {@link ConcurrentLogBuffer} и {@link CircularLogBuffer}.
+ * Буфер заполняется {@code ENTRIES} записями, как их создает
+ * {@link LogWindowSource}, а прирост занятой кучи после сборки мусора
+ * делится на число записей. Результат - счетчик {@code bytesPerEntry};
+ * счетчик суммируется по итерациям, поэтому замер идет одной итерацией.
+ * <ul>
+ * <li>{@code templated} - типичная запись симуляции: шаблон и два примитивных аргумента;</li>
+ * <li>{@code plain} - текст без аргументов, собранный вызывающим: его строка хранится
+ * целиком в любом буфере.</li>
+ * </ul>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="LogMemory"}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class LogMemoryBenchmark {
+    private static final int ENTRIES = 200_000;
+
+    @Param({"compact", "concurrent", "circular"})
+    public String buffer;
+
+    @Param({"templated", "plain"})
+    public String entries;
+
+    /**
+     * Удерживает заполненный буфер до замера.
+     */
+    private Object retained;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerEntry;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerEntry = 0;
+        }
+    }
+
+    @Benchmark
+    public void fill(Footprint footprint) throws InterruptedException {
+        retained = null;
+        long before = usedHeapAfterGc();
+        retained = filledBuffer();
+        long after = usedHeapAfterGc();
+        footprint.bytesPerEntry = (after - before) / ENTRIES;
+    }
+
+    private Object filledBuffer() {
+        String threadName = Thread.currentThread().getName();
+        long start = System.currentTimeMillis();
+        CompactLogBuffer compact = buffer.equals("compact") ? new CompactLogBuffer(ENTRIES) : null;
+        ConcurrentLogBuffer<LogEntry> concurrent = buffer.equals("concurrent") ? new ConcurrentLogBuffer<>(ENTRIES) : null;
+        CircularLogBuffer<LogEntry> circular = buffer.equals("circular") ? new CircularLogBuffer<>(ENTRIES) : null;
+        for (int i = 0; i < ENTRIES; i++) {
+            LogEntry entry = entries.equals("templated")
+                    ? new LogEntry(LogLevel.Debug, start + i, threadName, "robot {} heading {}",
+                            new Object[] {i % 64, i * 0.001})
+                    : new LogEntry(LogLevel.Debug, start + i, threadName, "robot " + (i % 64) + " moved", null);
+            if (compact != null) {
+                compact.append(entry);
+            } else if (concurrent != null) {
+                concurrent.append(entry);
+            } else {
+                circular.append(entry);
+            }
+        }
+        return compact != null ? compact : concurrent != null ? concurrent : circular;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        // Ждем, пока сборщик действительно заберет пробный объект
+        WeakReference<Object> probe = new WeakReference<>(new Object());
+        for (int i = 0; i < 10 && probe.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
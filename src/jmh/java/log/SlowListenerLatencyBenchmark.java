@@ -0,0 +1,64 @@
+package log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Задержка писателя, когда слушатель журнала медленный: каждое уведомление
+ * занимает {@code LISTENER_NANOS}, как перерисовка окна. {@code synchronous} -
+ * прежняя доставка в потоке писателя, остальные варианты - доставка
+ * диспетчером с соответствующей {@link BackpressurePolicy}. Распределение
+ * задержек (p50, p99, p99.99) печатается режимом SampleTime; при политике
+ * {@code Block} писатель ждет, только когда очередь переполнена.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SlowListenerLatencyBenchmark {
+    private static final long LISTENER_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final int QUEUE_LENGTH = 10_000;
+    private static final int PENDING_LENGTH = 4096;
+
+    @Param({"synchronous", "Block", "DropOldest", "DropNewest"})
+    public String delivery;
+
+    private LogWindowSource source;
+    /**
+     * Источник держит слушателей по слабым ссылкам.
+     */
+    private LogChangeListener listener;
+    private double x = 1.5;
+
+    @Setup(Level.Trial)
+    public void createSource() {
+        source = delivery.equals("synchronous")
+                ? new LogWindowSource(QUEUE_LENGTH)
+                : new LogWindowSource(QUEUE_LENGTH, new LogDispatcher("benchmark dispatcher"),
+                        BackpressurePolicy.valueOf(delivery), PENDING_LENGTH);
+        listener = () -> LockSupport.parkNanos(LISTENER_NANOS);
+        source.registerListener(listener);
+    }
+
+    @Benchmark
+    public LogWindowSource append() {
+        x += 1;
+        source.append(LogLevel.Info, "robot at {}", new Object[] {x});
+        return source;
+    }
+}
@@ -0,0 +1,75 @@
+package log;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Цена вызова {@link Logger#debug}, когда уровень Debug отключен, в сравнении
+ * с пустым шагом. Выделение памяти видно с профилировщиком:
+ * {@code -Djmh.args="SuppressedLogging -prof gc"} - у отключенных вызовов
+ * {@code gc.alloc.rate.norm} должен быть около нуля.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SuppressedLoggingBenchmark {
+    private LogLevel previousThreshold;
+    private double x = 1.5;
+    private double angle = 0.25;
+
+    @Setup(Level.Trial)
+    public void suppressDebug() {
+        previousThreshold = Logger.getDefaultLogSource().getThreshold();
+        Logger.getDefaultLogSource().setThreshold(LogLevel.Info);
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreThreshold() {
+        Logger.getDefaultLogSource().setThreshold(previousThreshold);
+    }
+
+    /**
+     * Шаг без журнала: точка отсчета.
+     */
+    @Benchmark
+    public void baseline(Blackhole blackhole) {
+        blackhole.consume(x + angle);
+    }
+
+    @Benchmark
+    public void disabledDebugMessage(Blackhole blackhole) {
+        Logger.debug("robot moved");
+        blackhole.consume(x + angle);
+    }
+
+    @Benchmark
+    public void disabledDebugTwoArguments(Blackhole blackhole) {
+        // Упаковка double происходит до вызова: обычный путь для вызывающего кода
+        Logger.debug("robot at {} heading {}", x, angle);
+        blackhole.consume(x + angle);
+    }
+
+    @Benchmark
+    public void disabledDebugGuarded(Blackhole blackhole) {
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("robot at {} heading {}", x, angle);
+        }
+        blackhole.consume(x + angle);
+    }
+}
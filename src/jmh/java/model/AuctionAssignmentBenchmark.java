@@ -0,0 +1,103 @@
+package model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Аукцион против жадного распределения на {@code robots} роботах
+ * и на 10 целей меньше. Время: жадное распределение, торги с нуля и поддержка
+ * по месту (цель появилась и исчезла). Качество печатается при подготовке:
+ * суммарное время в пути у жадного распределения и у аукциона.
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="AuctionAssignment"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class AuctionAssignmentBenchmark {
+    private static final double WORLD = 4_000;
+    private static final double EPSILON = 0.01;
+
+    @Param({"200", "1000"})
+    public int robots;
+
+    private RobotPoses poses;
+    private double[] targetX;
+    private double[] targetY;
+    private int targetCount;
+    private AuctionAssignment warm;
+    private final Random random = new Random(7);
+
+    @Setup(Level.Trial)
+    public void createProblem() {
+        Random problem = new Random(3);
+        poses = new RobotPoses(robots);
+        for (int i = 0; i < robots; i++) {
+            poses.add(problem.nextDouble() * WORLD, problem.nextDouble() * WORLD, 0, 0.1 + problem.nextDouble() * 0.1);
+        }
+        targetCount = robots - 10;
+        targetX = new double[targetCount];
+        targetY = new double[targetCount];
+        for (int i = 0; i < targetCount; i++) {
+            targetX[i] = problem.nextDouble() * WORLD;
+            targetY[i] = problem.nextDouble() * WORLD;
+        }
+        warm = solveFromScratch();
+
+        int[] greedy = AuctionAssignment.greedy(poses, targetX, targetY, targetCount);
+        double greedyCost = 0;
+        for (int target = 0; target < targetCount; target++) {
+            int robot = greedy[target];
+            greedyCost += Math.hypot(poses.getX(robot) - targetX[target], poses.getY(robot) - targetY[target])
+                    / poses.getVelocity(robot);
+        }
+        System.out.printf("%n%d robots: greedy cost %.0f, auction cost %.0f (%.1f%% lower)%n", robots, greedyCost,
+                warm.getTotalCost(), 100 * (greedyCost - warm.getTotalCost()) / greedyCost);
+    }
+
+    @Benchmark
+    public int[] greedy() {
+        return AuctionAssignment.greedy(poses, targetX, targetY, targetCount);
+    }
+
+    @Benchmark
+    public AuctionAssignment auctionFromScratch() {
+        return solveFromScratch();
+    }
+
+    /**
+     * Новая цель и ее удаление при уже сложившихся ценах.
+     */
+    @Benchmark
+    public AuctionAssignment auctionAddAndRemoveTarget() {
+        int target = warm.addTarget(random.nextDouble() * WORLD, random.nextDouble() * WORLD);
+        warm.solve(Long.MAX_VALUE);
+        warm.removeTarget(target);
+        warm.solve(Long.MAX_VALUE);
+        return warm;
+    }
+
+    private AuctionAssignment solveFromScratch() {
+        AuctionAssignment assignment = new AuctionAssignment(poses, EPSILON);
+        for (int i = 0; i < targetCount; i++) {
+            assignment.addTarget(targetX[i], targetY[i]);
+        }
+        assignment.solve(Long.MAX_VALUE);
+        return assignment;
+    }
+}
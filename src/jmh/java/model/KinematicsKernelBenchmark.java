@@ -0,0 +1,75 @@
+package model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Скалярное и векторное ядро кинематики на {@code robots} роботах: только
+ * интегрирование и полный шаг с законом удержания курса. Результат - время
+ * одного шага всей группы; на шаг робота - делить на {@code robots}.
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="KinematicsKernel"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class KinematicsKernelBenchmark {
+    private static final double DT = 5;
+    private static final double BOUNDS = 10_000;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    @Param({"1024", "65536"})
+    public int robots;
+
+    private KinematicsKernel integrator;
+    private SteeringController controller;
+    private RobotPoses poses;
+    private SteeringCommands commands;
+
+    @Setup(Level.Trial)
+    public void createRobots() {
+        boolean vector = "vector".equals(kernel);
+        integrator = vector ? new VectorKinematicsKernel() : KinematicsKernel.scalar();
+        controller = vector ? new VectorHeadingHoldController() : SteeringController.scalarHeadingHold();
+        Random random = new Random(1);
+        poses = new RobotPoses(robots);
+        for (int i = 0; i < robots; i++) {
+            poses.add(random.nextDouble() * BOUNDS, random.nextDouble() * BOUNDS, random.nextDouble() * 2 * Math.PI,
+                    0, 0.1, random.nextDouble() * BOUNDS, random.nextDouble() * BOUNDS);
+        }
+        commands = new SteeringCommands(robots);
+        controller.steer(poses, 0, robots, DT, BOUNDS, BOUNDS, commands);
+    }
+
+    /**
+     * Интегрирование по неизменным командам первого шага.
+     */
+    @Benchmark
+    public RobotPoses integrate() {
+        integrator.integrate(poses, commands, 0, robots, DT);
+        return poses;
+    }
+
+    @Benchmark
+    public RobotPoses step() {
+        integrator.step(poses, commands, controller, 0, robots, DT, BOUNDS, BOUNDS);
+        return poses;
+    }
+}
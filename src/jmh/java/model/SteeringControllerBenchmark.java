@@ -0,0 +1,109 @@
+package model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Шаг мира из {@code ROBOTS} роботов с разными раскладками законов управления:
+ * <ul>
+ * <li>{@code hardwired} - удержание курса вызывается напрямую, без
+ * {@link SteeringGroups}: точка отсчета, как прежний встроенный закон;</li>
+ * <li>{@code headingHold}, {@code purePursuit}, {@code pid} - один закон
+ * на весь мир через {@link SteeringGroups};</li>
+ * <li>{@code mixed} - половина мира с удержанием курса, по четверти
+ * с преследованием цели и ПИД, каждый закон одним блоком;</li>
+ * <li>{@code mixedRuns64} - те же доли, но законы чередуются блоками по 64 робота.</li>
+ * </ul>
+ * Смешанный мир сравнивается со взвешенной суммой однородных миров
+ * ({@code 0.5 headingHold + 0.25 purePursuit + 0.25 pid}): разница - цена
+ * диспетчеризации, она не должна превышать 10%. Разница между
+ * {@code hardwired} и {@code headingHold} - цена самих групп.
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="SteeringController"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class SteeringControllerBenchmark {
+    private static final int ROBOTS = 65_536;
+    private static final double DT = 5;
+    private static final double BOUNDS = 10_000;
+
+    @Param({"hardwired", "headingHold", "purePursuit", "pid", "mixed", "mixedRuns64"})
+    public String world;
+
+    private final KinematicsKernel kernel = KinematicsKernel.getDefault();
+    private final SteeringController headingHold = SteeringController.headingHold();
+    private RobotPoses poses;
+    private SteeringCommands commands;
+    private SteeringGroups groups;
+
+    /**
+     * Роботы заново расставляются на каждой итерации, чтобы за замер
+     * заметная их часть не успела доехать до целей и остановиться.
+     */
+    @Setup(Level.Iteration)
+    public void createWorld() {
+        Random random = new Random(1);
+        poses = new RobotPoses(ROBOTS);
+        for (int i = 0; i < ROBOTS; i++) {
+            poses.add(random.nextDouble() * BOUNDS, random.nextDouble() * BOUNDS, random.nextDouble() * 2 * Math.PI,
+                    0.1);
+            poses.aimAt(i, random.nextDouble() * BOUNDS, random.nextDouble() * BOUNDS);
+        }
+        commands = new SteeringCommands(ROBOTS);
+
+        SteeringController purePursuit = SteeringController.purePursuit(0.01);
+        SteeringController pid = SteeringController.pid(0.01, 0.0001, 0.001, 0.01);
+        groups = new SteeringGroups(ROBOTS, headingHold);
+        switch (world) {
+            case "hardwired":
+            case "headingHold":
+                break;
+            case "purePursuit":
+                groups.set(0, ROBOTS, purePursuit);
+                break;
+            case "pid":
+                groups.set(0, ROBOTS, pid);
+                break;
+            case "mixed":
+                groups.set(ROBOTS / 2, ROBOTS * 3 / 4, purePursuit);
+                groups.set(ROBOTS * 3 / 4, ROBOTS, pid);
+                break;
+            case "mixedRuns64":
+                for (int start = 0; start < ROBOTS; start += 256) {
+                    groups.set(start + 128, start + 192, purePursuit);
+                    groups.set(start + 192, start + 256, pid);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown world: " + world);
+        }
+    }
+
+    @Benchmark
+    public RobotPoses step() {
+        if (world.equals("hardwired")) {
+            headingHold.steer(poses, 0, ROBOTS, DT, BOUNDS, BOUNDS, commands);
+        } else {
+            groups.steer(poses, 0, ROBOTS, DT, BOUNDS, BOUNDS, commands);
+        }
+        kernel.integrate(poses, commands, 0, ROBOTS, DT);
+        return poses;
+    }
+}
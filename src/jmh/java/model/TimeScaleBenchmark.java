@@ -0,0 +1,85 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Сколько шагов в секунду делает живая симуляция на таймере при каждом
+ * масштабе времени из меню. Результат - счетчик {@code steps} в шагах
+ * в секунду; при масштабе 1x это около 200 (шаг 5 мс), при больших
+ * масштабах рост упирается в бюджет пачки и скорость процессора.
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="TimeScale"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class TimeScaleBenchmark {
+    /**
+     * Интервал опроса счетчика шагов, мс.
+     */
+    private static final long SAMPLE_MILLIS = 20;
+
+    @Param({"0.1", "0.5", "1", "2", "5", "10", "100", "1000", "Infinity"})
+    public double timeScale;
+
+    private RobotsLogic logic;
+    private volatile boolean running;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Steps {
+        public long steps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            steps = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void startSimulation() {
+        logic = new RobotsLogic();
+        logic.setTimeScale(timeScale);
+        running = true;
+        // Событие на каждом шаге не дает симуляции заснуть у цели
+        logic.scheduleAfterSteps(1, new Runnable() {
+            @Override
+            public void run() {
+                if (running) {
+                    logic.scheduleAfterSteps(1, this);
+                }
+            }
+        });
+        logic.startTimer();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopSimulation() {
+        running = false;
+        logic.stopTimer();
+    }
+
+    @Benchmark
+    public void simulate(Steps counter) throws InterruptedException {
+        long before = logic.getStepCount();
+        Thread.sleep(SAMPLE_MILLIS);
+        counter.steps += logic.getStepCount() - before;
+    }
+}
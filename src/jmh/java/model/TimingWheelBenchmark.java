@@ -0,0 +1,133 @@
+package model;
+
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Постановка и отмена события при {@code pending} уже ожидающих событиях:
+ * колесо шагов против {@link Timer} и {@link ScheduledThreadPoolExecutor},
+ * у которых очередь - двоичная куча под блокировкой. Отдельно измеряется
+ * пачечное срабатывание колеса в расчете на одно событие.
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="TimingWheel"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class TimingWheelBenchmark {
+    /**
+     * Событий, срабатывающих за одно продвижение колеса в {@link #wheelExpireBatch}.
+     */
+    private static final int BATCH = 1024;
+    /**
+     * Горизонт событий в шагах колеса и в миллисекундах для таймеров: час,
+     * чтобы за время замера ни одно фоновое событие не сработало.
+     */
+    private static final int HORIZON = 3_600_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int pending;
+
+    private final Random random = new Random(42);
+    private final Runnable noop = () -> { };
+    private TimingWheel wheel;
+    private TimingWheel expiryWheel;
+    private Timer timer;
+    private ScheduledThreadPoolExecutor executor;
+    private long fired;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        wheel = new TimingWheel(0);
+        expiryWheel = new TimingWheel(0);
+        timer = new Timer("benchmark timer", true);
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        for (int i = 0; i < pending; i++) {
+            long delay = 1 + random.nextInt(HORIZON);
+            wheel.schedule(HORIZON + delay, noop);
+            // Прокрутка уходит на миллиарды шагов: фоновые события ставятся дальше
+            expiryWheel.schedule(Long.MAX_VALUE / 2 + delay, noop);
+            timer.schedule(newTask(), HORIZON + delay);
+            executor.schedule(noop, HORIZON + delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        timer.cancel();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean wheelScheduleCancel() {
+        return wheel.schedule(wheel.currentTick() + 1 + random.nextInt(HORIZON), noop).cancel();
+    }
+
+    @Benchmark
+    public boolean timerScheduleCancel() {
+        TimerTask task = newTask();
+        timer.schedule(task, 1 + random.nextInt(HORIZON));
+        boolean cancelled = task.cancel();
+        // Без purge отмененные задачи копятся в куче таймера до своего срока
+        if ((random.nextInt() & 1023) == 0) {
+            timer.purge();
+        }
+        return cancelled;
+    }
+
+    @Benchmark
+    public boolean executorScheduleCancel() {
+        ScheduledFuture<?> future = executor.schedule(noop, 1 + random.nextInt(HORIZON), TimeUnit.MILLISECONDS);
+        return future.cancel(false);
+    }
+
+    /**
+     * Ставит пачку событий на ближайшие 256 шагов и прокручивает колесо
+     * до их срабатывания; время - на одно событие. Фоновые события
+     * лежат далеко впереди и в прокрутке не участвуют.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long wheelExpireBatch() {
+        long start = expiryWheel.currentTick();
+        for (int i = 0; i < BATCH; i++) {
+            expiryWheel.schedule(start + 1 + (i & 255), this::onFire);
+        }
+        expiryWheel.advance(start + 256);
+        return fired;
+    }
+
+    private void onFire() {
+        fired++;
+    }
+
+    private TimerTask newTask() {
+        return new TimerTask() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+}
@@ -1,27 +1,58 @@
 package State;
 
-import java.util.prefs.Preferences;
+import java.beans.PropertyVetoException;
 import javax.swing.JInternalFrame;
+import javax.swing.event.InternalFrameAdapter;
+import javax.swing.event.InternalFrameEvent;
 
+/**
+ * Внутреннее окно, которое сохраняет свое положение в {@link LayoutStore}
+ * и создает содержимое лениво. До первого показа (или до разворачивания,
+ * если окно восстановлено свернутым) окно остается пустой заготовкой
+ * с восстановленными границами, а {@link #createContent()} еще не вызван.
+ */
 public abstract class AbstractWindow extends JInternalFrame implements WithState {
 
-    private final String prefixWindowPreferences;
-    private final String prefixWindowPositionX;
-    private final String prefixWindowPositionY;
-    private final String prefixWindowSizeWidth;
-    private final String prefixWindowSizeHeight;
+    private boolean materialized;
 
     public AbstractWindow() {
         super();
-        this.prefixWindowPreferences = formatTitle("window preferences");
-        this.prefixWindowPositionX = formatTitle("position x");
-        this.prefixWindowPositionY = formatTitle("position y");
-        this.prefixWindowSizeWidth = formatTitle("size width");
-        this.prefixWindowSizeHeight = formatTitle("size height");
+        addInternalFrameListener(new InternalFrameAdapter() {
+            @Override
+            public void internalFrameOpened(InternalFrameEvent e) {
+                if (!isIcon()) {
+                    materialize();
+                }
+            }
+
+            @Override
+            public void internalFrameDeiconified(InternalFrameEvent e) {
+                materialize();
+            }
+        });
+    }
+
+    /**
+     * Создает содержимое окна. Вызывается один раз, когда окно впервые
+     * становится видимым не свернутым.
+     */
+    protected abstract void createContent();
+
+    /**
+     * Создает содержимое окна, если оно еще не создано.
+     */
+    public final void materialize() {
+        if (materialized) {
+            return;
+        }
+        materialized = true;
+        createContent();
+        revalidate();
+        repaint();
     }
 
-        private Preferences getPreferences() {
-        return Preferences.userRoot().node(prefixWindowPreferences);
+    public final boolean isMaterialized() {
+        return materialized;
     }
 
     private String formatTitle(String title) {
@@ -31,32 +62,28 @@ public abstract class AbstractWindow extends JInternalFrame implements WithState
 
     @Override
     public void saveWindow() {
-        Preferences preferences = getPreferences();
-
-        String title = formatTitle(getTitle());
-
-        preferences.putInt(prefixWindowPositionX + title, getX());
-        preferences.putInt(prefixWindowPositionY + title, getY());
-        preferences.putInt(prefixWindowSizeWidth + title, getWidth());
-        preferences.putInt(prefixWindowSizeHeight + title, getHeight());
+        LayoutStore.getDefault().put(formatTitle(getTitle()), new WindowLayout(getNormalBounds(), isIcon()));
     }
 
+    /**
+     * Восстанавливает границы окна и свернутое состояние. Окно уже должно
+     * находиться на панели рабочего стола, но еще не быть показанным:
+     * тогда свернутое окно не создаст содержимое до разворачивания.
+     */
     @Override
     public void loadWindow() {
-        Preferences preferences = getPreferences();
-        final int missing = -1;
-
-        String title = formatTitle(getTitle());
-
-        int x = preferences.getInt(prefixWindowPositionX + title, missing);
-        int y = preferences.getInt(prefixWindowPositionY + title, missing);
-        int width = preferences.getInt(prefixWindowSizeWidth + title, missing);
-        int height = preferences.getInt(prefixWindowSizeHeight + title, missing);
-
-        if (x == -1 || y == -1 || width == -1 || height == -1) {
+        WindowLayout layout = LayoutStore.getDefault().get(formatTitle(getTitle()));
+        if (layout == null) {
             return;
         }
 
-        setBounds(x, y, width, height);
+        setBounds(layout.getBounds());
+        if (layout.isIconified() && isIconifiable()) {
+            try {
+                setIcon(true);
+            } catch (PropertyVetoException e) {
+                // Окно отказалось сворачиваться - покажем его развернутым
+            }
+        }
     }
 }
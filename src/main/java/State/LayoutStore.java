@@ -0,0 +1,178 @@
+package State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import log.Logger;
+
+/**
+ * Раскладка окон в одном текстовом файле. Файл читается один раз при создании
+ * хранилища, дальше окна читают и обновляют копию в памяти. На диск раскладка
+ * записывается целиком в фоновом потоке: сначала во временный файл рядом,
+ * затем он атомарно подменяет старый, поэтому прерванная запись не портит файл.
+ * <p>
+ * Хук завершения дожидается начатой записи, так что {@link System#exit}
+ * сразу после {@link #saveInBackground()} не теряет раскладку.
+ */
+public final class LayoutStore {
+    /**
+     * Системное свойство с путем к файлу раскладки.
+     */
+    public static final String LAYOUT_FILE_PROPERTY = "robots.layout.file";
+
+    private static final String HEADER = "# robots window layout v1";
+    private static final long SHUTDOWN_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final class DefaultHolder {
+        static final LayoutStore INSTANCE = new LayoutStore(defaultFile());
+    }
+
+    private final Path file;
+    private final Map<String, WindowLayout> layouts = new HashMap<>();
+    private Thread writer;
+    private boolean shutdownHookInstalled;
+
+    /**
+     * Создает хранилище и читает раскладку из файла. Отсутствующий или
+     * поврежденный файл означает пустую раскладку.
+     */
+    public LayoutStore(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Хранилище раскладки приложения, по умолчанию {@code ~/.robots/layout}.
+     */
+    public static LayoutStore getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static Path defaultFile() {
+        String configured = System.getProperty(LAYOUT_FILE_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".robots", "layout");
+    }
+
+    public synchronized WindowLayout get(String key) {
+        return layouts.get(key);
+    }
+
+    public synchronized void put(String key, WindowLayout layout) {
+        layouts.put(key, layout);
+    }
+
+    /**
+     * Запускает запись текущей раскладки на диск и сразу возвращает управление.
+     *
+     * @return поток записи, которого можно дождаться
+     */
+    public synchronized Thread saveInBackground() {
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (Map.Entry<String, WindowLayout> entry : layouts.entrySet()) {
+            content.append(entry.getValue().format(entry.getKey())).append('\n');
+        }
+        Thread previous = writer;
+        writer = new Thread(() -> {
+            // Записи не должны обгонять друг друга
+            join(previous, 0);
+            try {
+                write(content.toString());
+            } catch (IOException e) {
+                Logger.error("Не удалось сохранить раскладку окон в {}: {}", file, e);
+            }
+        }, "layout writer");
+        if (!shutdownHookInstalled) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::awaitSave, "layout flush"));
+            shutdownHookInstalled = true;
+        }
+        writer.start();
+        return writer;
+    }
+
+    /**
+     * Дожидается окончания начатой записи, но не дольше нескольких секунд.
+     */
+    public void awaitSave() {
+        Thread current;
+        synchronized (this) {
+            current = writer;
+        }
+        join(current, SHUTDOWN_WAIT_MILLIS);
+    }
+
+    private static void join(Thread thread, long millis) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            Logger.error("Не удалось прочитать раскладку окон из {}: {}", file, e);
+            return;
+        }
+        int skipped = 0;
+        for (String line : lines) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(" ", 6);
+            if (fields.length < 6) {
+                skipped++;
+                continue;
+            }
+            try {
+                layouts.put(fields[5], new WindowLayout(
+                        Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                        Integer.parseInt(fields[2]), Integer.parseInt(fields[3]),
+                        "1".equals(fields[4])));
+            } catch (NumberFormatException e) {
+                // Поврежденную строку пропускаем, остальные окна восстановятся
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            Logger.warning("В раскладке окон {} пропущено поврежденных строк: {}", file, skipped);
+        }
+    }
+
+    private void write(String content) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temporary, content, StandardCharsets.UTF_8);
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
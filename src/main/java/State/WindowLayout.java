@@ -0,0 +1,43 @@
+package State;
+
+import java.awt.Rectangle;
+
+/**
+ * Сохраненное положение окна: границы в обычном (не свернутом
+ * и не развернутом) состоянии и признак того, что окно было свернуто.
+ */
+public final class WindowLayout {
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final boolean iconified;
+
+    public WindowLayout(int x, int y, int width, int height, boolean iconified) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.iconified = iconified;
+    }
+
+    public WindowLayout(Rectangle bounds, boolean iconified) {
+        this(bounds.x, bounds.y, bounds.width, bounds.height, iconified);
+    }
+
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, width, height);
+    }
+
+    public boolean isIconified() {
+        return iconified;
+    }
+
+    /**
+     * Строка файла раскладки: {@code x y width height iconified key}. Ключ идет
+     * последним, поэтому может содержать пробелы.
+     */
+    String format(String key) {
+        return x + " " + y + " " + width + " " + height + " " + (iconified ? 1 : 0) + " " + key;
+    }
+}
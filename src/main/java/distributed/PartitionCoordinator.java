@@ -0,0 +1,551 @@
+package distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import model.RobotPoses;
+
+/**
+ * Распределенная симуляция: мир разрезан на {@code partitions} вертикальных
+ * полос одинаковой ширины, каждую полосу ведет отдельный процесс
+ * {@link PartitionWorker}.
+ * <p>
+ * Шаги идут синхронно: координатор рассылает команду шага всем участкам
+ * и ждет ответа от каждого, прежде чем начать следующий. Ответы читаются
+ * параллельно, по потоку на участок; участок, не ответивший за
+ * {@link #setReplyTimeout(Duration) время ожидания}, проваливает шаг.
+ * Робот, перешедший к соседнему участку, передается этому соседу напрямую
+ * по соединению между участками, минуя координатор; через координатор
+ * пересылаются только роботы, перескочившие через участок. И те, и другие
+ * доходят до нового участка к началу следующего шага. Участки считают
+ * скалярным ядром, а прибывшие роботы раскладываются в постоянном порядке,
+ * поэтому прогон воспроизводим и совпадает с расчетом в одном процессе
+ * при любом числе участков.
+ * <p>
+ * Роботы друг с другом не взаимодействуют: закон управления видит только
+ * положение и цель самого робота. Поэтому участкам не нужны копии соседних
+ * роботов у границ, и полосы перекрытия между участками не пересылаются.
+ * Если появится закон с взаимодействием (например, объезд соседей), такие
+ * полосы пойдут в той же пачке, что участок после шага отправляет соседу.
+ * <p>
+ * Порядок работы: {@link #spawnLocalWorkers()} (или запуск участков вручную
+ * на {@link #getPort()}), {@link #awaitWorkers(Duration)}, {@link #addRobot},
+ * {@link #start()}, затем {@link #step(int)} и {@link #snapshot()}.
+ * Методы не потокобезопасны.
+ * <p>
+ * Замер масштабирования на этой машине:
+ * {@code java distributed.PartitionCoordinator <роботов> <шагов> <участков>...}.
+ */
+public final class PartitionCoordinator implements Closeable {
+    private static final int ROBOT_BYTES = PartitionProtocol.ROBOT_BYTES;
+    private static final Duration DEFAULT_REPLY_TIMEOUT = Duration.ofSeconds(30);
+
+    private final int partitions;
+    private final double worldWidth;
+    private final double worldHeight;
+    private final double dt;
+    private final ServerSocket server;
+    private final List<Process> processes = new ArrayList<>();
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<DataInputStream> inputs = new ArrayList<>();
+    private final List<DataOutputStream> outputs = new ArrayList<>();
+    /**
+     * Порты, на которых участки ждут соседа слева.
+     */
+    private final List<Integer> peerPorts = new ArrayList<>();
+    private final ExecutorService readers;
+
+    private RobotPoses pending = new RobotPoses(16);
+    private boolean started;
+    /**
+     * Шаг провален: потоки участков рассогласованы, координатор нужно закрыть.
+     */
+    private boolean failed;
+    private long step;
+    private int robotCount;
+    private Duration replyTimeout = DEFAULT_REPLY_TIMEOUT;
+    private long directMigrations;
+    private long relayedMigrations;
+
+    private final Mailbox[] migrants;
+
+    /**
+     * @param partitions число участков
+     * @param worldWidth ширина мира
+     * @param worldHeight высота мира
+     * @param dt длительность шага
+     */
+    public PartitionCoordinator(int partitions, double worldWidth, double worldHeight, double dt)
+            throws IOException {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        this.partitions = partitions;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.dt = dt;
+        this.server = new ServerSocket(0, partitions, InetAddress.getLoopbackAddress());
+        this.migrants = new Mailbox[partitions];
+        for (int i = 0; i < partitions; i++) {
+            migrants[i] = new Mailbox();
+        }
+        this.readers = Executors.newFixedThreadPool(partitions, task -> {
+            Thread thread = new Thread(task, "partition reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Замер шагов роботов в секунду при разном числе участков-процессов
+     * на этой машине. Роботы разбросаны по миру случайно (с фиксированным
+     * зерном) и едут к случайным целям, так что часть из них переходит
+     * между участками.
+     * <p>
+     * Аргументы: число роботов, число шагов, затем одно или несколько чисел участков.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: PartitionCoordinator <robots> <ticks> <partitions>...");
+            System.exit(2);
+        }
+        int robots = Integer.parseInt(args[0]);
+        int ticks = Integer.parseInt(args[1]);
+        for (int i = 2; i < args.length; i++) {
+            int partitions = Integer.parseInt(args[i]);
+            try (PartitionCoordinator coordinator = new PartitionCoordinator(partitions, 10_000, 10_000, 5)) {
+                coordinator.spawnLocalWorkers();
+                coordinator.awaitWorkers(Duration.ofMinutes(1));
+                Random random = new Random(1);
+                for (int robot = 0; robot < robots; robot++) {
+                    coordinator.addRobot(random.nextDouble() * 10_000, random.nextDouble() * 10_000,
+                            random.nextDouble() * 2 * Math.PI, 0.1,
+                            random.nextDouble() * 10_000, random.nextDouble() * 10_000);
+                }
+                coordinator.start();
+                // Первые шаги прогревают JIT участков
+                coordinator.step(Math.min(ticks, 20));
+                long start = System.nanoTime();
+                coordinator.step(ticks);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("partitions=%d robots=%d ticks=%d time=%.2f s robot-steps/s=%.0f%n",
+                        partitions, robots, ticks, seconds, (double) robots * ticks / seconds);
+            }
+        }
+    }
+
+    /**
+     * Задает, сколько ждать ответа участка на шаг или снимок. Зависший
+     * участок (пауза сборщика мусора, взаимная блокировка, остановленный
+     * процесс), который не закрыл соединение, иначе останавливал бы шаг навсегда.
+     */
+    public void setReplyTimeout(Duration replyTimeout) {
+        if (replyTimeout.isNegative() || replyTimeout.isZero()) {
+            throw new IllegalArgumentException("reply timeout must be positive: " + replyTimeout);
+        }
+        this.replyTimeout = replyTimeout;
+    }
+
+    /**
+     * Сколько раз робот перешел к соседнему участку напрямую, минуя координатор.
+     */
+    public long getDirectMigrations() {
+        return directMigrations;
+    }
+
+    /**
+     * Сколько раз робот перескочил через участок и был переслан через координатор.
+     */
+    public long getRelayedMigrations() {
+        return relayedMigrations;
+    }
+
+    /**
+     * Порт, к которому подключаются участки.
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Запускает участки отдельными JVM на этой машине с тем же classpath.
+     */
+    public void spawnLocalWorkers() throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (int i = 0; i < partitions; i++) {
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    PartitionWorker.class.getName(), server.getInetAddress().getHostAddress(),
+                    Integer.toString(getPort()))
+                    .inheritIO()
+                    .start();
+            processes.add(process);
+        }
+    }
+
+    /**
+     * Ждет подключения всех участков. Участки получают номера
+     * в порядке подключения.
+     */
+    public void awaitWorkers(Duration timeout) throws IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (sockets.size() < partitions) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new SocketTimeoutException(sockets.size() + " of " + partitions + " workers connected");
+            }
+            server.setSoTimeout((int) Math.min(remaining, Integer.MAX_VALUE));
+            Socket socket = server.accept();
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            // Участок сразу сообщает порт для соседа
+            socket.setSoTimeout((int) Math.max(1, Math.min(remaining, Integer.MAX_VALUE)));
+            int peerPort;
+            try {
+                peerPort = in.readInt();
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            socket.setSoTimeout(0);
+            sockets.add(socket);
+            inputs.add(in);
+            outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            peerPorts.add(peerPort);
+        }
+    }
+
+    /**
+     * Добавляет робота, который поворачивает к цели {@code (targetX, targetY)}.
+     *
+     * @return номер робота, под которым он вернется в {@link #snapshot()}
+     */
+    public int addRobot(double x, double y, double direction, double velocity, double targetX, double targetY) {
+        if (started) {
+            throw new IllegalStateException("simulation already started");
+        }
+        pending = PartitionProtocol.ensureCapacity(pending, pending.size() + 1);
+        int id = pending.add(x, y, direction, velocity);
+        pending.aimAt(id, targetX, targetY);
+        return id;
+    }
+
+    /**
+     * Раздает роботов участкам.
+     */
+    public void start() throws IOException {
+        if (started) {
+            throw new IllegalStateException("simulation already started");
+        }
+        if (sockets.size() < partitions) {
+            throw new IllegalStateException(sockets.size() + " of " + partitions + " workers connected");
+        }
+        started = true;
+        robotCount = pending.size();
+        int[] counts = new int[partitions];
+        for (int i = 0; i < pending.size(); i++) {
+            counts[partitionOf(pending.getX(i))]++;
+        }
+        for (int partition = 0; partition < partitions; partition++) {
+            DataOutputStream out = outputs.get(partition);
+            out.writeByte(PartitionProtocol.INIT);
+            out.writeInt(partition);
+            out.writeInt(partitions);
+            out.writeDouble(worldWidth);
+            out.writeDouble(worldHeight);
+            out.writeDouble(dt);
+            writePeer(out, partition - 1);
+            writePeer(out, partition + 1);
+            out.writeInt(counts[partition]);
+            for (int i = 0; i < pending.size(); i++) {
+                if (partitionOf(pending.getX(i)) == partition) {
+                    PartitionProtocol.writeRobot(out, i, pending, i);
+                }
+            }
+            out.flush();
+        }
+        pending = null;
+    }
+
+    private void writePeer(DataOutputStream out, int partition) throws IOException {
+        if (partition < 0 || partition >= partitions) {
+            out.writeUTF("");
+            out.writeInt(PartitionProtocol.NO_PEER);
+        } else {
+            out.writeUTF(sockets.get(partition).getInetAddress().getHostAddress());
+            out.writeInt(peerPorts.get(partition));
+        }
+    }
+
+    /**
+     * Делает {@code ticks} шагов. Каждый шаг завершается, только когда
+     * ответили все участки.
+     *
+     * @throws IOException если участок ответил с ошибкой или не ответил вовремя;
+     *         после этого координатор можно только закрыть
+     */
+    public void step(int ticks) throws IOException {
+        checkRunning();
+        List<Future<Reply>> replies = new ArrayList<>(partitions);
+        for (int tick = 0; tick < ticks; tick++) {
+            step++;
+            for (int partition = 0; partition < partitions; partition++) {
+                DataOutputStream out = outputs.get(partition);
+                out.writeByte(PartitionProtocol.STEP);
+                out.writeLong(step);
+                migrants[partition].drainTo(out);
+                out.flush();
+            }
+            replies.clear();
+            for (int partition = 0; partition < partitions; partition++) {
+                final int from = partition;
+                final long expectedStep = step;
+                replies.add(readers.submit(() -> readReply(from, expectedStep)));
+            }
+            // Пересылаемые роботы раскладываются в порядке номеров участков,
+            // в каком бы порядке ни пришли ответы
+            int total = 0;
+            long deadline = System.nanoTime() + replyTimeout.toNanos();
+            for (int partition = 0; partition < partitions; partition++) {
+                Reply reply = await(replies, partition, deadline, "step " + step);
+                total += reply.remaining + reply.handedOff + reply.leaving;
+                directMigrations += reply.handedOff;
+                relayedMigrations += reply.leaving;
+                for (int i = 0; i < reply.leaving; i++) {
+                    int offset = i * ROBOT_BYTES;
+                    // Абсцисса идет сразу за номером робота
+                    double x = ByteBuffer.wrap(reply.robots).getDouble(offset + Integer.BYTES);
+                    migrants[partitionOf(x)].put(reply.robots, offset, ROBOT_BYTES);
+                }
+            }
+            robotCount = total;
+        }
+    }
+
+    /**
+     * Читает ответ участка на шаг. Выполняется в потоке чтения участка.
+     */
+    private Reply readReply(int partition, long expectedStep) throws IOException {
+        DataInputStream in = inputs.get(partition);
+        long answeredStep = in.readLong();
+        if (answeredStep != expectedStep) {
+            throw new IOException("partition " + partition + " answered step " + answeredStep
+                    + " instead of " + expectedStep);
+        }
+        int remaining = in.readInt();
+        int handedOff = in.readInt();
+        int leaving = in.readInt();
+        byte[] robots = new byte[leaving * ROBOT_BYTES];
+        in.readFully(robots);
+        return new Reply(remaining, handedOff, leaving, robots);
+    }
+
+    /**
+     * Ждет ответа участка {@code partition} не дольше чем до {@code deadline}.
+     * При любом сбое координатор помечается проваленным, а остальные
+     * ожидания отменяются.
+     */
+    private <T> T await(List<Future<T>> replies, int partition, long deadline, String what) throws IOException {
+        try {
+            return replies.get(partition).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            fail(replies);
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("partition " + partition + " failed on " + what, e.getCause());
+        } catch (TimeoutException e) {
+            fail(replies);
+            throw new IOException("partition " + partition + " did not answer " + what + " within "
+                    + replyTimeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            fail(replies);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for partition " + partition);
+        }
+    }
+
+    private void fail(List<? extends Future<?>> replies) {
+        failed = true;
+        for (Future<?> reply : replies) {
+            reply.cancel(true);
+        }
+    }
+
+    private void checkRunning() {
+        if (!started) {
+            throw new IllegalStateException("simulation not started");
+        }
+        if (failed) {
+            throw new IllegalStateException("a partition failed; the coordinator must be closed");
+        }
+    }
+
+    private int partitionOf(double x) {
+        return PartitionProtocol.partitionOf(x, worldWidth, partitions);
+    }
+
+    /**
+     * Количество сделанных шагов.
+     */
+    public long getStep() {
+        return step;
+    }
+
+    public int getRobotCount() {
+        return started ? robotCount : pending.size();
+    }
+
+    /**
+     * Собирает состояние всех роботов после последнего шага.
+     *
+     * @return роботы, упорядоченные по номерам из {@link #addRobot}
+     */
+    public RobotPoses snapshot() throws IOException {
+        checkRunning();
+        for (DataOutputStream out : outputs) {
+            out.writeByte(PartitionProtocol.SNAPSHOT);
+            out.flush();
+        }
+        List<Future<byte[]>> parts = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            DataInputStream in = inputs.get(partition);
+            parts.add(readers.submit(() -> {
+                byte[] robots = new byte[in.readInt() * ROBOT_BYTES];
+                in.readFully(robots);
+                return robots;
+            }));
+        }
+        RobotPoses collected = new RobotPoses(Math.max(robotCount, 1));
+        int[] rowById = new int[robotCount];
+        long deadline = System.nanoTime() + replyTimeout.toNanos();
+        for (int partition = 0; partition < partitions; partition++) {
+            byte[] robots = await(parts, partition, deadline, "snapshot");
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(robots));
+            for (int i = 0; i < robots.length / ROBOT_BYTES; i++) {
+                int row = collected.size();
+                rowById[PartitionProtocol.readRobot(in, collected)] = row;
+            }
+        }
+        // Роботы, которые еще в пути между участками, лежат в почтовых ящиках
+        for (Mailbox mailbox : migrants) {
+            mailbox.forEachRobot(collected, rowById);
+        }
+        RobotPoses ordered = new RobotPoses(Math.max(robotCount, 1));
+        for (int id = 0; id < robotCount; id++) {
+            int row = rowById[id];
+            ordered.add(collected.getX(row), collected.getY(row), collected.getDirection(row),
+                    collected.getAngularVelocity(row), collected.getVelocity(row),
+                    collected.getTargetX(row), collected.getTargetY(row));
+        }
+        return ordered;
+    }
+
+    /**
+     * Останавливает участки и закрывает соединения.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (int i = 0; i < sockets.size(); i++) {
+            try {
+                // После сбоя поток команд рассогласован: участки завершатся,
+                // увидев закрытое соединение
+                if (!failed) {
+                    outputs.get(i).writeByte(PartitionProtocol.SHUTDOWN);
+                    outputs.get(i).flush();
+                }
+                sockets.get(i).close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        server.close();
+        readers.shutdownNow();
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Ответ участка на шаг: сколько роботов осталось, сколько передано
+     * соседям напрямую и пересылаемые роботы в том виде, в каком они пришли по сети.
+     */
+    private static final class Reply {
+        final int remaining;
+        final int handedOff;
+        final int leaving;
+        final byte[] robots;
+
+        Reply(int remaining, int handedOff, int leaving, byte[] robots) {
+            this.remaining = remaining;
+            this.handedOff = handedOff;
+            this.leaving = leaving;
+            this.robots = robots;
+        }
+    }
+
+    /**
+     * Записи, накопленные для участка до следующего шага.
+     */
+    private static final class Mailbox {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int count;
+
+        void put(byte[] records, int offset, int length) {
+            bytes.write(records, offset, length);
+            count++;
+        }
+
+        void drainTo(DataOutputStream out) throws IOException {
+            out.writeInt(count);
+            bytes.writeTo(out);
+            bytes.reset();
+            count = 0;
+        }
+
+        void forEachRobot(RobotPoses poses, int[] rowById) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            for (int i = 0; i < count; i++) {
+                int row = poses.size();
+                rowById[PartitionProtocol.readRobot(in, poses)] = row;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import model.RobotPoses;
+
+/**
+ * Сообщения между координатором и процессами-участками и между соседними участками.
+ * <pre>
+ * участок -> координатор сразу после подключения:
+ *   int порт, на котором участок ждет соседа слева
+ * координатор -> участок:
+ *   INIT     int участок, int участков, double ширина, double высота,
+ *            double dt, сосед слева, сосед справа, int n, n роботов
+ *   STEP     long шаг, int n, n прибывших роботов
+ *   SNAPSHOT
+ *   SHUTDOWN
+ * участок -> координатор:
+ *   на STEP     long шаг, int роботов на участке, int n переданных соседям,
+ *               int m, m ушедших дальше соседей роботов
+ *   на SNAPSHOT int n, n роботов
+ * участок -> сосед, после INIT (шаг 0) и после каждого шага:
+ *   long шаг, int n, n перешедших к соседу роботов
+ * сосед: строка UTF адрес, int порт; порт -1, если соседа нет
+ * робот: int номер, double x, y, direction, angularVelocity, velocity, targetX, targetY
+ * </pre>
+ */
+final class PartitionProtocol {
+    static final byte INIT = 1;
+    static final byte STEP = 2;
+    static final byte SNAPSHOT = 3;
+    static final byte SHUTDOWN = 4;
+
+    static final int ROBOT_BYTES = Integer.BYTES + 7 * Double.BYTES;
+    static final int NO_PEER = -1;
+
+    private PartitionProtocol() {
+    }
+
+    /**
+     * Участок, которому принадлежит абсцисса {@code x}: мир разрезан
+     * на вертикальные полосы одинаковой ширины, крайние полосы забирают
+     * и все, что вышло за край мира.
+     */
+    static int partitionOf(double x, double worldWidth, int partitions) {
+        int partition = (int) Math.floor(x / worldWidth * partitions);
+        return Math.max(0, Math.min(partitions - 1, partition));
+    }
+
+    static void writeRobot(DataOutputStream out, int id, RobotPoses poses, int index) throws IOException {
+        out.writeInt(id);
+        out.writeDouble(poses.getX(index));
+        out.writeDouble(poses.getY(index));
+        out.writeDouble(poses.getDirection(index));
+        out.writeDouble(poses.getAngularVelocity(index));
+        out.writeDouble(poses.getVelocity(index));
+        out.writeDouble(poses.getTargetX(index));
+        out.writeDouble(poses.getTargetY(index));
+    }
+
+    /**
+     * Читает робота и добавляет его в конец {@code poses}.
+     *
+     * @return номер робота
+     */
+    static int readRobot(DataInputStream in, RobotPoses poses) throws IOException {
+        int id = in.readInt();
+        double x = in.readDouble();
+        double y = in.readDouble();
+        double direction = in.readDouble();
+        double angularVelocity = in.readDouble();
+        double velocity = in.readDouble();
+        double targetX = in.readDouble();
+        double targetY = in.readDouble();
+        poses.add(x, y, direction, angularVelocity, velocity, targetX, targetY);
+        return id;
+    }
+
+    /**
+     * Возвращает набор, вмещающий не меньше {@code required} роботов:
+     * сам {@code poses}, если места хватает, или копию большей емкости.
+     */
+    static RobotPoses ensureCapacity(RobotPoses poses, int required) {
+        if (required <= poses.capacity()) {
+            return poses;
+        }
+        RobotPoses grown = new RobotPoses(Math.max(required, poses.capacity() * 2));
+        for (int i = 0; i < poses.size(); i++) {
+            grown.add(poses.getX(i), poses.getY(i), poses.getDirection(i), poses.getAngularVelocity(i),
+                    poses.getVelocity(i), poses.getTargetX(i), poses.getTargetY(i));
+        }
+        return grown;
+    }
+}
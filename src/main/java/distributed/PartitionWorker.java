@@ -0,0 +1,386 @@
+package distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import model.KinematicsKernel;
+import model.RobotPoses;
+import model.SteeringCommands;
+import model.SteeringController;
+
+/**
+ * Процесс, который ведет роботов одного участка мира. Подключается
+ * к {@link PartitionCoordinator}, получает своих роботов и затем по команде
+ * делает шаг: двигает роботов, передает перешедших к соседнему участку
+ * напрямую этому соседу, а ушедших дальше - координатору. Роботы
+ * не взаимодействуют, поэтому чужие роботы у границ участку не нужны.
+ * <p>
+ * С каждым соседом участок связан отдельным соединением: к правому
+ * подключается сам, подключения левого ждет на своем порту. После каждого
+ * шага соседу уходит пачка роботов, даже пустая, и к следующему шагу
+ * участок дожидается пачек от обоих соседей. Пачки читаются отдельными
+ * потоками, поэтому два соседа, пишущие друг другу, не блокируют друг друга.
+ * <p>
+ * Запуск: {@code java distributed.PartitionWorker <host> <port>}.
+ */
+public final class PartitionWorker {
+    /**
+     * Скалярные ядро и контроллер считают одинаково на любой машине, поэтому результат
+     * не зависит от того, на сколько участков разрезан мир.
+     */
+    private final KinematicsKernel kernel = KinematicsKernel.scalar();
+    private final SteeringController controller = SteeringController.scalarHeadingHold();
+    private SteeringCommands commands = new SteeringCommands(16);
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final ServerSocket peerServer;
+
+    private int partition;
+    private int partitions;
+    private double worldWidth;
+    private double worldHeight;
+    private double dt;
+    private Peer left;
+    private Peer right;
+    /**
+     * Последний шаг, пачки соседей после которого уже разобраны.
+     */
+    private long absorbedStep = -1;
+    private long lastStep;
+
+    private RobotPoses poses = new RobotPoses(16);
+    private int[] ids = new int[16];
+
+    private int[] leaving = new int[16];
+    private final RobotBatch toLeft = new RobotBatch();
+    private final RobotBatch toRight = new RobotBatch();
+
+    private PartitionWorker(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        // Соседи подключаются по тому же адресу, по которому участок виден координатору
+        this.peerServer = new ServerSocket(0, 1, socket.getLocalAddress());
+        out.writeInt(peerServer.getLocalPort());
+        out.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: PartitionWorker <host> <port>");
+            System.exit(2);
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            new PartitionWorker(socket).run();
+        }
+    }
+
+    private void run() throws IOException {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case PartitionProtocol.INIT:
+                        init();
+                        break;
+                    case PartitionProtocol.STEP:
+                        step();
+                        break;
+                    case PartitionProtocol.SNAPSHOT:
+                        snapshot();
+                        break;
+                    case PartitionProtocol.SHUTDOWN:
+                        return;
+                    default:
+                        throw new IOException("unknown message: " + type);
+                }
+            }
+        } finally {
+            peerServer.close();
+            closeQuietly(left);
+            closeQuietly(right);
+        }
+    }
+
+    private void init() throws IOException {
+        partition = in.readInt();
+        partitions = in.readInt();
+        worldWidth = in.readDouble();
+        worldHeight = in.readDouble();
+        dt = in.readDouble();
+        String leftHost = in.readUTF();
+        int leftPort = in.readInt();
+        String rightHost = in.readUTF();
+        int rightPort = in.readInt();
+        poses = new RobotPoses(16);
+        receiveRobots();
+
+        // Сначала подключение вправо: оно завершается без ответного accept,
+        // поэтому цепочка участков не ждет сама себя
+        if (rightPort != PartitionProtocol.NO_PEER) {
+            right = new Peer(new Socket(rightHost, rightPort), "right peer of " + partition);
+        }
+        if (leftPort != PartitionProtocol.NO_PEER) {
+            left = new Peer(peerServer.accept(), "left peer of " + partition);
+        }
+        peerServer.close();
+        sendToPeers(0);
+    }
+
+    private void step() throws IOException {
+        long step = in.readLong();
+        receiveRobots();
+        absorbPeers(step - 1);
+        lastStep = step;
+
+        kernel.step(poses, commands, controller, 0, poses.size(), dt, worldWidth, worldHeight);
+
+        int leavingCount = 0;
+        int relayedCount = 0;
+        for (int i = 0; i < poses.size(); i++) {
+            int destination = PartitionProtocol.partitionOf(poses.getX(i), worldWidth, partitions);
+            if (destination == partition) {
+                continue;
+            }
+            if (leavingCount == leaving.length) {
+                leaving = Arrays.copyOf(leaving, leavingCount * 2);
+            }
+            leaving[leavingCount++] = i;
+            if (destination == partition - 1) {
+                toLeft.add(ids[i], poses, i);
+            } else if (destination == partition + 1) {
+                toRight.add(ids[i], poses, i);
+            } else {
+                relayedCount++;
+            }
+        }
+        int handedOff = toLeft.count + toRight.count;
+        sendToPeers(step);
+
+        out.writeLong(step);
+        out.writeInt(poses.size() - leavingCount);
+        out.writeInt(handedOff);
+        out.writeInt(relayedCount);
+        for (int i = 0; i < leavingCount; i++) {
+            int destination = PartitionProtocol.partitionOf(poses.getX(leaving[i]), worldWidth, partitions);
+            if (Math.abs(destination - partition) > 1) {
+                PartitionProtocol.writeRobot(out, ids[leaving[i]], poses, leaving[i]);
+            }
+        }
+        removeLeaving(leavingCount);
+        out.flush();
+    }
+
+    /**
+     * Отправляет соседям накопленные для них пачки, помеченные шагом {@code step}.
+     */
+    private void sendToPeers(long step) throws IOException {
+        if (left != null) {
+            toLeft.sendTo(left.out, step);
+        }
+        if (right != null) {
+            toRight.sendTo(right.out, step);
+        }
+    }
+
+    /**
+     * Добавляет роботов, которых соседи передали после шага {@code step}:
+     * сначала от левого, затем от правого, чтобы раскладка не зависела
+     * от порядка прихода пачек.
+     */
+    private void absorbPeers(long step) throws IOException {
+        if (absorbedStep >= step) {
+            return;
+        }
+        for (Peer peer : new Peer[] {left, right}) {
+            if (peer == null) {
+                continue;
+            }
+            RobotBatch.Received batch = peer.take();
+            if (batch.step != step) {
+                throw new IOException(peer.name + " sent step " + batch.step + " instead of " + step);
+            }
+            ensureCapacity(poses.size() + batch.count);
+            DataInputStream robots = new DataInputStream(new ByteArrayInputStream(batch.robots));
+            for (int i = 0; i < batch.count; i++) {
+                int index = poses.size();
+                ids[index] = PartitionProtocol.readRobot(robots, poses);
+            }
+        }
+        absorbedStep = step;
+    }
+
+    /**
+     * Убирает ушедших роботов, сдвигая оставшихся к началу без смены порядка.
+     */
+    private void removeLeaving(int leavingCount) {
+        if (leavingCount == 0) {
+            return;
+        }
+        int kept = leaving[0];
+        int next = 0;
+        for (int i = leaving[0]; i < poses.size(); i++) {
+            if (next < leavingCount && leaving[next] == i) {
+                next++;
+                continue;
+            }
+            poses.copy(i, kept);
+            ids[kept] = ids[i];
+            kept++;
+        }
+        poses.truncate(kept);
+    }
+
+    private void receiveRobots() throws IOException {
+        int count = in.readInt();
+        ensureCapacity(poses.size() + count);
+        for (int i = 0; i < count; i++) {
+            int index = poses.size();
+            ids[index] = PartitionProtocol.readRobot(in, poses);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        poses = PartitionProtocol.ensureCapacity(poses, required);
+        if (ids.length < poses.capacity()) {
+            ids = Arrays.copyOf(ids, poses.capacity());
+            commands = new SteeringCommands(poses.capacity());
+        }
+    }
+
+    /**
+     * Отдает всех роботов участка. Роботы, которых соседи передали после
+     * последнего шага, принимаются сразу: иначе снимок их бы не увидел.
+     */
+    private void snapshot() throws IOException {
+        absorbPeers(lastStep);
+        out.writeInt(poses.size());
+        for (int i = 0; i < poses.size(); i++) {
+            PartitionProtocol.writeRobot(out, ids[i], poses, i);
+        }
+        out.flush();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Участок и так завершается
+        }
+    }
+
+    /**
+     * Соединение с соседним участком. Пачки соседа читает отдельный поток
+     * и складывает в очередь, откуда их забирает поток шагов.
+     */
+    private static final class Peer implements Closeable {
+        /**
+         * Пачка-признак того, что соединение с соседом оборвалось.
+         */
+        private static final RobotBatch.Received CLOSED = new RobotBatch.Received(-1, 0, new byte[0]);
+
+        final String name;
+        final DataOutputStream out;
+        private final Socket socket;
+        private final BlockingQueue<RobotBatch.Received> batches = new LinkedBlockingQueue<>();
+
+        Peer(Socket socket, String name) throws IOException {
+            socket.setTcpNoDelay(true);
+            this.socket = socket;
+            this.name = name;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            Thread reader = new Thread(() -> read(in), name + " reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void read(DataInputStream in) {
+            try {
+                while (true) {
+                    long step = in.readLong();
+                    int count = in.readInt();
+                    byte[] robots = new byte[count * PartitionProtocol.ROBOT_BYTES];
+                    in.readFully(robots);
+                    batches.add(new RobotBatch.Received(step, count, robots));
+                }
+            } catch (IOException e) {
+                batches.add(CLOSED);
+            }
+        }
+
+        RobotBatch.Received take() throws IOException {
+            RobotBatch.Received batch;
+            try {
+                batch = batches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for " + name);
+            }
+            if (batch == CLOSED) {
+                batches.add(CLOSED);
+                throw new IOException(name + " disconnected");
+            }
+            return batch;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Роботы, накопленные для соседа за шаг.
+     */
+    private static final class RobotBatch {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream robots = new DataOutputStream(bytes);
+        int count;
+
+        void add(int id, RobotPoses poses, int index) throws IOException {
+            PartitionProtocol.writeRobot(robots, id, poses, index);
+            count++;
+        }
+
+        void sendTo(DataOutputStream out, long step) throws IOException {
+            robots.flush();
+            out.writeLong(step);
+            out.writeInt(count);
+            bytes.writeTo(out);
+            out.flush();
+            bytes.reset();
+            count = 0;
+        }
+
+        /**
+         * Пачка, пришедшая от соседа.
+         */
+        static final class Received {
+            final long step;
+            final int count;
+            final byte[] robots;
+
+            Received(long step, int count, byte[] robots) {
+                this.step = step;
+                this.count = count;
+                this.robots = robots;
+            }
+        }
+    }
+}
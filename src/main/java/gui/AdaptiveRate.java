@@ -0,0 +1,62 @@
+package gui;
+
+import java.awt.EventQueue;
+import java.awt.event.HierarchyEvent;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.JComponent;
+
+/**
+ * Ограничитель частоты обновлений представления с учетом видимости.
+ * Пока компонент показан, обновления разрешаются не чаще заданного
+ * интервала; пока скрыт (окно свернуто, закрыто или еще не показано) -
+ * не разрешаются вовсе. При появлении компонента на экране сразу выполняется
+ * {@code onShown}, чтобы представление показало актуальное состояние
+ * одним обновлением, а не догоняло пропущенные.
+ * <p>
+ * {@link #tryAcquire()} и {@link #isShowing()} можно вызывать из любого потока.
+ */
+final class AdaptiveRate {
+    private final long intervalNanos;
+    private final AtomicLong lastAcquired;
+    private volatile boolean showing;
+
+    /**
+     * @param component компонент, за видимостью которого следит ограничитель
+     * @param intervalMillis минимальный интервал между обновлениями видимого компонента
+     * @param onShown действие при появлении компонента на экране, выполняется в потоке событий
+     */
+    AdaptiveRate(JComponent component, long intervalMillis, Runnable onShown) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.lastAcquired = new AtomicLong(System.nanoTime() - intervalNanos);
+        this.showing = component.isShowing();
+        component.addHierarchyListener(event -> {
+            if ((event.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) {
+                return;
+            }
+            boolean nowShowing = component.isShowing();
+            showing = nowShowing;
+            if (nowShowing) {
+                lastAcquired.set(System.nanoTime());
+                EventQueue.invokeLater(onShown);
+            }
+        });
+    }
+
+    boolean isShowing() {
+        return showing;
+    }
+
+    /**
+     * Проверяет, пора ли обновлять представление, и если да - отмечает
+     * обновление. Из нескольких одновременных вызовов разрешение получит один.
+     */
+    boolean tryAcquire() {
+        if (!showing) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long last = lastAcquired.get();
+        return now - last >= intervalNanos && lastAcquired.compareAndSet(last, now);
+    }
+}
@@ -0,0 +1,174 @@
+package gui;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import javax.swing.AbstractListModel;
+
+import log.LogEntry;
+import log.LogIndex;
+import log.LogLevel;
+import log.LogWindowSource;
+
+/**
+ * Модель списка журнала, показывающая только записи, найденные по индексу.
+ * Номера подходящих записей берутся из {@link LogIndex}, а сами записи
+ * подгружаются страницами через {@code range} источника.
+ * <p>
+ * При обновлении поиск продолжается с того места, где закончился прошлый:
+ * новые совпадения дописываются в конец, вытесненные снимаются с начала,
+ * а уже загруженная страница остается на месте.
+ * Все методы вызываются только из потока обработки событий.
+ */
+class FilteredLogListModel extends AbstractListModel<LogEntry> {
+    private static final int PAGE_SIZE = 256;
+
+    private final LogWindowSource logSource;
+    private final LogIndex index;
+
+    private Set<LogLevel> levels = EnumSet.allOf(LogLevel.class);
+    private String query = "";
+
+    /**
+     * Номера найденных записей по возрастанию: кольцевой массив,
+     * длина - степень двойки.
+     */
+    private long[] matches = new long[PAGE_SIZE];
+    private int head;
+    private int size;
+    /**
+     * Номер, с которого продолжится поиск при следующем обновлении.
+     */
+    private long searchedTo = Long.MIN_VALUE;
+
+    private final List<LogEntry> page = new ArrayList<>();
+    private int pageStart;
+
+    FilteredLogListModel(LogWindowSource logSource, LogIndex index) {
+        this.logSource = logSource;
+        this.index = index;
+        refresh();
+    }
+
+    /**
+     * Задает фильтр и заново выполняет поиск.
+     */
+    void setFilter(Set<LogLevel> levels, String query) {
+        this.levels = EnumSet.copyOf(levels);
+        this.query = query;
+        int oldSize = size;
+        head = 0;
+        size = 0;
+        searchedTo = Long.MIN_VALUE;
+        page.clear();
+        pageStart = 0;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        refresh();
+    }
+
+    /**
+     * Дописывает записи, подошедшие под фильтр после прошлого обновления,
+     * и убирает те, что вытеснены из индекса или больше не читаются из источника.
+     */
+    void refresh() {
+        LogIndex.Result result = index.search(levels, query, searchedTo);
+        searchedTo = result.nextSequence();
+
+        long first = Math.max(result.firstSequence(), logSource.firstSequence());
+        int removed = 0;
+        while (size > 0 && matches[head] < first) {
+            head = (head + 1) & (matches.length - 1);
+            size--;
+            removed++;
+        }
+        if (removed > 0) {
+            dropFromPage(removed);
+            fireIntervalRemoved(this, 0, removed - 1);
+        }
+
+        int oldSize = size;
+        result.forEach(sequence -> {
+            if (sequence >= first) {
+                addMatch(sequence);
+            }
+        });
+        if (size > oldSize) {
+            fireIntervalAdded(this, oldSize, size - 1);
+        }
+    }
+
+    private void addMatch(long sequence) {
+        if (size == matches.length) {
+            long[] grown = new long[size * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = matchAt(i);
+            }
+            matches = grown;
+            head = 0;
+        }
+        matches[(head + size) & (matches.length - 1)] = sequence;
+        size++;
+    }
+
+    private long matchAt(int row) {
+        return matches[(head + row) & (matches.length - 1)];
+    }
+
+    /**
+     * Сдвигает страницу вслед за строками, снятыми с начала списка.
+     */
+    private void dropFromPage(int removed) {
+        pageStart -= removed;
+        if (pageStart < 0) {
+            page.subList(0, Math.min(-pageStart, page.size())).clear();
+            pageStart = 0;
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public LogEntry getElementAt(int index) {
+        if (index < pageStart || index >= pageStart + page.size()) {
+            loadPage(Math.max(0, index - PAGE_SIZE / 2));
+        }
+        int offset = index - pageStart;
+        return offset >= 0 && offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Загружает страницу результатов. Подряд идущие номера читаются
+     * одним обращением к {@code range}.
+     */
+    private void loadPage(int from) {
+        page.clear();
+        pageStart = from;
+        int to = Math.min(from + PAGE_SIZE, size);
+        int i = from;
+        while (i < to) {
+            long runStart = matchAt(i);
+            int runLength = 1;
+            while (i + runLength < to && matchAt(i + runLength) == runStart + runLength) {
+                runLength++;
+            }
+            int before = page.size();
+            for (LogEntry entry : logSource.rangeBySequence(runStart, runLength)) {
+                page.add(entry);
+            }
+            if (page.size() - before != runLength) {
+                // Часть записей вытеснили во время чтения: перечитываем поштучно
+                page.subList(before, page.size()).clear();
+                for (int j = 0; j < runLength; j++) {
+                    page.add(logSource.get(runStart + j));
+                }
+            }
+            i += runLength;
+        }
+    }
+}
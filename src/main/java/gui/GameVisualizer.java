@@ -16,17 +16,33 @@ import model.Target;
 
 public class GameVisualizer extends JPanel {
 
+    /**
+     * Период проверки, не пора ли перерисовать поле.
+     */
+    private static final long REPAINT_PERIOD_MS = 50;
+
     private final RobotsLogic logic;
+    private final AdaptiveRate rate;
+    private final TimerTask repaintTask;
 
     public GameVisualizer(RobotsLogic logic) {
         this.logic = logic;
 
-        logic.addActionToTimer(new TimerTask() {
+        rate = new AdaptiveRate(this, REPAINT_PERIOD_MS / 2, this::repaint);
+        repaintTask = new TimerTask() {
+            private long paintedVersion = -1;
+
             @Override
             public void run() {
-                repaint();
+                // Скрытое поле и поле, где ничего не изменилось, не перерисовываем
+                long version = logic.getStateVersion();
+                if (version != paintedVersion && rate.tryAcquire()) {
+                    paintedVersion = version;
+                    repaint();
+                }
             }
-        }, 50);
+        };
+        logic.addActionToTimer(repaintTask, REPAINT_PERIOD_MS);
 
         addMouseListener(new MouseAdapter() {
             @Override
@@ -43,6 +59,14 @@ public class GameVisualizer extends JPanel {
         setDoubleBuffered(true);
     }
 
+    /**
+     * Снимает задачу перерисовки с таймера модели, чтобы закрытое окно
+     * не удерживалось таймером.
+     */
+    public void stop() {
+        repaintTask.cancel();
+    }
+
     private static void fillOval(Graphics g, int centerX, int centerY, int diam1, int diam2) {
         g.fillOval(centerX - diam1 / 2, centerY - diam2 / 2, diam1, diam2);
     }
@@ -10,31 +10,38 @@ public class GameWindow extends AbstractWindow
 {
 
     private final RobotsLogic logic;
+    private GameVisualizer gameVisualizer;
 
     public GameWindow(RobotsLogic logic) {
         super();
 
         this.logic = logic;
 
-        logic.startTimer();
-
         setTitle("Игровое окно");
         setResizable(true);
         setClosable(true);
         setMaximizable(true);
         setIconifiable(true);
+    }
+
+    @Override
+    protected void createContent() {
+        logic.startTimer();
 
-        GameVisualizer gameVisualizer = new GameVisualizer(logic);
+        gameVisualizer = new GameVisualizer(logic);
 
         JPanel panel = new JPanel(new BorderLayout());
         panel.add(gameVisualizer, BorderLayout.CENTER);
         getContentPane().add(panel);
-        pack();
     }
 
+    @Override
     public void dispose() {
         super.dispose();
 
-        logic.stopTimer();
+        if (gameVisualizer != null) {
+            gameVisualizer.stop();
+            logic.stopTimer();
+        }
     }
 }
\ No newline at end of file
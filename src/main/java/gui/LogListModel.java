@@ -0,0 +1,136 @@
+package gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.AbstractListModel;
+
+import log.LogEntry;
+import log.LogWindowSource;
+
+/**
+ * Модель списка журнала, адресуемая абсолютными порядковыми номерами записей.
+ * Строки не копируются целиком: модель хранит только окно записей вокруг
+ * видимой области и подгружает их из источника через {@code range}.
+ * Все методы вызываются только из потока обработки событий.
+ */
+class LogListModel extends AbstractListModel<LogEntry> {
+    /**
+     * Сколько записей подгружается за одно обращение к источнику.
+     */
+    private static final int CHUNK_SIZE = 256;
+
+    private final LogWindowSource logSource;
+
+    private long firstSequence;
+    private long nextSequence;
+
+    private final List<LogEntry> cache = new ArrayList<>();
+    private long cacheStart;
+
+    LogListModel(LogWindowSource logSource) {
+        this.logSource = logSource;
+        this.firstSequence = logSource.firstSequence();
+        this.nextSequence = firstSequence;
+        this.cacheStart = firstSequence;
+        refresh();
+    }
+
+    @Override
+    public int getSize() {
+        return (int) Math.min(nextSequence - firstSequence, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public LogEntry getElementAt(int index) {
+        long sequence = firstSequence + index;
+        if (sequence < cacheStart || sequence >= cacheStart + cache.size()) {
+            load(Math.max(firstSequence, sequence - CHUNK_SIZE / 2));
+        }
+        int offset = (int) (sequence - cacheStart);
+        return offset >= 0 && offset < cache.size() ? cache.get(offset) : null;
+    }
+
+    /**
+     * Подтягивает изменения источника с момента последнего обновления:
+     * сообщает списку о вытесненных сверху и добавленных снизу строках.
+     *
+     * @return {@code true}, если содержимое изменилось
+     */
+    boolean refresh() {
+        // Конец читается раньше начала: начало, прочитанное позже, может только
+        // обогнать конец, а это не дает лишних строк
+        long newNext = logSource.nextSequence();
+        long newFirst = logSource.firstSequence();
+        if (newFirst == firstSequence && newNext == nextSequence) {
+            return false;
+        }
+
+        boolean tailCached = cacheStart + cache.size() == nextSequence;
+        long oldNext = nextSequence;
+
+        if (newFirst > firstSequence) {
+            int removed = (int) Math.min(newFirst - firstSequence, getSize());
+            firstSequence = newFirst;
+            if (removed > 0) {
+                fireIntervalRemoved(this, 0, removed - 1);
+            }
+        }
+        nextSequence = Math.max(newNext, firstSequence);
+
+        if (tailCached) {
+            appendToCache(Math.max(oldNext, firstSequence));
+        }
+
+        int added = (int) Math.min(nextSequence - Math.max(oldNext, firstSequence), getSize());
+        if (added > 0) {
+            fireIntervalAdded(this, getSize() - added, getSize() - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Дописывает в кэш только новые записи, если кэш покрывал хвост журнала.
+     */
+    private void appendToCache(long from) {
+        while (!cache.isEmpty() && cache.get(cache.size() - 1) == null) {
+            // Хвост, который писатели еще не успели опубликовать, перечитываем
+            cache.remove(cache.size() - 1);
+        }
+        long cacheEnd = cacheStart + cache.size();
+        from = Math.max(Math.min(from, cacheEnd), Math.max(firstSequence, nextSequence - CHUNK_SIZE));
+        if (from != cacheEnd) {
+            cache.clear();
+            cacheStart = from;
+        }
+        fetch(from, (int) (nextSequence - from));
+        if (cache.size() > CHUNK_SIZE) {
+            int excess = cache.size() - CHUNK_SIZE;
+            cache.subList(0, excess).clear();
+            cacheStart += excess;
+        }
+    }
+
+    private void load(long from) {
+        cache.clear();
+        cacheStart = from;
+        fetch(from, (int) Math.min(nextSequence - from, CHUNK_SIZE));
+    }
+
+    /**
+     * Дописывает в кэш записи {@code [from, from + count)}. Если часть записей
+     * вытеснили во время чтения, диапазон перечитывается поштучно, а на месте
+     * пропавших записей остается {@code null}, чтобы не сбить нумерацию строк.
+     */
+    private void fetch(long from, int count) {
+        int before = cache.size();
+        for (LogEntry entry : logSource.rangeBySequence(from, count)) {
+            cache.add(entry);
+        }
+        if (cache.size() - before != count) {
+            cache.subList(before, cache.size()).clear();
+            for (long sequence = from; sequence < from + count; sequence++) {
+                cache.add(logSource.get(sequence));
+            }
+        }
+    }
+}
@@ -1,20 +1,48 @@
 package gui;
 
 import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.EventQueue;
-import java.awt.TextArea;
+import java.awt.FlowLayout;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.BoundedRangeModel;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import State.AbstractWindow;
 import log.LogChangeListener;
 import log.LogEntry;
+import log.LogIndex;
+import log.LogLevel;
 import log.LogWindowSource;
 
 
 public class LogWindow extends AbstractWindow implements LogChangeListener
 {
+    /**
+     * Интервал одного кадра: все изменения журнала за это время
+     * попадают в окно одним обновлением.
+     */
+    private static final int FRAME_INTERVAL_MS = 16;
+
     private final LogWindowSource m_logSource;
-    private final TextArea m_logContent;
+    private LogListModel m_logModel;
+    private FilteredLogListModel m_filteredModel;
+    private JList<LogEntry> m_logContent;
+    private JScrollPane m_scrollPane;
+    private Timer m_frameTimer;
+    private final AtomicBoolean m_updatePending = new AtomicBoolean();
 
     public LogWindow(LogWindowSource logSource) {
         super();
@@ -26,28 +54,124 @@ public class LogWindow extends AbstractWindow implements LogChangeListener
         setIconifiable(true);
 
         m_logSource = logSource;
-        m_logSource.registerListener(this);
-        m_logContent = new TextArea("");
-        m_logContent.setSize(200, 500);
+    }
+
+    @Override
+    protected void createContent() {
+        m_logModel = new LogListModel(m_logSource);
+        m_logContent = new JList<>(m_logModel);
+        // Фиксированная высота строки: список отрисовывает только видимые строки
+        // и не опрашивает модель целиком для расчета размеров
+        m_logContent.setPrototypeCellValue(new LogEntry(null, "prototype"));
+        m_logContent.setCellRenderer(new LogEntryRenderer());
+        m_scrollPane = new JScrollPane(m_logContent);
+        m_scrollPane.setPreferredSize(new Dimension(200, 500));
+
+        m_frameTimer = new Timer(FRAME_INTERVAL_MS, event -> updateLogContent());
+        m_frameTimer.setRepeats(false);
 
         JPanel panel = new JPanel(new BorderLayout());
-        panel.add(m_logContent, BorderLayout.CENTER);
+        LogIndex index = m_logSource.getIndex();
+        if (index != null) {
+            panel.add(createFilterBar(index), BorderLayout.NORTH);
+        }
+        panel.add(m_scrollPane, BorderLayout.CENTER);
         getContentPane().add(panel);
-        pack();
+
+        m_logSource.registerListener(this);
         updateLogContent();
     }
 
+    /**
+     * Панель фильтра: минимальный уровень и слова для поиска. Запрос
+     * выполняется по индексу источника при каждом изменении.
+     */
+    private JPanel createFilterBar(LogIndex index) {
+        JComboBox<LogLevel> levelBox = new JComboBox<>(LogLevel.values());
+        JTextField queryField = new JTextField(12);
+        Runnable applyFilter = () -> {
+            LogLevel minimum = (LogLevel) levelBox.getSelectedItem();
+            String query = queryField.getText().trim();
+            if (minimum == LogLevel.Trace && query.isEmpty()) {
+                m_filteredModel = null;
+                m_logContent.setModel(m_logModel);
+                return;
+            }
+            if (m_filteredModel == null) {
+                m_filteredModel = new FilteredLogListModel(m_logSource, index);
+                m_logContent.setModel(m_filteredModel);
+            }
+            Set<LogLevel> levels = EnumSet.noneOf(LogLevel.class);
+            for (LogLevel level : LogLevel.values()) {
+                if (level.level() >= minimum.level()) {
+                    levels.add(level);
+                }
+            }
+            m_filteredModel.setFilter(levels, query);
+        };
+        levelBox.addActionListener(event -> applyFilter.run());
+        queryField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyFilter.run();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyFilter.run();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyFilter.run();
+            }
+        });
+
+        JPanel filterBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterBar.add(new JLabel("Уровень:"));
+        filterBar.add(levelBox);
+        filterBar.add(new JLabel("Поиск:"));
+        filterBar.add(queryField);
+        return filterBar;
+    }
+
     private void updateLogContent() {
-        StringBuilder content = new StringBuilder();
-        for (LogEntry entry : m_logSource.all()) {
-            content.append(entry.getMessage()).append("\n");
+        m_updatePending.set(false);
+        BoundedRangeModel scroll = m_scrollPane.getVerticalScrollBar().getModel();
+        boolean atBottom = scroll.getValue() + scroll.getExtent() >= scroll.getMaximum();
+        boolean changed = m_logModel.refresh();
+        if (changed && m_filteredModel != null) {
+            m_filteredModel.refresh();
+        }
+        int size = m_logContent.getModel().getSize();
+        if (changed && atBottom && size > 0) {
+            m_logContent.ensureIndexIsVisible(size - 1);
         }
-        m_logContent.setText(content.toString());
-        m_logContent.invalidate();
+    }
+
+    @Override
+    public void dispose() {
+        m_logSource.unregisterListener(this);
+        if (m_frameTimer != null) {
+            m_frameTimer.stop();
+        }
+        super.dispose();
     }
 
     @Override
     public void onLogChanged() {
-        EventQueue.invokeLater(this::updateLogContent);
+        if (m_updatePending.compareAndSet(false, true)) {
+            EventQueue.invokeLater(m_frameTimer::restart);
+        }
+    }
+
+    private static class LogEntryRenderer extends DefaultListCellRenderer
+    {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            String text = value instanceof LogEntry entry ? entry.getMessage() : "";
+            return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+        }
     }
-}
\ No newline at end of file
+}
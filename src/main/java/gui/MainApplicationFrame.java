@@ -2,14 +2,20 @@ package gui;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 import javax.swing.*;
 
 import State.AbstractWindow;
+import State.LayoutStore;
 import log.Logger;
 
 import model.RobotsLogic;
+import model.SharedPoseStore;
 import gui.GameWindow;
 
 /**
@@ -32,6 +38,32 @@ public class MainApplicationFrame extends JFrame {
      */
     private JDesktopPane desktopPane;
 
+    /**
+     * Системное свойство с путем к файлу, куда публикуются положения роботов.
+     */
+    public static final String POSE_FILE_PROPERTY = "robots.poses.file";
+
+    /**
+     * Масштабы времени, предлагаемые в меню.
+     */
+    private static final double[] TIME_SCALES = {0.1, 0.5, 1, 2, 5, 10, 100, 1000};
+
+    /**
+     * Симуляции, созданные окном; масштаб времени из меню применяется ко всем.
+     */
+    private final List<RobotsLogic> simulations = new ArrayList<>();
+
+    /**
+     * Файл, в который публикуются положения роботов, и симуляция, которая в него пишет.
+     */
+    private SharedPoseStore poseStore;
+    private RobotsLogic poseStoreOwner;
+
+    /**
+     * Текущий масштаб времени симуляций.
+     */
+    private double timeScale = 1;
+
     /**
      * Конструктор главного окна приложения.
      */
@@ -51,8 +83,8 @@ public class MainApplicationFrame extends JFrame {
         // Создаем и устанавливаем меню
         setJMenuBar(generateMenuBar());
 
-        // Устанавливаем операцию по умолчанию при закрытии окна
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        // Закрытием окна управляет exitApplication после подтверждения
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
 
         // Добавляем слушатель оконного события для закрытия
         addWindowListener(new WindowAdapter() {
@@ -69,24 +101,32 @@ public class MainApplicationFrame extends JFrame {
      */
     private JDesktopPane createDesktopPane() {
         desktopPane = new JDesktopPane();
-        var logic = new RobotsLogic();
-
-        // Добавляем окна на панель рабочего стола
-        addWindow(createLogWindow(), 150, 350);
-        addWindow(new GameWindow(logic), 400, 400);
-        addWindow(new RobotInfo(logic), 150, 350);
+        var logic = createSimulation();
+        attachPoseStore(logic);
 
-
-
-        // Загружаем состояние каждого окна
-        for (JInternalFrame frame : desktopPane.getAllFrames()) {
-            AbstractWindow abstractWindow = (AbstractWindow) frame;
-            abstractWindow.loadWindow();
-        }
+        // Добавляем окна-заготовки с сохраненным положением; содержимое
+        // создается при первом показе окна
+        restoreWindow(createLogWindow(), 150, 350);
+        restoreWindow(new GameWindow(logic), 400, 400);
+        restoreWindow(new RobotInfo(logic), 150, 350);
 
         return desktopPane;
     }
 
+    /**
+     * Добавляет окно на панель рабочего стола, восстанавливая его сохраненное
+     * положение до показа, чтобы свернутое окно не создавало содержимое.
+     * @param frame Окно для добавления.
+     * @param width Ширина окна, если положение не сохранено.
+     * @param height Высота окна, если положение не сохранено.
+     */
+    private void restoreWindow(AbstractWindow frame, int width, int height) {
+        desktopPane.add(frame);
+        frame.setSize(width, height);
+        frame.loadWindow();
+        frame.setVisible(true);
+    }
+
     /**
      * Создает окно для отображения логов.
      * @return Созданное окно для отображения логов.
@@ -118,6 +158,7 @@ public class MainApplicationFrame extends JFrame {
 
         menuBar.add(createFileMenu());
         menuBar.add(createLookAndFeelMenu());
+        menuBar.add(createTimeScaleMenu());
         menuBar.add(createTestMenu());
 
         return menuBar;
@@ -130,7 +171,7 @@ public class MainApplicationFrame extends JFrame {
      * @return Меню файлов.
      */
     private JMenu createFileMenu() {
-        var logic = new RobotsLogic();
+        var logic = createSimulation();
         JMenu menu = new JMenu(messages.getString("Menu"));
         menu.setMnemonic(KeyEvent.VK_D);
 
@@ -196,6 +237,94 @@ public class MainApplicationFrame extends JFrame {
         return lookAndFeelMenu;
     }
 
+    /**
+     * Создает симуляцию с текущим масштабом времени.
+     * @return Созданная симуляция.
+     */
+    private RobotsLogic createSimulation() {
+        RobotsLogic logic = new RobotsLogic();
+        logic.setTimeScale(timeScale);
+        simulations.add(logic);
+        return logic;
+    }
+
+    /**
+     * Публикует положения роботов симуляции в файл из свойства
+     * {@value #POSE_FILE_PROPERTY}, если оно задано, для внешних программ просмотра.
+     * @param logic Симуляция.
+     */
+    private void attachPoseStore(RobotsLogic logic) {
+        String poseFile = System.getProperty(POSE_FILE_PROPERTY);
+        if (poseFile == null) {
+            return;
+        }
+        // Файл один: прежняя симуляция перестает в него писать
+        closePoseStore();
+        try {
+            poseStore = new SharedPoseStore(Paths.get(poseFile), logic.getRobotCount());
+            poseStoreOwner = logic;
+            logic.setPoseStore(poseStore);
+        } catch (IOException e) {
+            Logger.error("Не удалось открыть файл положений роботов {}: {}", poseFile, e);
+        }
+    }
+
+    /**
+     * Отключает публикацию положений роботов и закрывает файл.
+     */
+    private void closePoseStore() {
+        if (poseStore == null) {
+            return;
+        }
+        poseStoreOwner.setPoseStore(null);
+        try {
+            poseStore.close();
+        } catch (IOException e) {
+            Logger.error("Не удалось закрыть файл положений роботов: {}", e);
+        }
+        poseStore = null;
+        poseStoreOwner = null;
+    }
+
+    /**
+     * Создает меню масштаба времени симуляции.
+     * @return Меню масштаба времени.
+     */
+    private JMenu createTimeScaleMenu() {
+        JMenu timeScaleMenu = new JMenu(messages.getString("TimeScale"));
+        timeScaleMenu.setMnemonic(KeyEvent.VK_S);
+        timeScaleMenu.getAccessibleContext().setAccessibleDescription(messages.getString("TimeScaleControl"));
+
+        ButtonGroup group = new ButtonGroup();
+        for (double scale : TIME_SCALES) {
+            String text = (scale == Math.rint(scale) ? String.valueOf((long) scale) : String.valueOf(scale)) + "x";
+            timeScaleMenu.add(createTimeScaleItem(text, scale, group));
+        }
+        timeScaleMenu.addSeparator();
+        timeScaleMenu.add(createTimeScaleItem(messages.getString("TimeScaleMax"), RobotsLogic.MAX_TIME_SCALE, group));
+
+        return timeScaleMenu;
+    }
+
+    /**
+     * Создает пункт меню масштаба времени.
+     * @param text Текст пункта.
+     * @param scale Масштаб времени.
+     * @param group Группа взаимоисключающих пунктов.
+     * @return Созданный пункт меню.
+     */
+    private JMenuItem createTimeScaleItem(String text, double scale, ButtonGroup group) {
+        JRadioButtonMenuItem item = new JRadioButtonMenuItem(text, scale == timeScale);
+        item.addActionListener((event) -> {
+            timeScale = scale;
+            for (RobotsLogic logic : simulations) {
+                logic.setTimeScale(scale);
+            }
+        });
+        group.add(item);
+        return item;
+    }
+
     /**
      * Создает меню тестирования.
      * @return Меню тестирования.
@@ -229,13 +358,15 @@ public class MainApplicationFrame extends JFrame {
     }
 
     /**
-     * Вызывает диалоговое окно закрытия для каждого окна на панели рабочего стола.
+     * Сохраняет положение каждого окна на панели рабочего стола и запускает
+     * фоновую запись раскладки на диск.
      */
     private void callCloseDialog(){
         for (JInternalFrame frame : desktopPane.getAllFrames()) {
             AbstractWindow abstractWindow = (AbstractWindow) frame;
             abstractWindow.saveWindow();
         }
+        LayoutStore.getDefault().saveInBackground();
     }
 
     /**
@@ -247,7 +378,13 @@ public class MainApplicationFrame extends JFrame {
 
         int confirmation = JOptionPane.showConfirmDialog(this, messages.getString("ConfirmationExitQuestion"),
                 messages.getString("ConfirmationExit"), JOptionPane.YES_NO_OPTION);
+        if (confirmation != JOptionPane.YES_OPTION) {
+            return;
+        }
         callCloseDialog();
+        closePoseStore();
+        // Хук завершения дождется записи раскладки
+        System.exit(0);
     }
 
 
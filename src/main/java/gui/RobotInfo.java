@@ -1,35 +1,71 @@
 package gui;
 
 import java.awt.BorderLayout;
+import java.awt.EventQueue;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JLabel;
+import javax.swing.Timer;
 
 import State.AbstractWindow;
 import model.RobotsLogic;
 
 public class RobotInfo extends AbstractWindow implements Observer {
+    /**
+     * Минимальный интервал между обновлениями надписи.
+     */
+    private static final int REFRESH_INTERVAL_MS = 50;
+
     private  final JLabel label;
+    private final RobotsLogic logic;
+    private final AdaptiveRate rate;
+    private final Timer refreshTimer;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
 
     public RobotInfo(RobotsLogic logic) {
         super();
         this.label = new JLabel();
+        this.logic = logic;
+        this.rate = new AdaptiveRate(label, REFRESH_INTERVAL_MS, this::refreshLabel);
+        this.refreshTimer = new Timer(REFRESH_INTERVAL_MS, event -> refreshLabel());
+        refreshTimer.setRepeats(false);
         setTitle("Координаты");
 
-        logic.addObserver(this);
         setResizable(true);
         setClosable(true);
         setMaximizable(true);
         setIconifiable(true);
+    }
 
+    @Override
+    protected void createContent() {
+        logic.addObserver(this);
         getContentPane().add(label, BorderLayout.CENTER);
-        pack();
     }
 
+    @Override
+    public void dispose() {
+        logic.deleteObserver(this);
+        refreshTimer.stop();
+        super.dispose();
+    }
+
+    /**
+     * Уведомления модели приходят на каждом шаге симуляции; надпись
+     * обновляется не чаще раза за {@link #REFRESH_INTERVAL_MS} и только
+     * пока окно видно. При появлении окна надпись обновляется сразу.
+     */
     @Override
     public void update(Observable o, Object arg) {
-        RobotsLogic lg = (RobotsLogic) o;
-        label.setText("x=%f y=%f dir=%f".formatted(lg.getRobot().getPosition().getX(),
-                lg.getRobot().getPosition().getY(), lg.getRobot().getDirection()));
+        if (rate.isShowing() && refreshPending.compareAndSet(false, true)) {
+            EventQueue.invokeLater(refreshTimer::restart);
+        }
+    }
+
+    private void refreshLabel() {
+        refreshPending.set(false);
+        label.setText("x=%f y=%f dir=%f".formatted(logic.getRobot().getPosition().getX(),
+                logic.getRobot().getPosition().getY(), logic.getRobot().getDirection()));
     }
 }
\ No newline at end of file
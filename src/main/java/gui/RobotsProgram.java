@@ -1,13 +1,21 @@
 package gui;
 
+import java.awt.EventQueue;
 import java.awt.Frame;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.Duration;
+import java.time.Instant;
 
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import log.Logger;
+
 public class RobotsProgram
 {
     public static void main(String[] args) {
+      final long startNanos = System.nanoTime();
       try {
         UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
 //        UIManager.setLookAndFeel("javax.swing.plaf.metal.MetalLookAndFeel");
@@ -18,8 +26,26 @@ public class RobotsProgram
       }
       SwingUtilities.invokeLater(() -> {
         MainApplicationFrame frame = new MainApplicationFrame();
+        frame.addWindowListener(new WindowAdapter() {
+          @Override
+          public void windowOpened(WindowEvent e) {
+            // Отрисовка первого кадра стоит в очереди событий раньше этой задачи
+            EventQueue.invokeLater(() -> reportFirstFrame(startNanos));
+          }
+        });
         frame.pack();
         frame.setVisible(true);
         frame.setExtendedState(Frame.MAXIMIZED_BOTH);
       });
+    }
+
+    /**
+     * Пишет в лог время до первого кадра: от входа в main и от запуска JVM.
+     */
+    private static void reportFirstFrame(long startNanos) {
+      long sinceMain = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+      long sinceLaunch = ProcessHandle.current().info().startInstant()
+              .map(start -> Duration.between(start, Instant.now()).toMillis())
+              .orElse(-1L);
+      Logger.info("Время до первого кадра: {} мс от main, {} мс от запуска JVM", sinceMain, sinceLaunch);
     }}
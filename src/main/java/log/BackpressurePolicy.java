@@ -0,0 +1,26 @@
+package log;
+
+/**
+ * Что делать с новой записью журнала, если очередь асинхронной
+ * доставки ({@link LogDispatcher}) переполнена.
+ */
+public enum BackpressurePolicy
+{
+    /**
+     * Писатель ждет, пока диспетчер освободит место. Записи не теряются.
+     */
+    Block,
+    /**
+     * Новая запись отбрасывается.
+     */
+    DropNewest,
+    /**
+     * Самая старая запись в очереди отбрасывается ради новой.
+     */
+    DropOldest,
+    /**
+     * Сохраняется только каждая N-я новая запись (вместо самой старой
+     * в очереди), остальные отбрасываются.
+     */
+    Sample
+}
@@ -0,0 +1,128 @@
+package log;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Неблокирующая ограниченная очередь записей между писателями журнала
+ * и диспетчером. Устроена так же, как {@link ConcurrentLogBuffer}: у каждой
+ * ячейки есть штамп с номером позиции, по которому писатель понимает, что
+ * ячейка свободна, а читатель - что запись в ней опубликована. Позиции
+ * захватываются сравнением с обменом, поэтому переполненная очередь
+ * не перезаписывается, а отказывает в {@link #offer}.
+ * <p>
+ * Забирать записи может и несколько потоков: политика
+ * {@link BackpressurePolicy#DropOldest} снимает старые записи в потоке писателя.
+ *
+ * @param <T> тип элементов очереди
+ */
+final class BoundedLogQueue<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    /**
+     * Штамп ячейки: {@code позиция} - ячейка свободна для записи в эту позицию,
+     * {@code позиция + 1} - запись опубликована и ее можно забрать.
+     */
+    private final AtomicLongArray stamps;
+    private final PaddedSequence tail = new PaddedSequence();
+    private final PaddedSequence head = new PaddedSequence();
+
+    /**
+     * @param capacity емкость очереди, округляется вверх до степени двойки
+     */
+    BoundedLogQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity) {
+            slots <<= 1;
+        }
+        this.mask = slots - 1;
+        this.elements = new AtomicReferenceArray<>(slots);
+        this.stamps = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            stamps.set(i, i);
+        }
+    }
+
+    /**
+     * Добавляет элемент в конец очереди.
+     *
+     * @return {@code false}, если очередь заполнена
+     */
+    boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = stamps.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    stamps.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // В ячейке еще лежит запись прошлого круга
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Забирает элемент из начала очереди.
+     *
+     * @return элемент или {@code null}, если очередь пуста или первый
+     *         писатель еще не опубликовал свою запись
+     */
+    T poll() {
+        long position = head.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = stamps.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    final T element = elements.get(index);
+                    elements.set(index, null);
+                    stamps.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Забирает не больше {@code maxElements} элементов в указанную коллекцию.
+     *
+     * @return количество перенесенных элементов
+     */
+    int drainTo(Collection<? super T> target, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            T element = poll();
+            if (element == null) {
+                break;
+            }
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Проверяет, что в очереди нет записей, в том числе еще не опубликованных.
+     */
+    boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+}
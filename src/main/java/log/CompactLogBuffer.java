@@ -0,0 +1,423 @@
+package log;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * Компактный кольцевой буфер журнала. Шаблоны сообщений и имена потоков
+ * заносятся в словари, а каждая запись хранится в примитивных массивах:
+ * номер шаблона, уровень, время, номер потока и до двух примитивных
+ * аргументов, упакованных в {@code long}. Объект {@link LogEntry} и строка
+ * сообщения собираются заново только при чтении.
+ * <p>
+ * Записи, которые так не упаковываются (больше двух аргументов, аргументы-объекты,
+ * переполненный словарь), хранятся как есть в отдельном массиве.
+ * <p>
+ * В словарь попадают только шаблоны с аргументами: текст записи без аргументов
+ * обычно собран вызывающим и каждый раз новый, поэтому он хранится в ячейке.
+ * Для шаблонов ведется счет ссылок из ячеек: шаблон, который больше
+ * не использует ни одна запись, удаляется из словаря, и словарь
+ * не растет больше емкости буфера.
+ * <p>
+ * Писатели упорядочены блокировкой, читатели не блокируются: каждая ячейка
+ * защищена штампом с номером записи, который сверяется до и после чтения.
+ */
+public class CompactLogBuffer implements SequencedLogBuffer<LogEntry> {
+    /**
+     * В штампе хранятся младшие 31 бит номера записи: читатель, проспавший
+     * 2^31 записей, здесь не предполагается.
+     */
+    private static final int STAMP_MASK = Integer.MAX_VALUE;
+    private static final int WRITING = Integer.MIN_VALUE;
+    private static final int EMPTY = -1;
+    /**
+     * Номер шаблона в ячейке, которая не ссылается на словарь.
+     */
+    private static final int NO_TEMPLATE = -1;
+
+    private static final int MAX_TEMPLATES = 1 << 16;
+    private static final int MAX_THREADS = Short.MAX_VALUE;
+    private static final int MAX_INLINE_ARGUMENTS = 2;
+
+    private static final int TYPE_INT = 0;
+    private static final int TYPE_LONG = 1;
+    private static final int TYPE_DOUBLE = 2;
+    private static final int TYPE_FLOAT = 3;
+    private static final int TYPE_BOOLEAN = 4;
+    private static final int TYPE_SHORT = 5;
+    private static final int TYPE_BYTE = 6;
+    private static final int TYPE_CHAR = 7;
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private final int capacity;
+    private final AtomicIntegerArray stamps;
+    private final int[] templateIds;
+    private final byte[] levels;
+    private final long baseTimestamp;
+    /**
+     * Время записи в миллисекундах относительно {@link #baseTimestamp}.
+     */
+    private final int[] timestamps;
+    private final short[] threadIds;
+    /**
+     * Младшие 2 бита - число аргументов, далее по 3 бита на тип каждого аргумента.
+     */
+    private final byte[] argumentTypes;
+    private final long[] arguments;
+    /**
+     * Текст записей без аргументов.
+     */
+    private final String[] messages;
+    private final LogEntry[] uncompressed;
+
+    private final Map<String, Integer> templateIndex = new HashMap<>();
+    private volatile String[] templates = new String[64];
+    /**
+     * Сколько ячеек ссылается на каждый шаблон.
+     */
+    private int[] templateReferences = new int[64];
+    private int[] freeTemplateIds = new int[16];
+    private int freeTemplateCount;
+    private int templateCount;
+    private final Map<String, Integer> threadIndex = new HashMap<>();
+    private volatile String[] threadNames = new String[16];
+
+    private volatile long nextSequence;
+    private volatile long clearedSequence;
+
+    /**
+     * Создает компактный буфер с указанной емкостью.
+     *
+     * @param capacity емкость буфера
+     */
+    public CompactLogBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.stamps = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            stamps.set(i, EMPTY);
+        }
+        this.templateIds = new int[capacity];
+        Arrays.fill(templateIds, NO_TEMPLATE);
+        this.levels = new byte[capacity];
+        this.baseTimestamp = System.currentTimeMillis();
+        this.timestamps = new int[capacity];
+        this.threadIds = new short[capacity];
+        this.argumentTypes = new byte[capacity];
+        this.arguments = new long[capacity * MAX_INLINE_ARGUMENTS];
+        this.messages = new String[capacity];
+        this.uncompressed = new LogEntry[capacity];
+    }
+
+    @Override
+    public synchronized long append(LogEntry entry) {
+        final long sequence = nextSequence;
+        final int slot = slot(sequence);
+
+        final int stamp = stamp(sequence);
+        stamps.set(slot, stamp | WRITING);
+        // Записи полей не должны обогнать отметку о начале записи
+        VarHandle.storeStoreFence();
+        releaseTemplate(slot);
+        if (!pack(slot, entry)) {
+            messages[slot] = null;
+            uncompressed[slot] = entry;
+        }
+        stamps.set(slot, stamp);
+        nextSequence = sequence + 1;
+        return sequence;
+    }
+
+    /**
+     * Раскладывает запись по примитивным массивам.
+     *
+     * @return {@code false}, если запись нельзя упаковать
+     */
+    private boolean pack(int slot, LogEntry entry) {
+        Object[] entryArguments = entry.getArguments();
+        if (entryArguments.length > MAX_INLINE_ARGUMENTS || entry.getLevel() == null) {
+            return false;
+        }
+        int types = entryArguments.length;
+        for (int i = 0; i < entryArguments.length; i++) {
+            int type = typeOf(entryArguments[i]);
+            if (type < 0) {
+                return false;
+            }
+            types |= type << (2 + 3 * i);
+        }
+        long timestampOffset = entry.getTimestamp() - baseTimestamp;
+        if (timestampOffset != (int) timestampOffset) {
+            return false;
+        }
+        int threadId = internThread(entry.getThreadName());
+        if (threadId < 0 || entry.getTemplate() == null) {
+            return false;
+        }
+        int templateId = NO_TEMPLATE;
+        if (entryArguments.length > 0) {
+            templateId = intern(entry.getTemplate());
+            if (templateId < 0) {
+                return false;
+            }
+            templateReferences[templateId]++;
+        }
+        messages[slot] = templateId == NO_TEMPLATE ? entry.getTemplate() : null;
+        for (int i = 0; i < entryArguments.length; i++) {
+            arguments[slot * MAX_INLINE_ARGUMENTS + i] = bitsOf(entryArguments[i]);
+        }
+        uncompressed[slot] = null;
+        templateIds[slot] = templateId;
+        levels[slot] = (byte) entry.getLevel().ordinal();
+        timestamps[slot] = (int) timestampOffset;
+        threadIds[slot] = (short) threadId;
+        argumentTypes[slot] = (byte) types;
+        return true;
+    }
+
+    private int intern(String template) {
+        Integer id = templateIndex.get(template);
+        if (id != null) {
+            return id;
+        }
+        int newId;
+        if (freeTemplateCount > 0) {
+            newId = freeTemplateIds[--freeTemplateCount];
+        } else if (templateCount < MAX_TEMPLATES) {
+            newId = templateCount++;
+            if (newId == templateReferences.length) {
+                templateReferences = Arrays.copyOf(templateReferences, newId * 2);
+            }
+        } else {
+            return -1;
+        }
+        templates = publish(templates, newId, template);
+        templateIndex.put(template, newId);
+        return newId;
+    }
+
+    /**
+     * Снимает ссылку перезаписываемой ячейки на шаблон. Номер освобожденного
+     * шаблона может сразу достаться другому: читатель, успевший прочитать
+     * старый номер, отбросит результат при сверке штампа ячейки.
+     */
+    private void releaseTemplate(int slot) {
+        int templateId = templateIds[slot];
+        if (templateId == NO_TEMPLATE) {
+            return;
+        }
+        templateIds[slot] = NO_TEMPLATE;
+        if (--templateReferences[templateId] == 0) {
+            templateIndex.remove(templates[templateId]);
+            if (freeTemplateCount == freeTemplateIds.length) {
+                freeTemplateIds = Arrays.copyOf(freeTemplateIds, freeTemplateCount * 2);
+            }
+            freeTemplateIds[freeTemplateCount++] = templateId;
+        }
+    }
+
+    private int internThread(String threadName) {
+        Integer id = threadIndex.get(threadName);
+        if (id != null) {
+            return id;
+        }
+        if (threadName == null || threadIndex.size() >= MAX_THREADS) {
+            return -1;
+        }
+        int newId = threadIndex.size();
+        threadNames = publish(threadNames, newId, threadName);
+        threadIndex.put(threadName, newId);
+        return newId;
+    }
+
+    /**
+     * Кладет строку в словарь, при необходимости увеличивая массив. Читатели
+     * видят новый элемент, потому что штамп записи публикуется после него.
+     */
+    private static String[] publish(String[] dictionary, int id, String value) {
+        String[] target = id < dictionary.length ? dictionary : Arrays.copyOf(dictionary, dictionary.length * 2);
+        target[id] = value;
+        return target;
+    }
+
+    /**
+     * Тип примитивного аргумента для упаковки в {@code long}.
+     *
+     * @return {@code -1}, если аргумент не примитивного типа
+     */
+    static int typeOf(Object argument) {
+        if (argument instanceof Integer) {
+            return TYPE_INT;
+        } else if (argument instanceof Long) {
+            return TYPE_LONG;
+        } else if (argument instanceof Double) {
+            return TYPE_DOUBLE;
+        } else if (argument instanceof Float) {
+            return TYPE_FLOAT;
+        } else if (argument instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        } else if (argument instanceof Short) {
+            return TYPE_SHORT;
+        } else if (argument instanceof Byte) {
+            return TYPE_BYTE;
+        } else if (argument instanceof Character) {
+            return TYPE_CHAR;
+        }
+        return -1;
+    }
+
+    static long bitsOf(Object argument) {
+        if (argument instanceof Double value) {
+            return Double.doubleToRawLongBits(value);
+        } else if (argument instanceof Float value) {
+            return Float.floatToRawIntBits(value);
+        } else if (argument instanceof Boolean value) {
+            return value ? 1 : 0;
+        } else if (argument instanceof Character value) {
+            return value;
+        }
+        return ((Number) argument).longValue();
+    }
+
+    static Object valueOf(int type, long bits) {
+        switch (type) {
+            case TYPE_INT:
+                return (int) bits;
+            case TYPE_LONG:
+                return bits;
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(bits);
+            case TYPE_FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            case TYPE_BOOLEAN:
+                return bits != 0;
+            case TYPE_SHORT:
+                return (short) bits;
+            case TYPE_BYTE:
+                return (byte) bits;
+            default:
+                return (char) bits;
+        }
+    }
+
+    @Override
+    public long firstSequence() {
+        return Math.max(clearedSequence, nextSequence - capacity);
+    }
+
+    @Override
+    public long nextSequence() {
+        return nextSequence;
+    }
+
+    @Override
+    public LogEntry get(long sequence) {
+        if (sequence < firstSequence() || sequence >= nextSequence) {
+            return null;
+        }
+        final int slot = slot(sequence);
+        final int stamp = stamp(sequence);
+        if (stamps.get(slot) != stamp) {
+            return null;
+        }
+        LogEntry entry = unpack(slot);
+        // Чтения полей не должны переместиться за повторную проверку штампа
+        VarHandle.loadLoadFence();
+        return stamps.get(slot) == stamp ? entry : null;
+    }
+
+    /**
+     * Собирает запись из ячейки. Может вернуть мусор, если ячейку в это время
+     * перезаписывают, поэтому результат годится только после сверки штампа.
+     */
+    private LogEntry unpack(int slot) {
+        LogEntry entry = uncompressed[slot];
+        if (entry != null) {
+            return entry;
+        }
+        int types = argumentTypes[slot];
+        int count = Math.min(types & 3, MAX_INLINE_ARGUMENTS);
+        Object[] entryArguments = new Object[count];
+        for (int i = 0; i < count; i++) {
+            int type = (types >>> (2 + 3 * i)) & 7;
+            entryArguments[i] = valueOf(type, arguments[slot * MAX_INLINE_ARGUMENTS + i]);
+        }
+        String[] templateSnapshot = templates;
+        String[] threadSnapshot = threadNames;
+        int templateId = templateIds[slot];
+        int threadId = threadIds[slot];
+        int level = levels[slot];
+        if (templateId >= templateSnapshot.length || threadId >= threadSnapshot.length
+                || level < 0 || level >= LEVELS.length) {
+            return null;
+        }
+        String template = templateId == NO_TEMPLATE ? messages[slot] : templateSnapshot[templateId];
+        return new LogEntry(LEVELS[level], baseTimestamp + timestamps[slot], threadSnapshot[threadId],
+                template, entryArguments);
+    }
+
+    @Override
+    public List<LogEntry> rangeBySequence(long fromSequence, int count) {
+        long from = Math.max(fromSequence, firstSequence());
+        long to = Math.min(fromSequence + count, nextSequence);
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<LogEntry> result = new ArrayList<>((int) (to - from));
+        for (long sequence = from; sequence < to; sequence++) {
+            LogEntry entry = get(sequence);
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<LogEntry> range(int startFrom, int count) {
+        if (startFrom < 0) {
+            return Collections.emptyList();
+        }
+        return rangeBySequence(firstSequence() + startFrom, count);
+    }
+
+    @Override
+    public int size() {
+        return (int) (nextSequence - firstSequence());
+    }
+
+    @Override
+    public List<LogEntry> all() {
+        return rangeBySequence(firstSequence(), capacity);
+    }
+
+    /**
+     * Количество шаблонов в словаре.
+     */
+    synchronized int templateCount() {
+        return templateIndex.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        clearedSequence = nextSequence;
+    }
+
+    private static int stamp(long sequence) {
+        return (int) (sequence & STAMP_MASK);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
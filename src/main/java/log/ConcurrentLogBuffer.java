@@ -0,0 +1,224 @@
+package log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Неблокирующий кольцевой буфер журнала для нескольких писателей.
+ * Каждой записи присваивается абсолютный порядковый номер (sequence). Писатель
+ * захватывает номер атомарным инкрементом курсора, кладет запись в ячейку
+ * {@code sequence & mask} и проставляет в ячейке штамп с этим номером.
+ * Читатель сверяет штамп до и после чтения значения, поэтому вытесненные
+ * записи надежно обнаруживаются без блокировок.
+ * Буфер ограничен: когда он заполнен, новые записи вытесняют самые старые.
+ *
+ * @param <T> тип элементов, хранимых в буфере
+ */
+public class ConcurrentLogBuffer<T> implements SequencedLogBuffer<T> {
+    /**
+     * Признак ячейки, в которую писатель кладет запись прямо сейчас.
+     */
+    private static final long WRITING = Long.MIN_VALUE;
+
+    /**
+     * Сколько раз ждать активно, прежде чем уступать процессор другим потокам.
+     */
+    private static final int MAX_SPINS = 100;
+
+    /**
+     * Минимальное число ячеек. Запас сверх емкости нужен, чтобы писатели
+     * почти никогда не обгоняли друг друга на целый круг.
+     */
+    private static final int MIN_SLOTS = 64;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> entries;
+    private final AtomicLongArray stamps;
+    private final PaddedSequence cursor = new PaddedSequence();
+    private volatile long clearedSequence;
+
+    /**
+     * Создает новый кольцевой буфер с указанной емкостью.
+     * Число ячеек округляется вверх до степени двойки (не меньше {@link #MIN_SLOTS}),
+     * но хранится не больше {@code capacity} последних записей.
+     *
+     * @param capacity емкость буфера
+     */
+    public ConcurrentLogBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int slots = Integer.highestOneBit(Math.max(capacity, MIN_SLOTS));
+        if (slots < capacity) {
+            slots <<= 1;
+        }
+        this.capacity = capacity;
+        this.mask = slots - 1;
+        this.entries = new AtomicReferenceArray<>(slots);
+        this.stamps = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            // Штамп "предыдущего круга": первый писатель в ячейку ничего не ждет
+            stamps.set(i, i - (long) slots);
+        }
+    }
+
+    /**
+     * Добавляет элемент в буфер, при необходимости вытесняя самый старый.
+     * Писатель ждет только в том случае, если обогнал на целый круг другого
+     * писателя, еще не закончившего запись в ту же ячейку.
+     *
+     * @param entry элемент, который необходимо добавить в буфер
+     * @return порядковый номер добавленного элемента
+     */
+    @Override
+    public long append(T entry) {
+        final long sequence = cursor.getAndIncrement();
+        final int index = (int) (sequence & mask);
+        final long previousLap = sequence - (mask + 1);
+        for (int spins = 0; stamps.get(index) != previousLap; spins++) {
+            if (spins < MAX_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(1L);
+            }
+        }
+        stamps.set(index, sequence | WRITING);
+        entries.set(index, entry);
+        stamps.set(index, sequence);
+        return sequence;
+    }
+
+    /**
+     * Возвращает порядковый номер самой старой записи, которая еще хранится в буфере.
+     *
+     * @return порядковый номер самой старой записи
+     */
+    @Override
+    public long firstSequence() {
+        return Math.max(clearedSequence, cursor.get() - capacity);
+    }
+
+    /**
+     * Возвращает порядковый номер, который получит следующая запись.
+     *
+     * @return порядковый номер следующей записи
+     */
+    @Override
+    public long nextSequence() {
+        return cursor.get();
+    }
+
+    /**
+     * Возвращает снимок подряд идущих записей начиная с указанного порядкового номера.
+     * Уже вытесненные записи пропускаются, а перебор останавливается на первой
+     * записи, которую писатель еще не опубликовал. Операция не блокируется и
+     * выполняется не более чем за {@code count} шагов.
+     *
+     * @param fromSequence порядковый номер первой записи
+     * @param count максимальное количество записей
+     * @return список записей в порядке их добавления
+     */
+    @Override
+    public List<T> rangeBySequence(long fromSequence, int count) {
+        long from = Math.max(fromSequence, firstSequence());
+        long to = Math.min(fromSequence + count, cursor.get());
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>((int) (to - from));
+        for (long sequence = from; sequence < to; sequence++) {
+            final int index = (int) (sequence & mask);
+            final long before = stamps.get(index);
+            if (before == sequence) {
+                final T entry = entries.get(index);
+                if (stamps.get(index) == sequence) {
+                    result.add(entry);
+                }
+                // Иначе запись вытеснили, пока мы ее читали
+            } else if (isPending(before, sequence)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает запись с указанным порядковым номером.
+     *
+     * @param sequence порядковый номер записи
+     * @return запись или {@code null}, если она уже вытеснена или еще не опубликована
+     */
+    @Override
+    public T get(long sequence) {
+        if (sequence < firstSequence() || sequence >= cursor.get()) {
+            return null;
+        }
+        final int index = (int) (sequence & mask);
+        if (stamps.get(index) != sequence) {
+            return null;
+        }
+        final T entry = entries.get(index);
+        return stamps.get(index) == sequence ? entry : null;
+    }
+
+    /**
+     * Проверяет, что запись с указанным номером еще не опубликована
+     * (в ячейке лежит запись прошлого круга или идет запись).
+     */
+    private boolean isPending(long stamp, long sequence) {
+        if (stamp >= -(mask + 1L)) {
+            return stamp < sequence;
+        }
+        return (stamp & ~WRITING) <= sequence;
+    }
+
+    /**
+     * Возвращает элементы буфера начиная с указанного индекса.
+     * Индекс отсчитывается от самой старой хранимой записи.
+     *
+     * @param startFrom индекс, с которого начинается перебор
+     * @param count количество элементов, которые нужно вернуть
+     * @return список элементов буфера
+     */
+    @Override
+    public List<T> range(int startFrom, int count) {
+        if (startFrom < 0) {
+            return Collections.emptyList();
+        }
+        return rangeBySequence(firstSequence() + startFrom, count);
+    }
+
+    /**
+     * Возвращает текущий размер буфера.
+     *
+     * @return текущий размер буфера
+     */
+    @Override
+    public int size() {
+        return (int) (cursor.get() - firstSequence());
+    }
+
+    /**
+     * Возвращает список, содержащий все элементы буфера.
+     *
+     * @return список элементов буфера
+     */
+    @Override
+    public List<T> all() {
+        return rangeBySequence(firstSequence(), capacity);
+    }
+
+    /**
+     * Очищает буфер. Порядковые номера не сбрасываются.
+     */
+    @Override
+    public void clear() {
+        clearedSequence = cursor.get();
+    }
+}
@@ -0,0 +1,10 @@
+package log;
+
+/**
+ * Выравнивание перед счетчиком {@link PaddedSequence}: заполняет кэш-линию,
+ * чтобы предшествующие в памяти объекты не делили ее со счетчиком.
+ */
+@SuppressWarnings("unused")
+abstract class LeftPadding {
+    protected long p01, p02, p03, p04, p05, p06, p07;
+}
@@ -0,0 +1,130 @@
+package log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Поток асинхронной доставки журнала. Писатели только кладут записи в очередь
+ * своего {@link LogWindowSource}, а единственный поток диспетчера забирает их
+ * пачками, переносит в буфер источника и уведомляет каждого слушателя
+ * один раз на пачку. Так работа слушателей не ложится на поток, который пишет в лог.
+ * Поток запускается первой записью, а не при создании диспетчера.
+ */
+public final class LogDispatcher
+{
+    /**
+     * Максимальное количество записей, переносимых из очереди за один проход.
+     */
+    static final int MAX_BATCH_SIZE = 1024;
+
+    private static final LogDispatcher defaultDispatcher = new LogDispatcher("log dispatcher");
+
+    private final CopyOnWriteArrayList<LogWindowSource> m_sources = new CopyOnWriteArrayList<>();
+    private final Thread m_thread;
+    private final AtomicBoolean m_started = new AtomicBoolean();
+    /**
+     * До запуска потока диспетчер считается спящим: первое пробуждение его запускает.
+     */
+    private volatile boolean m_parked = true;
+
+    public LogDispatcher(String strThreadName)
+    {
+        m_thread = new Thread(this::run, strThreadName);
+        m_thread.setDaemon(true);
+    }
+
+    public static LogDispatcher getDefault()
+    {
+        return defaultDispatcher;
+    }
+
+    /**
+     * Подключает источник. Будить диспетчер не нужно: в новом источнике
+     * еще нет записей, а первая запись разбудит его сама.
+     */
+    void attach(LogWindowSource source)
+    {
+        m_sources.add(source);
+    }
+
+    /**
+     * Проверяет, выполняется ли вызов в потоке диспетчера, то есть
+     * в слушателе, которого уведомляет диспетчер.
+     */
+    boolean isDispatcherThread()
+    {
+        return Thread.currentThread() == m_thread;
+    }
+
+    /**
+     * Будит диспетчер, если он заснул. Для писателя в обычном случае
+     * это одно чтение volatile-поля.
+     */
+    void wakeUp()
+    {
+        if (m_parked)
+        {
+            m_parked = false;
+            if (!m_started.get() && m_started.compareAndSet(false, true))
+            {
+                m_thread.start();
+            }
+            else
+            {
+                LockSupport.unpark(m_thread);
+            }
+        }
+    }
+
+    private void run()
+    {
+        while (true)
+        {
+            if (dispatchAll())
+            {
+                continue;
+            }
+            m_parked = true;
+            // Повторная проверка после объявления о сне: запись, добавленная
+            // до этого момента, будет замечена здесь, а после него - разбудит нас
+            if (hasPending())
+            {
+                m_parked = false;
+                continue;
+            }
+            LockSupport.park(this);
+            m_parked = false;
+        }
+    }
+
+    private boolean dispatchAll()
+    {
+        boolean dispatched = false;
+        for (LogWindowSource source : m_sources)
+        {
+            try
+            {
+                dispatched |= source.dispatchPending(MAX_BATCH_SIZE);
+            }
+            catch (RuntimeException e)
+            {
+                // Ошибка источника не должна останавливать доставку остальным
+                source.reportFailure("log delivery failed", e);
+            }
+        }
+        return dispatched;
+    }
+
+    private boolean hasPending()
+    {
+        for (LogWindowSource source : m_sources)
+        {
+            if (source.hasPending())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
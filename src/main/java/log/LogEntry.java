@@ -1,24 +1,96 @@
 package log;
 
+/**
+ * Запись журнала. Сообщение хранится как шаблон с аргументами и собирается
+ * в строку только при первом обращении к {@link #getMessage()}, то есть тогда,
+ * когда запись действительно кому-то понадобилась. Места подстановки
+ * аргументов в шаблоне обозначаются {@code {}}.
+ * <p>
+ * Аргументы не копируются, поэтому изменяемые объекты в них лучше не передавать.
+ */
 public class LogEntry
 {
-    private LogLevel m_logLevel;
+    private static final String PLACEHOLDER = "{}";
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final LogLevel m_logLevel;
+    private final long m_lTimestamp;
+    private final String m_strThreadName;
+    private final String m_strTemplate;
+    private final Object[] m_arguments;
     private String m_strMessage;
-    
+
     public LogEntry(LogLevel logLevel, String strMessage)
     {
+        this(logLevel, System.currentTimeMillis(), Thread.currentThread().getName(), strMessage, NO_ARGUMENTS);
         m_strMessage = strMessage;
+    }
+
+    public LogEntry(LogLevel logLevel, long lTimestamp, String strThreadName,
+                    String strTemplate, Object[] arguments)
+    {
         m_logLevel = logLevel;
+        m_lTimestamp = lTimestamp;
+        m_strThreadName = strThreadName;
+        m_strTemplate = strTemplate;
+        m_arguments = arguments != null ? arguments : NO_ARGUMENTS;
     }
     
     public String getMessage()
     {
-        return m_strMessage;
+        String message = m_strMessage;
+        if (message == null)
+        {
+            // Гонка безопасна: все потоки получат одинаковую строку
+            message = format(m_strTemplate, m_arguments);
+            m_strMessage = message;
+        }
+        return message;
     }
     
     public LogLevel getLevel()
     {
         return m_logLevel;
     }
-}
 
+    public long getTimestamp()
+    {
+        return m_lTimestamp;
+    }
+
+    public String getThreadName()
+    {
+        return m_strThreadName;
+    }
+
+    public String getTemplate()
+    {
+        return m_strTemplate;
+    }
+
+    public Object[] getArguments()
+    {
+        return m_arguments;
+    }
+
+    private static String format(String template, Object[] arguments)
+    {
+        if (arguments.length == 0)
+        {
+            return template;
+        }
+        StringBuilder result = new StringBuilder(template.length() + 16 * arguments.length);
+        int from = 0;
+        for (Object argument : arguments)
+        {
+            int placeholder = template.indexOf(PLACEHOLDER, from);
+            if (placeholder < 0)
+            {
+                break;
+            }
+            result.append(template, from, placeholder).append(argument);
+            from = placeholder + PLACEHOLDER.length();
+        }
+        return result.append(template, from, template.length()).toString();
+    }
+}
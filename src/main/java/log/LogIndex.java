@@ -0,0 +1,553 @@
+package log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+
+/**
+ * Индекс последних записей журнала для фильтрации по уровню и поиска по словам.
+ * Для каждого уровня хранится кольцевая битовая карта, для каждого слова -
+ * упорядоченный список номеров записей, где оно встречается (инвертированный индекс).
+ * Индекс обновляется по мере добавления записей; записи старше последних
+ * {@code capacity} вытесняются из него вместе со своими словами.
+ * <p>
+ * Слова берутся из шаблона, поэтому построение индекса не требует
+ * форматирования сообщения. Слова аргументов индексируются только после
+ * первого поиска по словам: до тех пор никто их не ищет. При этом берутся
+ * только аргументы-значения (строки, обертки примитивов и перечисления): текст прочих объектов получился бы вызовом
+ * {@code toString()} из чужого потока, пока вызывающий, возможно, меняет объект.
+ * Записи, добавленные до первого поиска по словам, находятся только по словам шаблона.
+ * <p>
+ * Записи могут приходить не по порядку номеров (синхронная доставка из
+ * нескольких потоков): номера, которые обогнали, резервируются и заполняются,
+ * когда их запись придет. Поиск возвращает только записи до первого
+ * незаполненного номера, поэтому продолжение поиска с
+ * {@link Result#nextSequence()} ничего не пропускает.
+ */
+public class LogIndex {
+    private static final LogLevel[] LEVELS = LogLevel.values();
+    /**
+     * Ячейка номера, запись которого еще не пришла.
+     */
+    private static final Posting[] PENDING = new Posting[0];
+
+    private int capacity;
+    /**
+     * Массивы индекса выделяются при первой записи, а не при создании.
+     */
+    private long[][] levelBits;
+    private Posting[][] slotPostings;
+    private final Map<String, Posting> postings = new HashMap<>();
+    private long firstSequence;
+    private long nextSequence;
+    /**
+     * Номера меньше этого уже не ждут записей (см. {@link #settledSequence()}).
+     */
+    private long settledSequence;
+    /**
+     * Индексировать ли слова аргументов; включается первым поиском по словам.
+     */
+    private boolean argumentSearch;
+
+    /**
+     * Создает индекс, охватывающий не больше {@code capacity} последних записей.
+     *
+     * @param capacity количество индексируемых записей, округляется вверх до кратного 64
+     * @param firstSequence номер первой записи, которая будет добавлена
+     */
+    public LogIndex(int capacity, long firstSequence) {
+        int words = (capacity + Long.SIZE - 1) / Long.SIZE;
+        this.capacity = words * Long.SIZE;
+        this.firstSequence = firstSequence;
+        this.nextSequence = firstSequence;
+        this.settledSequence = firstSequence;
+    }
+
+    /**
+     * Уменьшает емкость индекса, пока в него ничего не добавлено:
+     * индексировать больше записей, чем может отдать источник, бессмысленно.
+     */
+    synchronized void limitCapacity(int maxCapacity) {
+        if (levelBits == null) {
+            capacity = Math.min(capacity, Math.max(Long.SIZE, (maxCapacity + Long.SIZE - 1) / Long.SIZE * Long.SIZE));
+        }
+    }
+
+    /**
+     * Добавляет запись с указанным номером, при необходимости вытесняя самые старые.
+     * Записи, пришедшие позже записей с большими номерами, встают на свое место;
+     * записи старше окна индекса отбрасываются.
+     */
+    public synchronized void add(long sequence, LogEntry entry) {
+        if (sequence < firstSequence) {
+            return;
+        }
+        if (levelBits == null) {
+            levelBits = new long[LEVELS.length][capacity / Long.SIZE];
+            slotPostings = new Posting[capacity][];
+        }
+        if (sequence < nextSequence) {
+            if (slotPostings[slot(sequence)] == PENDING) {
+                put(sequence, entry);
+            }
+            return;
+        }
+        if (sequence - nextSequence >= capacity) {
+            // Пропуск длиннее окна (например, источник перешел на нумерацию
+            // хранилища): все проиндексированное вытесняется разом
+            for (long[] bits : levelBits) {
+                Arrays.fill(bits, 0);
+            }
+            Arrays.fill(slotPostings, null);
+            postings.clear();
+            firstSequence = sequence;
+            nextSequence = sequence;
+            settledSequence = sequence;
+        }
+        while (nextSequence <= sequence) {
+            if (nextSequence - firstSequence >= capacity) {
+                evict(firstSequence++);
+            }
+            slotPostings[slot(nextSequence++)] = PENDING;
+        }
+        put(sequence, entry);
+    }
+
+    private void put(long sequence, LogEntry entry) {
+        int slot = slot(sequence);
+        levelBits[entry.getLevel().ordinal()][slot >>> 6] |= 1L << slot;
+
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(entry.getTemplate(), tokens);
+        if (argumentSearch) {
+            for (Object argument : entry.getArguments()) {
+                tokenizeValue(argument, tokens);
+            }
+        }
+        Posting[] entryPostings = new Posting[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            Posting posting = postings.computeIfAbsent(token, Posting::new);
+            posting.insert(sequence);
+            entryPostings[i++] = posting;
+        }
+        slotPostings[slot] = entryPostings;
+    }
+
+    /**
+     * Продвигает и возвращает номер первой записи, которая еще не пришла
+     * (или {@link #nextSequence}, если пришли все).
+     */
+    private long settledSequence() {
+        long settled = Math.max(settledSequence, firstSequence);
+        while (settled < nextSequence && slotPostings[slot(settled)] != PENDING) {
+            settled++;
+        }
+        settledSequence = settled;
+        return settled;
+    }
+
+    private void evict(long sequence) {
+        int slot = slot(sequence);
+        long mask = ~(1L << slot);
+        for (long[] bits : levelBits) {
+            bits[slot >>> 6] &= mask;
+        }
+        Posting[] entryPostings = slotPostings[slot];
+        if (entryPostings != null) {
+            for (Posting posting : entryPostings) {
+                posting.removeFirst();
+                if (posting.size == 0) {
+                    postings.remove(posting.token);
+                }
+            }
+            slotPostings[slot] = null;
+        }
+    }
+
+    /**
+     * Находит записи с одним из указанных уровней, содержащие все слова запроса.
+     * Результат - снимок на момент вызова: последующие записи в него не попадут.
+     *
+     * @param levels допустимые уровни
+     * @param query слова для поиска; пустой запрос означает фильтр только по уровню
+     * @return номера найденных записей в порядке возрастания
+     */
+    public Result search(Set<LogLevel> levels, String query) {
+        return search(levels, query, Long.MIN_VALUE);
+    }
+
+    /**
+     * Находит подходящие записи с номерами не меньше {@code fromSequence}.
+     * Чтобы дополнить прошлый результат новыми записями, достаточно искать
+     * с его {@link Result#nextSequence()}.
+     */
+    public synchronized Result search(Set<LogLevel> levels, String query, long fromSequence) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(query, tokens);
+        if (!tokens.isEmpty()) {
+            argumentSearch = true;
+        }
+        if (levelBits == null) {
+            return new ArrayResult(firstSequence, nextSequence, new long[0], 0);
+        }
+        long settled = settledSequence();
+        long from = Math.min(Math.max(fromSequence, firstSequence), settled);
+        if (tokens.isEmpty()) {
+            return new BitmapResult(firstSequence, settled, from, levelMask(levels, from, settled));
+        }
+        long[][] selectedLevels = new long[levels.size()][];
+        int selected = 0;
+        for (LogLevel level : levels) {
+            selectedLevels[selected++] = levelBits[level.ordinal()];
+        }
+
+        List<Posting> lists = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Posting posting = postings.get(token);
+            if (posting == null) {
+                return new ArrayResult(firstSequence, settled, new long[0], 0);
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(posting -> posting.size));
+
+        // Пересечение по возрастанию номеров: в длинных списках продвигаемся
+        // галопом от предыдущей позиции, а не ищем каждый раз с начала
+        Posting shortest = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        int start = shortest.seek(from, 0);
+        long[] found = new long[shortest.size - start];
+        int count = 0;
+        for (int i = start; i < shortest.size; i++) {
+            long sequence = shortest.get(i);
+            if (sequence >= settled) {
+                break;
+            }
+            if (!hasLevel(selectedLevels, slot(sequence))) {
+                continue;
+            }
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) {
+                Posting posting = lists.get(j);
+                cursors[j] = posting.seek(sequence, cursors[j]);
+                inAll = cursors[j] < posting.size && posting.get(cursors[j]) == sequence;
+            }
+            if (inAll) {
+                found[count++] = sequence;
+            }
+        }
+        return new ArrayResult(firstSequence, settled, found, count);
+    }
+
+    /**
+     * Собирает битовую карту номеров {@code [from, to)}, где бит {@code i}
+     * соответствует записи с номером {@code from + i}.
+     */
+    private long[] levelMask(Set<LogLevel> levels, long from, long to) {
+        int words = capacity / Long.SIZE;
+        long[] circular = new long[words];
+        for (LogLevel level : levels) {
+            long[] bits = levelBits[level.ordinal()];
+            for (int i = 0; i < words; i++) {
+                circular[i] |= bits[i];
+            }
+        }
+        int size = (int) (to - from);
+        long[] linear = new long[(size + Long.SIZE - 1) / Long.SIZE];
+        int shift = slot(from);
+        for (int word = 0; word < linear.length; word++) {
+            int start = shift + word * Long.SIZE;
+            long value = readBits(circular, start % capacity);
+            int remaining = size - word * Long.SIZE;
+            if (remaining < Long.SIZE) {
+                value &= (1L << remaining) - 1;
+            }
+            linear[word] = value;
+        }
+        return linear;
+    }
+
+    /**
+     * Читает 64 бита кольцевой карты начиная с позиции {@code from}.
+     */
+    private long readBits(long[] circular, int from) {
+        int word = from >>> 6;
+        int offset = from & 63;
+        long low = circular[word] >>> offset;
+        if (offset == 0) {
+            return low;
+        }
+        long high = circular[(word + 1) % circular.length] << (Long.SIZE - offset);
+        return low | high;
+    }
+
+    private static boolean hasLevel(long[][] selectedLevels, int slot) {
+        for (long[] bits : selectedLevels) {
+            if ((bits[slot >>> 6] & (1L << slot)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int slot(long sequence) {
+        return (int) Math.floorMod(sequence, (long) capacity);
+    }
+
+    private static void tokenizeValue(Object argument, Set<String> tokens) {
+        if (argument instanceof String text) {
+            tokenize(text, tokens);
+        } else if (argument instanceof Enum<?> constant) {
+            tokenize(constant.name(), tokens);
+        } else if (CompactLogBuffer.typeOf(argument) >= 0) {
+            // Обертки примитивов неизменяемы
+            tokenize(String.valueOf(argument), tokens);
+        }
+    }
+
+    /**
+     * Разбивает текст на слова из букв и цифр в нижнем регистре.
+     */
+    static void tokenize(String text, Set<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Результат поиска: номера найденных записей по возрастанию.
+     */
+    public interface Result {
+        int size();
+
+        long sequenceAt(int index);
+
+        /**
+         * Перебирает найденные номера по возрастанию.
+         */
+        void forEach(LongConsumer action);
+
+        /**
+         * Номер самой старой записи, которая была в индексе на момент поиска.
+         */
+        long firstSequence();
+
+        /**
+         * Номер, с которого продолжать поиск, чтобы получить только новые записи.
+         */
+        long nextSequence();
+    }
+
+    private static final class ArrayResult implements Result {
+        private final long firstSequence;
+        private final long nextSequence;
+        private final long[] sequences;
+        private final int size;
+
+        ArrayResult(long firstSequence, long nextSequence, long[] sequences, int size) {
+            this.firstSequence = firstSequence;
+            this.nextSequence = nextSequence;
+            this.sequences = sequences;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long sequenceAt(int index) {
+            return sequences[index];
+        }
+
+        @Override
+        public void forEach(LongConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(sequences[i]);
+            }
+        }
+
+        @Override
+        public long firstSequence() {
+            return firstSequence;
+        }
+
+        @Override
+        public long nextSequence() {
+            return nextSequence;
+        }
+    }
+
+    /**
+     * Результат фильтра по уровню: k-й номер находится через накопленные
+     * количества единичных битов, без выписывания всех номеров.
+     */
+    private static final class BitmapResult implements Result {
+        private final long firstSequence;
+        private final long nextSequence;
+        private final long fromSequence;
+        private final long[] bits;
+        private final int[] countBefore;
+        private final int size;
+
+        BitmapResult(long firstSequence, long nextSequence, long fromSequence, long[] bits) {
+            this.firstSequence = firstSequence;
+            this.nextSequence = nextSequence;
+            this.fromSequence = fromSequence;
+            this.bits = bits;
+            this.countBefore = new int[bits.length];
+            int total = 0;
+            for (int i = 0; i < bits.length; i++) {
+                countBefore[i] = total;
+                total += Long.bitCount(bits[i]);
+            }
+            this.size = total;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long sequenceAt(int index) {
+            // Последнее слово, перед которым единичных битов не больше index
+            int low = 0;
+            int high = countBefore.length - 1;
+            int word = 0;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (countBefore[middle] <= index) {
+                    word = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            long value = bits[word];
+            for (int skip = index - countBefore[word]; skip > 0; skip--) {
+                value &= value - 1;
+            }
+            return fromSequence + (long) word * Long.SIZE + Long.numberOfTrailingZeros(value);
+        }
+
+        @Override
+        public void forEach(LongConsumer action) {
+            for (int word = 0; word < bits.length; word++) {
+                for (long value = bits[word]; value != 0; value &= value - 1) {
+                    action.accept(fromSequence + (long) word * Long.SIZE + Long.numberOfTrailingZeros(value));
+                }
+            }
+        }
+
+        @Override
+        public long firstSequence() {
+            return firstSequence;
+        }
+
+        @Override
+        public long nextSequence() {
+            return nextSequence;
+        }
+    }
+
+    /**
+     * Список номеров записей, содержащих слово, в виде кольцевого массива
+     * (длина - степень двойки): новые номера добавляются в конец,
+     * вытесненные снимаются с начала.
+     */
+    private static final class Posting {
+        final String token;
+        long[] sequences = new long[4];
+        int head;
+        int size;
+
+        Posting(String token) {
+            this.token = token;
+        }
+
+        void add(long sequence) {
+            if (size == sequences.length) {
+                long[] grown = new long[size * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get(i);
+                }
+                sequences = grown;
+                head = 0;
+            }
+            sequences[(head + size) & (sequences.length - 1)] = sequence;
+            size++;
+        }
+
+        /**
+         * Вставляет номер на его место. Запоздавшие записи отстают всего
+         * на несколько номеров, поэтому сдвиг короткий.
+         */
+        void insert(long sequence) {
+            add(sequence);
+            int index = size - 1;
+            while (index > 0 && get(index - 1) > sequence) {
+                set(index, get(index - 1));
+                index--;
+            }
+            set(index, sequence);
+        }
+
+        private void set(int index, long sequence) {
+            sequences[(head + index) & (sequences.length - 1)] = sequence;
+        }
+
+        void removeFirst() {
+            head = (head + 1) & (sequences.length - 1);
+            size--;
+        }
+
+        long get(int index) {
+            return sequences[(head + index) & (sequences.length - 1)];
+        }
+
+        /**
+         * Возвращает позицию первого номера не меньше {@code sequence},
+         * начиная поиск с позиции {@code from}.
+         */
+        int seek(long sequence, int from) {
+            int step = 1;
+            int high = from;
+            while (high < size && get(high) < sequence) {
+                from = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            while (from < high) {
+                int middle = (from + high) >>> 1;
+                if (get(middle) < sequence) {
+                    from = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return from;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package log;
+
+/**
+ * Способ хранения записей журнала в памяти {@link LogWindowSource}.
+ */
+public enum LogStorageMode
+{
+    /**
+     * Записи хранятся как объекты {@link LogEntry} ({@link ConcurrentLogBuffer}).
+     */
+    Objects,
+    /**
+     * Записи раскладываются по примитивным массивам со словарем шаблонов
+     * ({@link CompactLogBuffer}); подходит для больших буферов.
+     */
+    Compact
+}
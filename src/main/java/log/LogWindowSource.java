@@ -1,71 +1,443 @@
 package log;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import util.WeakListenerRegistry;
 
 
 /**
- * Что починить:
- * 1. Этот класс порождает утечку ресурсов (связанные слушатели оказываются
- * удерживаемыми в памяти)
- * 2. Этот класс хранит активные сообщения лога, но в такой реализации он
- * их лишь накапливает. Надо же, чтобы количество сообщений в логе было ограничено
- * величиной m_iQueueLength (т.е. реально нужна очередь сообщений
- * ограниченного размера)
+ * Источник сообщений лога. Хранит не больше m_iQueueLength последних записей
+ * и уведомляет об изменениях слушателей. Слушатели удерживаются по слабым
+ * ссылкам, поэтому незакрытое окно не остается в памяти навсегда; закрываемые
+ * окна все равно должны отписываться через {@link #unregisterListener}.
  */
 public class LogWindowSource
 {
+    /**
+     * При политике {@link BackpressurePolicy#Sample} из переполняющих очередь
+     * записей сохраняется каждая SAMPLE_RATE-я.
+     */
+    private static final int SAMPLE_RATE = 16;
+    /**
+     * Сколько ждет писатель при политике {@link BackpressurePolicy#Block},
+     * прежде чем снова попробовать положить запись в очередь.
+     */
+    private static final long BLOCK_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
     private int m_iQueueLength;
 
-    private CircularLogBuffer<LogEntry> m_messages;
-    private final ArrayList<LogChangeListener> m_listeners;
-    private volatile LogChangeListener[] m_activeListeners;
+    private final SequencedLogBuffer<LogEntry> m_messages;
+    private final WeakListenerRegistry<LogChangeListener> m_listeners;
+
+    private final LogDispatcher m_dispatcher;
+    private final BackpressurePolicy m_policy;
+    private final BoundedLogQueue<LogEntry> m_pending;
+    private final ArrayList<LogEntry> m_batch;
+    private final LongAdder m_droppedCount = new LongAdder();
+    private final AtomicLong m_overflowCount = new AtomicLong();
+    private final LongAdder m_failureCount = new LongAdder();
+    private final AtomicBoolean m_failureReported = new AtomicBoolean();
+
+    /**
+     * Открывает постоянное хранилище при первой доставке в потоке диспетчера;
+     * после этого {@code null}.
+     */
+    private volatile Supplier<SegmentedLogStore> m_storeOpener;
+    private volatile SegmentedLogStore m_store;
+    private volatile long m_sequenceBase;
+
+    private volatile LogLevel m_threshold = LogLevel.Trace;
+    private volatile LogIndex m_index;
 
+    /**
+     * Создает источник, который уведомляет слушателей синхронно,
+     * в потоке того, кто пишет в лог.
+     */
     public LogWindowSource(int iQueueLength)
     {
-        m_iQueueLength = iQueueLength;
-        m_messages = new CircularLogBuffer<>(iQueueLength);
-        m_listeners = new ArrayList<LogChangeListener>();
+        this(iQueueLength, null, BackpressurePolicy.Block, 0);
     }
 
-    public void registerListener(LogChangeListener listener)
+    /**
+     * Создает источник с асинхронной доставкой: записи складываются в очередь
+     * длиной iPendingLength и переносятся в журнал потоком диспетчера.
+     */
+    public LogWindowSource(int iQueueLength, LogDispatcher dispatcher,
+                           BackpressurePolicy policy, int iPendingLength)
+    {
+        this(iQueueLength, dispatcher, policy, iPendingLength, null);
+    }
+
+    /**
+     * Создает источник с асинхронной доставкой, который дополнительно сохраняет
+     * все записи в постоянное хранилище. Нумерация записей продолжает нумерацию
+     * хранилища, поэтому по {@link #rangeBySequence(long, int)} доступна и история,
+     * уже вытесненная из памяти.
+     */
+    public LogWindowSource(int iQueueLength, LogDispatcher dispatcher,
+                           BackpressurePolicy policy, int iPendingLength, SegmentedLogStore store)
     {
-        synchronized(m_listeners)
+        this(iQueueLength, LogStorageMode.Objects, dispatcher, policy, iPendingLength, store);
+    }
+
+    /**
+     * Создает источник с выбранным способом хранения записей в памяти.
+     */
+    public LogWindowSource(int iQueueLength, LogStorageMode storageMode, LogDispatcher dispatcher,
+                           BackpressurePolicy policy, int iPendingLength, SegmentedLogStore store)
+    {
+        this(iQueueLength, storageMode, dispatcher, policy, iPendingLength,
+                store != null ? () -> store : null);
+    }
+
+    /**
+     * Создает источник, который открывает постоянное хранилище сам, в потоке
+     * диспетчера перед первой доставкой: работа с диском не ложится на запуск
+     * программы. Если storeOpener вернет {@code null}, журнал ведется только
+     * в памяти. До открытия хранилища в источнике нет записей, поэтому смена
+     * нумерации на нумерацию хранилища читателям не видна.
+     */
+    public LogWindowSource(int iQueueLength, LogStorageMode storageMode, LogDispatcher dispatcher,
+                           BackpressurePolicy policy, int iPendingLength,
+                           Supplier<SegmentedLogStore> storeOpener)
+    {
+        if (storeOpener != null && dispatcher == null)
+        {
+            throw new IllegalArgumentException("persistent store requires asynchronous dispatch");
+        }
+        m_storeOpener = storeOpener;
+        m_iQueueLength = iQueueLength;
+        m_messages = storageMode == LogStorageMode.Compact
+                ? new CompactLogBuffer(iQueueLength)
+                : new ConcurrentLogBuffer<>(iQueueLength);
+        m_listeners = new WeakListenerRegistry<>();
+        m_dispatcher = dispatcher;
+        m_policy = policy;
+        if (dispatcher != null)
         {
-            m_listeners.add(listener);
-            m_activeListeners = null;
+            m_pending = new BoundedLogQueue<>(iPendingLength);
+            m_batch = new ArrayList<>(Math.min(iPendingLength, LogDispatcher.MAX_BATCH_SIZE));
+            dispatcher.attach(this);
         }
+        else
+        {
+            m_pending = null;
+            m_batch = null;
+        }
+    }
+
+    /**
+     * Подписывает слушателя. Источник хранит только слабую ссылку на него:
+     * слушатель должен удерживаться кем-то еще, пока ему нужны уведомления.
+     */
+    public void registerListener(LogChangeListener listener)
+    {
+        m_listeners.add(listener);
     }
 
     public void unregisterListener(LogChangeListener listener)
     {
-        synchronized(m_listeners)
+        m_listeners.remove(listener);
+    }
+
+    /**
+     * Включает индекс для фильтрации и поиска по последним iCapacity записям.
+     * В индекс попадают записи, добавленные после этого вызова. Без постоянного
+     * хранилища индекс охватывает не больше записей, чем хранится в памяти:
+     * остальные найденные записи источник все равно не смог бы отдать.
+     */
+    public LogIndex enableIndex(int iCapacity)
+    {
+        synchronized (this)
         {
-            m_listeners.remove(listener);
-            m_activeListeners = null;
+            if (m_index == null)
+            {
+                m_index = new LogIndex(iCapacity, nextSequence());
+                if (m_store == null && m_storeOpener == null)
+                {
+                    m_index.limitCapacity(m_iQueueLength);
+                }
+            }
+            return m_index;
         }
     }
 
+    /**
+     * Возвращает индекс записей или {@code null}, если он не включен.
+     */
+    public LogIndex getIndex()
+    {
+        return m_index;
+    }
+
+    /**
+     * Устанавливает минимальный уровень записей, которые принимает источник.
+     */
+    public void setThreshold(LogLevel threshold)
+    {
+        m_threshold = threshold;
+    }
+
+    public LogLevel getThreshold()
+    {
+        return m_threshold;
+    }
+
+    /**
+     * Проверяет, будет ли принята запись указанного уровня. Проверка ничего
+     * не выделяет, поэтому ее стоит делать до подготовки аргументов.
+     */
+    public boolean isEnabled(LogLevel logLevel)
+    {
+        return logLevel.level() >= m_threshold.level();
+    }
+
     public void append(LogLevel logLevel, String strMessage)
     {
-        LogEntry entry = new LogEntry(logLevel, strMessage);
-        m_messages.append(entry);
-        LogChangeListener [] activeListeners = m_activeListeners;
-        if (activeListeners == null)
+        if (!isEnabled(logLevel))
         {
-            synchronized (m_listeners)
+            return;
+        }
+        append(new LogEntry(logLevel, strMessage));
+    }
+
+    /**
+     * Добавляет запись с отложенным форматированием: шаблон и аргументы
+     * превращаются в строку, только когда запись кто-то прочитает.
+     */
+    public void append(LogLevel logLevel, String strTemplate, Object[] arguments)
+    {
+        if (!isEnabled(logLevel))
+        {
+            return;
+        }
+        append(new LogEntry(logLevel, System.currentTimeMillis(), Thread.currentThread().getName(),
+                strTemplate, arguments));
+    }
+
+    private void append(LogEntry entry)
+    {
+        if (m_dispatcher == null)
+        {
+            long sequence = m_messages.append(entry);
+            LogIndex index = m_index;
+            if (index != null)
             {
-                if (m_activeListeners == null)
+                index.add(m_sequenceBase + sequence, entry);
+            }
+            notifyListeners();
+        }
+        else if (enqueue(entry))
+        {
+            m_dispatcher.wakeUp();
+        }
+    }
+
+    private boolean enqueue(LogEntry entry)
+    {
+        if (m_pending.offer(entry))
+        {
+            return true;
+        }
+        switch (m_policy)
+        {
+            case Block:
+                return put(entry);
+            case DropNewest:
+                m_droppedCount.increment();
+                return false;
+            case Sample:
+                if (m_overflowCount.incrementAndGet() % SAMPLE_RATE != 0)
                 {
-                    activeListeners = m_listeners.toArray(new LogChangeListener [0]);
-                    m_activeListeners = activeListeners;
+                    m_droppedCount.increment();
+                    return false;
                 }
+                return replaceOldest(entry);
+            case DropOldest:
+            default:
+                return replaceOldest(entry);
+        }
+    }
+
+    /**
+     * Ждет, пока диспетчер освободит место в очереди. Прерванный писатель
+     * отказывается от записи. Слушатель, который пишет в лог из потока
+     * диспетчера, ждать не может: очередь освобождает только этот поток,
+     * поэтому его запись отбрасывается и учитывается.
+     */
+    private boolean put(LogEntry entry)
+    {
+        if (m_dispatcher.isDispatcherThread())
+        {
+            m_droppedCount.increment();
+            return false;
+        }
+        while (!m_pending.offer(entry))
+        {
+            m_dispatcher.wakeUp();
+            if (Thread.currentThread().isInterrupted())
+            {
+                m_droppedCount.increment();
+                return false;
             }
+            LockSupport.parkNanos(this, BLOCK_RETRY_NANOS);
         }
-        for (LogChangeListener listener : activeListeners)
+        return true;
+    }
+
+    /**
+     * Кладет запись в очередь, вытесняя самые старые ожидающие записи.
+     */
+    private boolean replaceOldest(LogEntry entry)
+    {
+        while (!m_pending.offer(entry))
         {
-            listener.onLogChanged();
+            if (m_pending.poll() != null)
+            {
+                m_droppedCount.increment();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Переносит пачку ожидающих записей в журнал и уведомляет слушателей
+     * один раз на пачку. Вызывается только из потока диспетчера.
+     *
+     * @return {@code true}, если была перенесена хотя бы одна запись
+     */
+    boolean dispatchPending(int iMaxBatch)
+    {
+        if (m_storeOpener != null)
+        {
+            openStore();
+        }
+        m_pending.drainTo(m_batch, iMaxBatch);
+        if (m_batch.isEmpty())
+        {
+            return false;
+        }
+        SegmentedLogStore store = m_store;
+        if (store != null)
+        {
+            // Сначала на диск: иначе запись могла бы покинуть кольцевой буфер
+            // раньше, чем попала в хранилище
+            try
+            {
+                store.append(m_batch, m_sequenceBase + m_messages.nextSequence());
+            }
+            catch (IOException e)
+            {
+                reportFailure("log store write failed", e);
+            }
+        }
+        LogIndex index = m_index;
+        for (LogEntry entry : m_batch)
+        {
+            long sequence = m_messages.append(entry);
+            if (index != null)
+            {
+                index.add(m_sequenceBase + sequence, entry);
+            }
+        }
+        m_batch.clear();
+        notifyListeners();
+        return true;
+    }
+
+    private void openStore()
+    {
+        SegmentedLogStore store;
+        try
+        {
+            store = m_storeOpener.get();
+        }
+        catch (RuntimeException e)
+        {
+            // Журнал продолжает работать в памяти
+            reportFailure("log store unavailable", e);
+            store = null;
         }
+        synchronized (this)
+        {
+            if (store != null)
+            {
+                // Нумерация сначала, хранилище потом: читатель, увидевший
+                // хранилище, увидит и новую нумерацию
+                m_sequenceBase = store.nextSequence();
+                m_store = store;
+            }
+            else if (m_index != null)
+            {
+                m_index.limitCapacity(m_iQueueLength);
+            }
+            m_storeOpener = null;
+        }
+    }
+
+    boolean hasPending()
+    {
+        return !m_pending.isEmpty();
+    }
+
+    /**
+     * Возвращает количество записей, отброшенных из-за переполнения очереди.
+     */
+    public long getDroppedCount()
+    {
+        return m_droppedCount.sum();
+    }
+
+    /**
+     * Возвращает количество сбоев доставки: исключений слушателей
+     * и ошибок постоянного хранилища.
+     */
+    public long getFailureCount()
+    {
+        return m_failureCount.sum();
+    }
+
+    /**
+     * Учитывает сбой доставки. Писать о нем в сам журнал нельзя: сбой
+     * мог бы повторяться на каждой записи. Поэтому в stderr выводится
+     * только первый сбой, остальные лишь подсчитываются.
+     */
+    void reportFailure(String strWhat, Exception e)
+    {
+        m_failureCount.increment();
+        if (m_failureReported.compareAndSet(false, true))
+        {
+            System.err.println(strWhat + ": " + e + " (further failures are only counted)");
+        }
+    }
+
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return m_policy;
+    }
+
+    private void notifyListeners()
+    {
+        m_listeners.forEach(listener -> {
+            try
+            {
+                listener.onLogChanged();
+            }
+            catch (RuntimeException e)
+            {
+                // Сбой одного слушателя не должен лишать уведомления остальных
+                reportFailure("log listener failed", e);
+            }
+        });
     }
 
     public int size()
@@ -83,6 +455,56 @@ public class LogWindowSource
         return m_messages.range(startFrom, indexTo);
     }
 
+    /**
+     * Возвращает записи по абсолютным порядковым номерам. Записи, уже
+     * вытесненные из памяти, читаются из постоянного хранилища.
+     */
+    public Iterable<LogEntry> rangeBySequence(long fromSequence, int count)
+    {
+        SegmentedLogStore store = m_store;
+        long base = m_sequenceBase;
+        long memoryFirst = base + m_messages.firstSequence();
+        if (store == null || fromSequence >= memoryFirst)
+        {
+            return m_messages.rangeBySequence(fromSequence - base, count);
+        }
+        int fromDisk = (int) Math.min(count, memoryFirst - fromSequence);
+        List<LogEntry> result = new ArrayList<>(store.read(fromSequence, fromDisk));
+        if (result.size() == fromDisk && count > fromDisk)
+        {
+            for (LogEntry entry : m_messages.rangeBySequence(memoryFirst - base, count - fromDisk))
+            {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public LogEntry get(long sequence)
+    {
+        SegmentedLogStore store = m_store;
+        long base = m_sequenceBase;
+        LogEntry entry = m_messages.get(sequence - base);
+        if (entry == null && store != null && sequence < base + m_messages.nextSequence())
+        {
+            List<LogEntry> stored = store.read(sequence, 1);
+            return stored.isEmpty() ? null : stored.get(0);
+        }
+        return entry;
+    }
+
+    public long firstSequence()
+    {
+        SegmentedLogStore store = m_store;
+        long memoryFirst = m_sequenceBase + m_messages.firstSequence();
+        return store != null ? Math.min(store.firstSequence(), memoryFirst) : memoryFirst;
+    }
+
+    public long nextSequence()
+    {
+        return m_sequenceBase + m_messages.nextSequence();
+    }
+
     public Iterable<LogEntry> all()
     {
         return m_messages.all();
@@ -1,26 +1,200 @@
 package log;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
 public final class Logger
 {
+    /**
+     * Каталог постоянного журнала; можно переопределить свойством robots.log.dir.
+     */
+    private static final String LOG_DIRECTORY_PROPERTY = "robots.log.dir";
+    private static final long SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final long RETENTION_BYTES = 256L * 1024 * 1024;
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * Сколько последних записей хранится в памяти: хватает на несколько
+     * экранов окна логов, которые тогда не читаются с диска.
+     */
+    private static final int MEMORY_CAPACITY = 4096;
+    private static final int INDEX_CAPACITY = 1 << 20;
+
     private static final LogWindowSource defaultLogSource;
     static {
-        defaultLogSource = new LogWindowSource(5);
+        // Хранилище откроет поток диспетчера при первой записи, не задерживая запуск
+        defaultLogSource = new LogWindowSource(MEMORY_CAPACITY, LogStorageMode.Compact,
+                LogDispatcher.getDefault(), BackpressurePolicy.DropOldest, 4096, Logger::openStore);
+        defaultLogSource.enableIndex(INDEX_CAPACITY);
     }
 
     private Logger()
     {
     }
 
+    private static SegmentedLogStore openStore()
+    {
+        Path directory = Path.of(System.getProperty(LOG_DIRECTORY_PROPERTY,
+                Path.of(System.getProperty("user.home"), ".robots", "log").toString()));
+        try
+        {
+            return new SegmentedLogStore(directory, SEGMENT_BYTES, RETENTION_BYTES, RETENTION_MILLIS, false);
+        }
+        catch (IOException e)
+        {
+            // Без диска (или если каталог занят другим экземпляром программы)
+            // журнал продолжает работать только в памяти
+            System.err.println("Журнал ведется только в памяти: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Проверяет, будут ли приняты записи указанного уровня. Вызывающему стоит
+     * проверить это до подготовки аргументов, если их вычисление не бесплатно
+     * (например, упаковка примитивов).
+     */
+    public static boolean isEnabled(LogLevel level)
+    {
+        return defaultLogSource.isEnabled(level);
+    }
+
+    public static boolean isDebugEnabled()
+    {
+        return defaultLogSource.isEnabled(LogLevel.Debug);
+    }
+
+    public static void trace(String strMessage)
+    {
+        defaultLogSource.append(LogLevel.Trace, strMessage);
+    }
+
+    public static void trace(String strTemplate, Object argument)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Trace))
+        {
+            defaultLogSource.append(LogLevel.Trace, strTemplate, new Object[] {argument});
+        }
+    }
+
+    public static void trace(String strTemplate, Object argument1, Object argument2)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Trace))
+        {
+            defaultLogSource.append(LogLevel.Trace, strTemplate, new Object[] {argument1, argument2});
+        }
+    }
+
+    public static void trace(String strTemplate, Object... arguments)
+    {
+        defaultLogSource.append(LogLevel.Trace, strTemplate, arguments);
+    }
+
     public static void debug(String strMessage)
     {
         defaultLogSource.append(LogLevel.Debug, strMessage);
     }
 
+    public static void debug(String strTemplate, Object argument)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Debug))
+        {
+            defaultLogSource.append(LogLevel.Debug, strTemplate, new Object[] {argument});
+        }
+    }
+
+    public static void debug(String strTemplate, Object argument1, Object argument2)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Debug))
+        {
+            defaultLogSource.append(LogLevel.Debug, strTemplate, new Object[] {argument1, argument2});
+        }
+    }
+
+    public static void debug(String strTemplate, Object... arguments)
+    {
+        defaultLogSource.append(LogLevel.Debug, strTemplate, arguments);
+    }
+
+    public static void info(String strMessage)
+    {
+        defaultLogSource.append(LogLevel.Info, strMessage);
+    }
+
+    public static void info(String strTemplate, Object argument)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Info))
+        {
+            defaultLogSource.append(LogLevel.Info, strTemplate, new Object[] {argument});
+        }
+    }
+
+    public static void info(String strTemplate, Object argument1, Object argument2)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Info))
+        {
+            defaultLogSource.append(LogLevel.Info, strTemplate, new Object[] {argument1, argument2});
+        }
+    }
+
+    public static void info(String strTemplate, Object... arguments)
+    {
+        defaultLogSource.append(LogLevel.Info, strTemplate, arguments);
+    }
+
+    public static void warning(String strMessage)
+    {
+        defaultLogSource.append(LogLevel.Warning, strMessage);
+    }
+
+    public static void warning(String strTemplate, Object argument)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Warning))
+        {
+            defaultLogSource.append(LogLevel.Warning, strTemplate, new Object[] {argument});
+        }
+    }
+
+    public static void warning(String strTemplate, Object argument1, Object argument2)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Warning))
+        {
+            defaultLogSource.append(LogLevel.Warning, strTemplate, new Object[] {argument1, argument2});
+        }
+    }
+
+    public static void warning(String strTemplate, Object... arguments)
+    {
+        defaultLogSource.append(LogLevel.Warning, strTemplate, arguments);
+    }
+
     public static void error(String strMessage)
     {
         defaultLogSource.append(LogLevel.Error, strMessage);
     }
 
+    public static void error(String strTemplate, Object argument)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Error))
+        {
+            defaultLogSource.append(LogLevel.Error, strTemplate, new Object[] {argument});
+        }
+    }
+
+    public static void error(String strTemplate, Object argument1, Object argument2)
+    {
+        if (defaultLogSource.isEnabled(LogLevel.Error))
+        {
+            defaultLogSource.append(LogLevel.Error, strTemplate, new Object[] {argument1, argument2});
+        }
+    }
+
+    public static void error(String strTemplate, Object... arguments)
+    {
+        defaultLogSource.append(LogLevel.Error, strTemplate, arguments);
+    }
+
     public static LogWindowSource getDefaultLogSource()
     {
         return defaultLogSource;
@@ -0,0 +1,37 @@
+package log;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Счетчик порядковых номеров, выровненный по обе стороны, чтобы он
+ * не делил кэш-линию с соседними полями (false sharing). Поля выравнивания
+ * разнесены по цепочке наследования: внутри одного класса JVM
+ * переупорядочила бы их вместе со счетчиком.
+ */
+@SuppressWarnings("unused")
+final class PaddedSequence extends SequenceValue {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    protected long p11, p12, p13, p14, p15, p16, p17;
+
+    long get() {
+        return value;
+    }
+
+    long getAndIncrement() {
+        return (long) VALUE.getAndAdd(this, 1L);
+    }
+
+    boolean compareAndSet(long expected, long updated) {
+        return VALUE.compareAndSet(this, expected, updated);
+    }
+}
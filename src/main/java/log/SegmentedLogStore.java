@@ -0,0 +1,717 @@
+package log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Постоянное хранилище журнала на диске. Записи дописываются в сегменты
+ * фиксированного размера ({@code <номер первой записи>.log}); когда сегмент
+ * заполняется, начинается новый. Для каждого сегмента ведется разреженный
+ * индекс ({@code .idx}) по порядковому номеру и времени, поэтому поиск
+ * записи не требует чтения сегмента с начала.
+ * <p>
+ * Запись ведется пачками: все записи пачки кодируются в промежуточные буферы
+ * и попадают в файл одной операцией {@link FileChannel#write(ByteBuffer[])}
+ * (group commit). Старые сегменты удаляются по суммарному размеру или возрасту.
+ * <p>
+ * Аргументы-примитивы сохраняются как есть, в упаковке {@link CompactLogBuffer},
+ * и превращаются в текст только при показе. Прочие аргументы сохраняются
+ * строкой {@code toString()} в потоке, который пишет в хранилище: вызывающий
+ * не должен менять объекты, переданные в журнал.
+ * <p>
+ * Писать в хранилище может только один поток, читать - любое количество.
+ * Каталог занимает один процесс: на время работы берется блокировка
+ * файла {@code .lock}, и второй экземпляр программы получит отказ
+ * вместо того, чтобы дописывать в те же сегменты.
+ *
+ * <pre>
+ * запись:   int длина | long номер | long время (мс) | byte уровень | строка поток
+ *           | строка шаблон | byte N | N аргументов
+ * аргумент: byte тип | long значение (примитив) или строка (тип {@code -1})
+ * строка:   int длина | байты UTF-8
+ * индекс: long номер | long время (мс) | long позиция записи в сегменте
+ * </pre>
+ */
+public class SegmentedLogStore {
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String LOCK_FILE = ".lock";
+
+    /**
+     * Размер заголовка записи без поля длины.
+     */
+    private static final int RECORD_HEADER = 8 + 8 + 1;
+    private static final int INDEX_ENTRY = 8 + 8 + 8;
+    /**
+     * Тип аргумента, сохраненного строкой.
+     */
+    private static final byte TEXT_ARGUMENT = -1;
+
+    /**
+     * Через сколько записей в индекс попадает очередная точка.
+     */
+    private static final int INDEX_INTERVAL = 256;
+
+    private static final int STAGING_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_READ_BUFFER_SIZE = 512;
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long retentionBytes;
+    private final long retentionMillis;
+    private final boolean fsync;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private final CopyOnWriteArrayList<Segment> segments = new CopyOnWriteArrayList<>();
+    private final List<ByteBuffer> staging = new ArrayList<>();
+    private final ByteBuffer indexStaging = ByteBuffer.allocate(INDEX_ENTRY * 64);
+
+    /**
+     * Открывает хранилище в указанном каталоге, восстанавливая ранее записанные сегменты.
+     *
+     * @param directory каталог сегментов
+     * @param segmentBytes максимальный размер одного сегмента в байтах
+     * @param retentionBytes суммарный размер сегментов, после которого старые удаляются
+     * @param retentionMillis возраст, после которого сегмент удаляется
+     * @param fsync сбрасывать ли каждую пачку на диск ({@link FileChannel#force})
+     * @throws IOException если каталог или сегменты недоступны
+     *         или каталог занят другим процессом
+     */
+    public SegmentedLogStore(Path directory, long segmentBytes, long retentionBytes,
+                             long retentionMillis, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retentionBytes = retentionBytes;
+        this.retentionMillis = retentionMillis;
+        this.fsync = fsync;
+
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            lock = tryLock(lockChannel, directory);
+            recover();
+            if (segments.isEmpty()) {
+                segments.add(Segment.create(directory, 0));
+            }
+            applyRetention();
+        } catch (IOException | RuntimeException e) {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel, Path directory) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Каталог уже открыт в этой же JVM
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("log directory is in use by another process: " + directory);
+        }
+        return lock;
+    }
+
+    /**
+     * Возвращает порядковый номер самой старой хранимой записи.
+     */
+    public long firstSequence() {
+        return segments.get(0).baseSequence;
+    }
+
+    /**
+     * Возвращает порядковый номер, который получит следующая запись.
+     */
+    public long nextSequence() {
+        return active().nextSequence;
+    }
+
+    /**
+     * Дописывает пачку записей одной операцией записи.
+     *
+     * @param entries записи в порядке их номеров
+     * @param firstSequence номер первой записи пачки, должен совпадать с {@link #nextSequence()}
+     * @throws IOException при ошибке записи
+     */
+    public void append(List<LogEntry> entries, long firstSequence) throws IOException {
+        if (firstSequence < nextSequence()) {
+            throw new IllegalArgumentException("expected sequence " + nextSequence() + ", got " + firstSequence);
+        }
+        Segment segment = active();
+        if (firstSequence > nextSequence()) {
+            // Предыдущая пачка не записалась: начинаем новый сегмент после пропуска
+            segment = roll(firstSequence);
+        }
+        long position = segment.size;
+        long sequence = firstSequence;
+        long timestamp = segment.lastTimestamp;
+        for (LogEntry entry : entries) {
+            byte[] threadName = utf8(entry.getThreadName());
+            byte[] template = utf8(entry.getTemplate());
+            Object[] arguments = entry.getArguments();
+            byte[][] textArguments = new byte[arguments.length][];
+            int payloadLength = 4 + threadName.length + 4 + template.length + 1;
+            for (int i = 0; i < arguments.length; i++) {
+                if (CompactLogBuffer.typeOf(arguments[i]) >= 0) {
+                    payloadLength += 1 + 8;
+                } else {
+                    textArguments[i] = utf8(String.valueOf(arguments[i]));
+                    payloadLength += 1 + 4 + textArguments[i].length;
+                }
+            }
+            int recordLength = 4 + RECORD_HEADER + payloadLength;
+            timestamp = entry.getTimestamp();
+            if (position > 0 && position + recordLength > segmentBytes) {
+                flush(segment, sequence, timestamp);
+                segment = roll(sequence);
+                position = 0;
+            }
+            if (segment.needsIndexPoint(sequence)) {
+                stageIndexPoint(segment, sequence, timestamp, position);
+            }
+            ByteBuffer buffer = stagingFor(recordLength);
+            buffer.putInt(RECORD_HEADER + payloadLength);
+            buffer.putLong(sequence);
+            buffer.putLong(timestamp);
+            buffer.put((byte) entry.getLevel().ordinal());
+            buffer.putInt(threadName.length).put(threadName);
+            buffer.putInt(template.length).put(template);
+            buffer.put((byte) arguments.length);
+            for (int i = 0; i < arguments.length; i++) {
+                if (textArguments[i] == null) {
+                    buffer.put((byte) CompactLogBuffer.typeOf(arguments[i]));
+                    buffer.putLong(CompactLogBuffer.bitsOf(arguments[i]));
+                } else {
+                    buffer.put(TEXT_ARGUMENT);
+                    buffer.putInt(textArguments[i].length).put(textArguments[i]);
+                }
+            }
+            position += recordLength;
+            sequence++;
+        }
+        flush(segment, sequence, timestamp);
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    /**
+     * Читает подряд идущие записи начиная с указанного номера. Если часть
+     * диапазона уже удалена, чтение начинается с самой старой хранимой записи.
+     *
+     * @param fromSequence номер первой записи
+     * @param count максимальное количество записей
+     * @return прочитанные записи
+     */
+    public List<LogEntry> read(long fromSequence, int count) {
+        List<LogEntry> result = new ArrayList<>();
+        long sequence = Math.max(fromSequence, firstSequence());
+        long to = Math.min(fromSequence + count, nextSequence());
+        List<Segment> snapshot = new ArrayList<>(segments);
+        int index = floorSegment(snapshot, sequence);
+        try {
+            while (sequence < to && index >= 0 && index < snapshot.size()) {
+                Segment segment = snapshot.get(index);
+                sequence = segment.read(sequence, to, result);
+                index++;
+            }
+        } catch (IOException e) {
+            // Сегмент удалили по сроку хранения во время чтения
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает номер первой записи, сделанной не раньше указанного момента.
+     *
+     * @param timestampMillis момент времени в миллисекундах
+     * @return номер записи или {@link #nextSequence()}, если таких записей нет
+     */
+    public long sequenceAt(long timestampMillis) {
+        List<Segment> snapshot = new ArrayList<>(segments);
+        int index = snapshot.size() - 1;
+        while (index > 0 && snapshot.get(index).firstTimestamp() > timestampMillis) {
+            index--;
+        }
+        try {
+            for (; index < snapshot.size(); index++) {
+                long sequence = snapshot.get(index).findTimestamp(timestampMillis);
+                if (sequence >= 0) {
+                    return sequence;
+                }
+            }
+        } catch (IOException e) {
+            // Сегмент удалили по сроку хранения во время поиска
+        }
+        return nextSequence();
+    }
+
+    /**
+     * Закрывает файлы сегментов и освобождает каталог.
+     */
+    public void close() throws IOException {
+        try {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        } finally {
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    private Segment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private ByteBuffer stagingFor(int recordLength) {
+        ByteBuffer last = staging.isEmpty() ? null : staging.get(staging.size() - 1);
+        if (last == null || last.remaining() < recordLength) {
+            last = ByteBuffer.allocateDirect(Math.max(STAGING_BUFFER_SIZE, recordLength));
+            staging.add(last);
+        }
+        return last;
+    }
+
+    private void stageIndexPoint(Segment segment, long sequence, long timestamp, long position) {
+        if (!indexStaging.hasRemaining()) {
+            return;
+        }
+        indexStaging.putLong(sequence).putLong(timestamp).putLong(position);
+        segment.addIndexPoint(sequence, timestamp, position);
+    }
+
+    /**
+     * Записывает накопленные буферы в сегмент одной gather-операцией
+     * и публикует новые записи читателям.
+     */
+    private void flush(Segment segment, long nextSequence, long timestamp) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[staging.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = staging.get(i).flip();
+        }
+        long written = 0;
+        long expected = 0;
+        for (ByteBuffer buffer : buffers) {
+            expected += buffer.remaining();
+        }
+        try {
+            while (written < expected) {
+                written += segment.channel.write(buffers);
+            }
+            if (fsync) {
+                segment.channel.force(false);
+            }
+            indexStaging.flip();
+            while (indexStaging.hasRemaining()) {
+                segment.indexChannel.write(indexStaging);
+            }
+        } finally {
+            staging.clear();
+            indexStaging.clear();
+        }
+
+        segment.lastTimestamp = timestamp;
+        segment.size += written;
+        segment.nextSequence = nextSequence;
+    }
+
+    private Segment roll(long baseSequence) throws IOException {
+        Segment segment = Segment.create(directory, baseSequence);
+        segments.add(segment);
+        applyRetention();
+        return segment;
+    }
+
+    private void applyRetention() throws IOException {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.size;
+        }
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        while (segments.size() > 1) {
+            Segment oldest = segments.get(0);
+            if (total <= retentionBytes && oldest.lastTimestamp >= expiredBefore) {
+                break;
+            }
+            segments.remove(0);
+            total -= oldest.size;
+            oldest.delete();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    bases.add(Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Посторонний файл
+                }
+            }
+        }
+        Collections.sort(bases);
+        for (int i = 0; i < bases.size(); i++) {
+            boolean last = i == bases.size() - 1;
+            Segment segment = Segment.open(directory, bases.get(i), last);
+            if (!last) {
+                segment.nextSequence = bases.get(i + 1);
+            }
+            segments.add(segment);
+        }
+    }
+
+    private static int floorSegment(List<Segment> snapshot, long sequence) {
+        int low = 0;
+        int high = snapshot.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (snapshot.get(middle).baseSequence <= sequence) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private static String fileName(long baseSequence, String suffix) {
+        return String.format("%020d%s", baseSequence, suffix);
+    }
+
+    /**
+     * Один файл сегмента и его разреженный индекс.
+     */
+    private static final class Segment {
+        final long baseSequence;
+        final Path logPath;
+        final Path indexPath;
+        final FileChannel channel;
+        final FileChannel indexChannel;
+
+        volatile long size;
+        volatile long nextSequence;
+        volatile long lastTimestamp;
+
+        private long[] indexSequences = new long[16];
+        private long[] indexTimestamps = new long[16];
+        private long[] indexPositions = new long[16];
+        private int indexCount;
+
+        private Segment(Path directory, long baseSequence, boolean writable) throws IOException {
+            this.baseSequence = baseSequence;
+            this.nextSequence = baseSequence;
+            this.logPath = directory.resolve(fileName(baseSequence, LOG_SUFFIX));
+            this.indexPath = directory.resolve(fileName(baseSequence, INDEX_SUFFIX));
+            if (writable) {
+                channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            } else {
+                channel = FileChannel.open(logPath, StandardOpenOption.READ);
+                indexChannel = null;
+            }
+        }
+
+        static Segment create(Path directory, long baseSequence) throws IOException {
+            Segment segment = new Segment(directory, baseSequence, true);
+            segment.lastTimestamp = System.currentTimeMillis();
+            return segment;
+        }
+
+        /**
+         * Открывает существующий сегмент: загружает его индекс, а у последнего
+         * сегмента еще и дочитывает хвост, отрезая недописанную запись.
+         */
+        static Segment open(Path directory, long baseSequence, boolean active) throws IOException {
+            Segment segment = new Segment(directory, baseSequence, active);
+            segment.size = segment.channel.size();
+            segment.lastTimestamp = Files.getLastModifiedTime(segment.logPath).toMillis();
+            segment.loadIndex();
+            if (active) {
+                segment.recoverTail();
+                segment.indexChannel.truncate((long) segment.indexCount * INDEX_ENTRY);
+                segment.indexChannel.position((long) segment.indexCount * INDEX_ENTRY);
+                segment.channel.position(segment.size);
+            }
+            return segment;
+        }
+
+        private void loadIndex() throws IOException {
+            if (!Files.exists(indexPath)) {
+                return;
+            }
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            while (index.remaining() >= INDEX_ENTRY) {
+                long sequence = index.getLong();
+                long timestamp = index.getLong();
+                long position = index.getLong();
+                if (position >= size) {
+                    break;
+                }
+                addIndexPoint(sequence, timestamp, position);
+            }
+        }
+
+        private void recoverTail() throws IOException {
+            long position = indexCount > 0 ? indexPositions[indexCount - 1] : 0;
+            long sequence = indexCount > 0 ? indexSequences[indexCount - 1] : baseSequence;
+            ByteBuffer header = ByteBuffer.allocate(4 + RECORD_HEADER);
+            while (position + header.capacity() <= size) {
+                header.clear();
+                channel.read(header, position);
+                header.flip();
+                int length = header.getInt();
+                if (length < RECORD_HEADER || position + 4 + length > size) {
+                    break;
+                }
+                sequence = header.getLong() + 1;
+                position += 4 + length;
+            }
+            size = position;
+            nextSequence = sequence;
+            channel.truncate(position);
+        }
+
+        synchronized boolean needsIndexPoint(long sequence) {
+            return indexCount == 0 || sequence - indexSequences[indexCount - 1] >= INDEX_INTERVAL;
+        }
+
+        synchronized void addIndexPoint(long sequence, long timestamp, long position) {
+            if (indexCount == indexSequences.length) {
+                int capacity = indexCount * 2;
+                indexSequences = Arrays.copyOf(indexSequences, capacity);
+                indexTimestamps = Arrays.copyOf(indexTimestamps, capacity);
+                indexPositions = Arrays.copyOf(indexPositions, capacity);
+            }
+            indexSequences[indexCount] = sequence;
+            indexTimestamps[indexCount] = timestamp;
+            indexPositions[indexCount] = position;
+            indexCount++;
+        }
+
+        synchronized long firstTimestamp() {
+            return indexCount > 0 ? indexTimestamps[0] : Long.MAX_VALUE;
+        }
+
+        /**
+         * Ищет ближайшую точку индекса не правее указанного номера.
+         *
+         * @return пара (номер, позиция) ближайшей точки
+         */
+        private synchronized long[] floorBySequence(long sequence) {
+            int low = 0;
+            int high = indexCount - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (indexSequences[middle] <= sequence) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found < 0 ? new long[] {baseSequence, 0} : new long[] {indexSequences[found], indexPositions[found]};
+        }
+
+        private synchronized long[] floorByTimestamp(long timestamp) {
+            int low = 0;
+            int high = indexCount - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (indexTimestamps[middle] <= timestamp) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found < 0 ? new long[] {baseSequence, 0} : new long[] {indexSequences[found], indexPositions[found]};
+        }
+
+        /**
+         * Дочитывает записи с номерами {@code [from, to)} из этого сегмента.
+         *
+         * @return номер следующей непрочитанной записи
+         */
+        long read(long from, long to, List<LogEntry> result) throws IOException {
+            long end = Math.min(to, nextSequence);
+            long limit = size;
+            long[] point = floorBySequence(from);
+            RecordCursor cursor = new RecordCursor(channel, point[1], limit,
+                    estimateBytes(end - point[0], limit));
+            long sequence = from;
+            while (sequence < end && cursor.next()) {
+                if (cursor.sequence >= from) {
+                    result.add(cursor.toEntry());
+                    sequence = cursor.sequence + 1;
+                }
+            }
+            return sequence;
+        }
+
+        /**
+         * Оценивает, сколько байт занимают {@code records} записей, по среднему
+         * размеру записи в сегменте. Чтение одной строки журнала не должно
+         * тянуть с диска и выделять целый буфер {@link #READ_BUFFER_SIZE}.
+         */
+        private int estimateBytes(long records, long limit) {
+            long stored = Math.max(1, nextSequence - baseSequence);
+            long estimate = (records + 1) * (limit / stored + 1);
+            return (int) Math.max(MIN_READ_BUFFER_SIZE, Math.min(READ_BUFFER_SIZE, estimate));
+        }
+
+        long findTimestamp(long timestamp) throws IOException {
+            long[] point = floorByTimestamp(timestamp);
+            RecordCursor cursor = new RecordCursor(channel, point[1], size, READ_BUFFER_SIZE);
+            while (cursor.next()) {
+                if (cursor.timestamp >= timestamp) {
+                    return cursor.sequence;
+                }
+            }
+            return -1;
+        }
+
+        void close() throws IOException {
+            channel.close();
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        }
+
+        void delete() throws IOException {
+            close();
+            Files.deleteIfExists(logPath);
+            Files.deleteIfExists(indexPath);
+        }
+    }
+
+    /**
+     * Последовательное чтение записей сегмента через буфер, без обращения
+     * к файлу на каждую запись. Буфер рассчитан на ожидаемый объем чтения
+     * и подгружается заново, если записей оказалось больше.
+     */
+    private static final class RecordCursor {
+        private final FileChannel channel;
+        private final long limit;
+        private ByteBuffer buffer;
+        private long bufferPosition;
+
+        long sequence;
+        long timestamp;
+        int level;
+        int payloadOffset;
+
+        RecordCursor(FileChannel channel, long position, long limit, int bufferSize) {
+            this.channel = channel;
+            this.limit = limit;
+            this.bufferPosition = position;
+            this.buffer = ByteBuffer.allocate(bufferSize);
+            buffer.limit(0);
+        }
+
+        boolean next() throws IOException {
+            if (!ensure(4)) {
+                return false;
+            }
+            int length = buffer.getInt(buffer.position());
+            if (!ensure(4 + length)) {
+                return false;
+            }
+            buffer.getInt();
+            sequence = buffer.getLong();
+            timestamp = buffer.getLong();
+            level = buffer.get();
+            payloadOffset = buffer.position();
+            buffer.position(payloadOffset + length - RECORD_HEADER);
+            return true;
+        }
+
+        /**
+         * Восстанавливает запись. Сообщение по-прежнему не форматируется:
+         * примитивы возвращаются значениями, прочие аргументы - строками,
+         * сохраненными при записи.
+         */
+        LogEntry toEntry() {
+            int offset = payloadOffset;
+            String threadName = readString(offset);
+            offset += 4 + buffer.getInt(offset);
+            String template = readString(offset);
+            offset += 4 + buffer.getInt(offset);
+            Object[] arguments = new Object[buffer.get(offset++)];
+            for (int i = 0; i < arguments.length; i++) {
+                byte type = buffer.get(offset++);
+                if (type == TEXT_ARGUMENT) {
+                    arguments[i] = readString(offset);
+                    offset += 4 + buffer.getInt(offset);
+                } else {
+                    arguments[i] = CompactLogBuffer.valueOf(type, buffer.getLong(offset));
+                    offset += 8;
+                }
+            }
+            return new LogEntry(LEVELS[level], timestamp, threadName, template, arguments);
+        }
+
+        private String readString(int offset) {
+            return new String(buffer.array(), offset + 4, buffer.getInt(offset), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Гарантирует, что в буфере есть {@code bytes} непрочитанных байт,
+         * подгружая следующий кусок файла.
+         */
+        private boolean ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            long position = bufferPosition + buffer.position();
+            if (position + bytes > limit) {
+                return false;
+            }
+            if (bytes > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(bytes);
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            bufferPosition = position;
+            return buffer.remaining() >= bytes;
+        }
+    }
+}
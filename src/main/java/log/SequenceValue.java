@@ -0,0 +1,8 @@
+package log;
+
+/**
+ * Само значение счетчика {@link PaddedSequence} между двумя слоями выравнивания.
+ */
+abstract class SequenceValue extends LeftPadding {
+    protected volatile long value;
+}
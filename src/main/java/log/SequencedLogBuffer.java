@@ -0,0 +1,49 @@
+package log;
+
+import java.util.List;
+
+/**
+ * Ограниченный буфер журнала, в котором каждая запись получает абсолютный
+ * порядковый номер. Когда буфер заполнен, новые записи вытесняют самые старые.
+ *
+ * @param <T> тип элементов, хранимых в буфере
+ */
+public interface SequencedLogBuffer<T> {
+    /**
+     * Добавляет элемент в буфер.
+     *
+     * @return порядковый номер добавленного элемента
+     */
+    long append(T entry);
+
+    /**
+     * Возвращает порядковый номер самой старой записи, которая еще хранится в буфере.
+     */
+    long firstSequence();
+
+    /**
+     * Возвращает порядковый номер, который получит следующая запись.
+     */
+    long nextSequence();
+
+    /**
+     * Возвращает подряд идущие записи начиная с указанного порядкового номера.
+     */
+    List<T> rangeBySequence(long fromSequence, int count);
+
+    /**
+     * Возвращает запись с указанным номером или {@code null}, если ее уже нет в буфере.
+     */
+    T get(long sequence);
+
+    /**
+     * Возвращает записи начиная с индекса, отсчитанного от самой старой записи.
+     */
+    List<T> range(int startFrom, int count);
+
+    int size();
+
+    List<T> all();
+
+    void clear();
+}
@@ -0,0 +1,1039 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Распределение целей между роботами аукционом Бертсекаса. Стоимость пары
+ * робот-цель - время в пути, расстояние, деленное на скорость робота;
+ * сумма времен минимизируется. Стоимости считаются на лету, матрица
+ * не хранится. Стоящие роботы (с нулевой скоростью) не участвуют.
+ * <p>
+ * Торгуется меньшая сторона: если целей не больше, чем роботов, цели
+ * покупают роботов, иначе роботы покупают цели. Недостающих участников
+ * заменяют фиктивные с нулевой стоимостью любой пары: они разбирают
+ * лишних роботов (или лишние цели), и задача остается квадратной.
+ * Участник выбирает предмет с наибольшей выгодой {@code -время - цена}
+ * и поднимает его цену на разницу с лучшей альтернативой плюс
+ * {@code epsilon}, вытесняя прежнего владельца. Итог отличается
+ * от оптимума не больше чем на {@code epsilon} на пару.
+ * <p>
+ * Первые торги идут с масштабированием: сначала грубый {@code epsilon},
+ * затем все мельче, и цены каждой фазы служат началом следующей. Потом
+ * распределение поддерживается по месту при тех же ценах: после новой
+ * или удаленной цели, остановившегося или тронувшегося робота участник
+ * без пары получает ее по кратчайшей цепочке вытеснений (см.
+ * {@link #augment(int)}), а не полным пересчетом. Цепочка просматривает
+ * только участников рядом с изменением: при тысяче роботов - десятки.
+ * Лишний фиктивный участник удаляется не сразу: цепочка заканчивается
+ * на предмете любого фиктивного участника, а не заранее выбранного. Когда
+ * меньшей стороной становятся другие участники, стороны меняются местами
+ * по месту: выгода каждого торговавшего участника становится ценой его
+ * предмета, и условия оптимальности сохраняются. Такая смена - самое
+ * дорогое изменение: без пары остается наименее выгодная цель или робот
+ * по всему миру, и цепочка просматривает до всех участников.
+ * {@link #solve(long)} работает в пределах отпущенного времени и продолжает
+ * с того же места при следующем вызове, поэтому его можно вызывать на каждом
+ * шаге симуляции.
+ * <p>
+ * Класс не потокобезопасен.
+ */
+public final class AuctionAssignment {
+    /**
+     * Цель или робот без пары.
+     */
+    public static final int UNASSIGNED = -1;
+
+    private static final double EPSILON_SCALING = 4;
+    /**
+     * Через сколько операций проверяется, не вышло ли время.
+     */
+    private static final int BUDGET_CHECK_OPERATIONS = 16;
+    private static final int FROM_SOURCE = -1;
+
+    private final RobotPoses robots;
+    private final double finalEpsilon;
+    private double epsilon;
+    /**
+     * Торгуются цели, а роботы - предметы торгов; иначе наоборот.
+     */
+    private boolean targetsBid = true;
+    /**
+     * Торги еще не начинались: нужен {@link #reset()}.
+     */
+    private boolean stale = true;
+    /**
+     * Какие роботы могли ехать при последней сверке с набором роботов.
+     */
+    private final boolean[] moving;
+    /**
+     * Число роботов, способных ехать, при последней сверке.
+     */
+    private int movable;
+    /**
+     * Сколько фиктивных участников лишние: первые из них, оставшиеся
+     * без пары, удаляются, а не торгуются заново.
+     */
+    private int surplusDummies;
+
+    /**
+     * Пара робота: номер цели, номер фиктивного участника (см. {@link #dummy(int)})
+     * или {@link #UNASSIGNED}. Так же устроен {@link #targetMatch}.
+     */
+    private final int[] robotMatch;
+    private final double[] robotPrices;
+
+    private double[] targetX = new double[16];
+    private double[] targetY = new double[16];
+    private boolean[] active = new boolean[16];
+    private int[] targetMatch = new int[16];
+    private double[] targetPrices = new double[16];
+    private int targetSlots;
+    private int targetCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private int[] dummyMatch = new int[16];
+    private boolean[] dummyQueued = new boolean[16];
+    private int dummyCount;
+
+    /**
+     * Очередь участников без пары. В ней могут остаться удаленные
+     * и уже получившие пару участники - они пропускаются.
+     */
+    private int[] queue = new int[16];
+    /**
+     * Участник стоит в {@link #queue}. Индексы - номера участников текущей
+     * торгующей стороны, поэтому флаг меняют только постановка в очередь,
+     * выемка и {@link #reset()}: цель, номер которой освободился или занят
+     * повторно, при торгующих роботах совпала бы по номеру с роботом.
+     * Удаленная цель, оставшаяся в очереди, сохраняет флаг, и цель,
+     * занявшая ее номер, торгуется по той же записи.
+     */
+    private boolean[] queued;
+    private int queueHead;
+    private int queueSize;
+
+    private int sweepCursor;
+    private int sweepRemaining;
+
+    /**
+     * Рабочие массивы поиска кратчайшей цепочки в {@link #augment(int)}:
+     * расстояние до предмета, предмет, из которого к нему пришли
+     * ({@link #FROM_SOURCE} - от самого участника), и признак того,
+     * что расстояние окончательное. Индексы - номера предметов.
+     */
+    private double[] distance = new double[16];
+    private int[] via = new int[16];
+    private boolean[] reached = new boolean[16];
+    private boolean[] settled = new boolean[16];
+    private int[] reachedObjects = new int[16];
+
+    private long bids;
+    /**
+     * Сколько ставок заняли последние торги с нуля; {@code -1}, пока они не закончились.
+     */
+    private long coldBids = -1;
+    /**
+     * Номер ставки, с которой начались текущие торги: с нуля или по месту.
+     */
+    private long roundStartBids;
+
+    /**
+     * @param robots роботы; их число может расти, но не больше емкости набора
+     * @param epsilon допустимое отклонение от оптимума на одну пару
+     */
+    public AuctionAssignment(RobotPoses robots, double epsilon) {
+        if (!(epsilon > 0)) {
+            throw new IllegalArgumentException("epsilon must be positive: " + epsilon);
+        }
+        this.robots = robots;
+        this.finalEpsilon = epsilon;
+        this.epsilon = epsilon;
+        this.robotMatch = new int[robots.capacity()];
+        this.robotPrices = new double[robots.capacity()];
+        this.moving = new boolean[robots.capacity()];
+        this.queued = new boolean[Math.max(robots.capacity(), targetX.length)];
+        Arrays.fill(robotMatch, UNASSIGNED);
+    }
+
+    /**
+     * Добавляет цель. Торги за нее идут в {@link #solve(long)}.
+     *
+     * @return номер цели; номера удаленных целей используются повторно
+     */
+    public int addTarget(double x, double y) {
+        if (!stale) {
+            syncRobots();
+        }
+        int target;
+        if (freeCount > 0) {
+            target = freeSlots[--freeCount];
+        } else {
+            ensureTargetCapacity(targetSlots + 1);
+            target = targetSlots++;
+        }
+        targetX[target] = x;
+        targetY[target] = y;
+        active[target] = true;
+        targetMatch[target] = UNASSIGNED;
+        targetPrices[target] = 0;
+        targetCount++;
+        if (stale) {
+            return target;
+        }
+        if (targetsBid) {
+            // Новая цель займет место того фиктивного участника, которого вытеснит
+            enqueue(target);
+        } else {
+            // Новая цель не выгоднее никому из участников, чем их пары:
+            // торги за нее начнет новый фиктивный участник
+            targetPrices[target] = balancedPrice(target);
+        }
+        rebalance();
+        return target;
+    }
+
+    /**
+     * Удаляет цель, например когда робот до нее доехал. Робот освобождается
+     * и достается той цели, которой он теперь выгоднее всего.
+     */
+    public void removeTarget(int target) {
+        checkTarget(target);
+        if (!stale) {
+            syncRobots();
+        }
+        int match = targetMatch[target];
+        active[target] = false;
+        targetMatch[target] = UNASSIGNED;
+        targetCount--;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = target;
+        if (stale) {
+            return;
+        }
+        if (targetsBid) {
+            // Освободившегося робота заберет новый фиктивный участник
+            // или цель, которой он выгоднее. Его цена сбрасывается до наименьшей,
+            // при которой он никому не выгоднее его пары: за робота, который
+            // никому не нужен, фиктивный участник не переплатит
+            if (match != UNASSIGNED) {
+                robotMatch[match] = UNASSIGNED;
+                robotPrices[match] = balancedPrice(match);
+            }
+        } else if (match <= dummy(0)) {
+            dummyMatch[dummyIndex(match)] = UNASSIGNED;
+            removeDummy(dummyIndex(match));
+        } else if (match != UNASSIGNED) {
+            // Роботу достанется цель первого вытесненного фиктивного участника или лучшая
+            robotMatch[match] = UNASSIGNED;
+            enqueue(match);
+        }
+        rebalance();
+    }
+
+    /**
+     * Робот, назначенный цели, или {@link #UNASSIGNED}.
+     */
+    public int getRobot(int target) {
+        checkTarget(target);
+        return Math.max(targetMatch[target], UNASSIGNED);
+    }
+
+    /**
+     * Цель, назначенная роботу, или {@link #UNASSIGNED}.
+     */
+    public int getTarget(int robot) {
+        return Math.max(robotMatch[robot], UNASSIGNED);
+    }
+
+    public double getTargetX(int target) {
+        return targetX[target];
+    }
+
+    public double getTargetY(int target) {
+        return targetY[target];
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * Сколько ставок сделано с момента создания.
+     */
+    public long getBidCount() {
+        return bids;
+    }
+
+    /**
+     * Суммарное время в пути по назначенным парам.
+     */
+    public double getTotalCost() {
+        double total = 0;
+        for (int target = 0; target < targetSlots; target++) {
+            if (active[target] && targetMatch[target] >= 0) {
+                total += cost(target, targetMatch[target]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Проверяет, что торги закончены.
+     */
+    public boolean isSettled() {
+        return !stale && queueSize == 0 && sweepRemaining == 0 && epsilon <= finalEpsilon
+                && robotsUnchanged();
+    }
+
+    /**
+     * Начинает торги заново с масштабированием {@code epsilon} и нулевыми
+     * ценами. Выполняется сам перед первыми торгами и когда торги по месту
+     * затянулись; вызывать вручную стоит, когда поменялось сразу многое.
+     */
+    public void reset() {
+        stale = false;
+        coldBids = -1;
+        roundStartBids = bids;
+        movable = 0;
+        for (int robot = 0; robot < robots.size(); robot++) {
+            moving[robot] = robots.velocity[robot] > 0;
+            if (moving[robot]) {
+                movable++;
+            }
+        }
+        surplusDummies = 0;
+        targetsBid = targetCount <= movable;
+        Arrays.fill(robotPrices, 0);
+        Arrays.fill(targetPrices, 0);
+        dummyCount = 0;
+        for (int i = Math.abs(movable - targetCount); i > 0; i--) {
+            addDummy();
+        }
+        queueSize = 0;
+        Arrays.fill(queued, false);
+        sweepRemaining = 0;
+        epsilon = Math.max(finalEpsilon, maxCost() / EPSILON_SCALING);
+        unassignAll();
+    }
+
+    /**
+     * Просит перепроверить все назначения: роботы едут, и время в пути
+     * меняется. Проверка идет в {@link #solve(long)} после ставок.
+     */
+    public void refresh() {
+        sweepRemaining = personLimit();
+    }
+
+    /**
+     * Ведет торги, пока они не закончатся или не выйдет время.
+     *
+     * @param budgetNanos сколько времени можно потратить
+     * @return {@code true}, если торги закончены (см. {@link #isSettled()})
+     */
+    public boolean solve(long budgetNanos) {
+        final long deadline = System.nanoTime() + budgetNanos;
+        if (!stale) {
+            syncRobots();
+        }
+        if (stale) {
+            reset();
+        }
+        int operations = 0;
+        while (true) {
+            if (queueSize > 0) {
+                if (coldBids < 0) {
+                    bid(dequeue());
+                } else {
+                    augment(dequeue());
+                }
+            } else if (epsilon > finalEpsilon) {
+                epsilon = Math.max(finalEpsilon, epsilon / EPSILON_SCALING);
+                unassignAll();
+            } else if (sweepRemaining > 0) {
+                sweepRemaining--;
+                int person = sweepCursor % Math.max(personLimit(), 1);
+                sweepCursor = person + 1;
+                int object = isPerson(person) ? matchOf(person) : UNASSIGNED;
+                if (object != UNASSIGNED && bestValue(person) > currentValue(person) + epsilon) {
+                    setMatch(person, UNASSIGNED);
+                    setOwner(object, UNASSIGNED);
+                    enqueue(person);
+                }
+            } else {
+                if (coldBids < 0) {
+                    coldBids = bids - roundStartBids;
+                }
+                roundStartBids = bids;
+                return true;
+            }
+            if (coldBids >= 0 && bids - roundStartBids > coldBids) {
+                // Торги по месту затянулись (цены приходится поднимать по epsilon
+                // на большую величину): с масштабированием заново выйдет быстрее
+                reset();
+            }
+            if (++operations % BUDGET_CHECK_OPERATIONS == 0 && System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Ставка участника: выбирает предмет с наибольшей выгодой и поднимает
+     * его цену так, чтобы он оставался лучшим для участника с запасом
+     * {@code epsilon}.
+     */
+    private void bid(int person) {
+        if (!isPerson(person) || matchOf(person) != UNASSIGNED) {
+            return;
+        }
+        if (person <= dummy(0) && surplusDummies > 0) {
+            surplusDummies--;
+            removeDummy(dummyIndex(person));
+            return;
+        }
+        bids++;
+        if (person <= dummy(0)) {
+            dummyBid(person);
+            return;
+        }
+        double best = Double.NEGATIVE_INFINITY;
+        double second = Double.NEGATIVE_INFINITY;
+        int bestObject = UNASSIGNED;
+        if (targetsBid) {
+            final double x = targetX[person];
+            final double y = targetY[person];
+            final double[] robotX = robots.x;
+            final double[] robotY = robots.y;
+            final double[] velocity = robots.velocity;
+            for (int robot = 0, count = robots.size(); robot < count; robot++) {
+                if (!(velocity[robot] > 0)) {
+                    continue;
+                }
+                final double dx = robotX[robot] - x;
+                final double dy = robotY[robot] - y;
+                final double value = -Math.sqrt(dx * dx + dy * dy) / velocity[robot] - robotPrices[robot];
+                if (value > best) {
+                    second = best;
+                    best = value;
+                    bestObject = robot;
+                } else if (value > second) {
+                    second = value;
+                }
+            }
+        } else {
+            final double x = robots.x[person];
+            final double y = robots.y[person];
+            final double velocity = robots.velocity[person];
+            for (int target = 0; target < targetSlots; target++) {
+                if (!active[target]) {
+                    continue;
+                }
+                final double dx = targetX[target] - x;
+                final double dy = targetY[target] - y;
+                final double value = -Math.sqrt(dx * dx + dy * dy) / velocity - targetPrices[target];
+                if (value > best) {
+                    second = best;
+                    best = value;
+                    bestObject = target;
+                } else if (value > second) {
+                    second = value;
+                }
+            }
+        }
+        if (bestObject == UNASSIGNED) {
+            return;
+        }
+        // Единственный предмет: конкурировать не с чем, цена растет на epsilon
+        final double increment = (second == Double.NEGATIVE_INFINITY ? 0 : best - second) + epsilon;
+        if (targetsBid) {
+            robotPrices[bestObject] += increment;
+        } else {
+            targetPrices[bestObject] += increment;
+        }
+        final int previous = ownerOf(bestObject);
+        setOwner(bestObject, person);
+        setMatch(person, bestObject);
+        if (previous != UNASSIGNED) {
+            setMatch(previous, UNASSIGNED);
+            if (previous <= dummy(0) && surplusDummies > 0) {
+                // Цепочка вытеснений дошла до лишнего фиктивного участника
+                surplusDummies--;
+                removeDummy(dummyIndex(previous));
+            } else {
+                enqueue(previous);
+            }
+        }
+    }
+
+    /**
+     * Ставка фиктивного участника. Ему все предметы одинаковы, и обычной
+     * ставкой он взял бы самый дешевый предмет, то есть предмет другого
+     * фиктивного участника, подняв цену на {@code epsilon}. Так фиктивные
+     * участники перебивали бы друг друга по кругу, пока цены их предметов
+     * не дорастут до цены самого дешевого из остальных. Здесь этот круг
+     * проходится за одну ставку: цены предметов фиктивных участников сразу
+     * поднимаются до этой цены, а участник забирает сам этот предмет.
+     * Цены только растут, и каждый фиктивный участник остается при предмете
+     * не дороже самого дешевого, так что условия оптимальности сохраняются.
+     */
+    private void dummyBid(int person) {
+        int cheapest = UNASSIGNED;
+        double price = Double.POSITIVE_INFINITY;
+        for (int object = 0, limit = objectLimit(); object < limit; object++) {
+            if (isObject(object) && ownerOf(object) > dummy(0) && priceOf(object) < price) {
+                price = priceOf(object);
+                cheapest = object;
+            }
+        }
+        if (cheapest == UNASSIGNED) {
+            return;
+        }
+        for (int object = 0, limit = objectLimit(); object < limit; object++) {
+            if (isObject(object) && ownerOf(object) <= dummy(0) && priceOf(object) < price) {
+                setPrice(object, price);
+            }
+        }
+        final int previous = ownerOf(cheapest);
+        if (previous != UNASSIGNED) {
+            // Вытесненный участник должен увидеть цену выше прежней
+            setPrice(cheapest, price + epsilon);
+        }
+        setOwner(cheapest, person);
+        setMatch(person, cheapest);
+        if (previous != UNASSIGNED) {
+            setMatch(previous, UNASSIGNED);
+            enqueue(previous);
+        }
+    }
+
+    /**
+     * Находит пару участнику без пары после изменения по месту. Ставками
+     * при итоговом {@code epsilon} это вышло бы дорого: цены приходится
+     * поднимать по {@code epsilon} на всю разницу стоимостей, и участники
+     * перебивают друг друга тысячи раз. Вместо этого ищется кратчайшая
+     * цепочка вытеснений по приведенным стоимостям
+     * {@code стоимость + цена предмета + выгода участника} (поиск Дейкстры,
+     * как в венгерском алгоритме): от участника к предмету, от владельца
+     * предмета к следующему, пока не найдется свободный предмет или предмет
+     * лишнего фиктивного участника. Приведенные стоимости не меньше
+     * {@code -epsilon}, и отрицательные считаются нулем. Цены пройденных
+     * предметов поднимаются на разницу их расстояния с длиной цепочки,
+     * пары сдвигаются вдоль цепочки, и каждая пара остается не хуже лучшей
+     * больше чем на тот же {@code epsilon}. Пройденный владелец - то же,
+     * что ставка: просмотр всех предметов, поэтому он и считается ставкой.
+     */
+    private void augment(int source) {
+        if (!isPerson(source) || matchOf(source) != UNASSIGNED) {
+            return;
+        }
+        if (source <= dummy(0) && surplusDummies > 0) {
+            surplusDummies--;
+            removeDummy(dummyIndex(source));
+            return;
+        }
+        final int limit = objectLimit();
+        if (distance.length < limit) {
+            int capacity = Math.max(limit, distance.length * 2);
+            distance = new double[capacity];
+            via = new int[capacity];
+            reached = new boolean[capacity];
+            settled = new boolean[capacity];
+            reachedObjects = new int[capacity];
+        }
+        int reachedCount = 0;
+        int person = source;
+        int from = FROM_SOURCE;
+        double base = 0;
+        int sink = UNASSIGNED;
+        while (true) {
+            bids++;
+            // Выгода участника: у источника лучшая, у владельца - его пары
+            double profit = person == source ? bestValue(person) : valueOf(person, from);
+            for (int object = 0; object < limit; object++) {
+                if (settled[object] || !isObject(object)) {
+                    continue;
+                }
+                double reduced = Math.max(0, profit - valueOf(person, object));
+                if (!reached[object]) {
+                    reached[object] = true;
+                    reachedObjects[reachedCount++] = object;
+                    distance[object] = base + reduced;
+                    via[object] = from;
+                } else if (base + reduced < distance[object]) {
+                    distance[object] = base + reduced;
+                    via[object] = from;
+                }
+            }
+            int nearest = UNASSIGNED;
+            for (int i = 0; i < reachedCount; i++) {
+                int object = reachedObjects[i];
+                if (!settled[object] && (nearest == UNASSIGNED || distance[object] < distance[nearest])) {
+                    nearest = object;
+                }
+            }
+            if (nearest == UNASSIGNED) {
+                break;
+            }
+            settled[nearest] = true;
+            int owner = ownerOf(nearest);
+            if (owner == UNASSIGNED || (owner <= dummy(0) && surplusDummies > 0)) {
+                sink = nearest;
+                break;
+            }
+            person = owner;
+            from = nearest;
+            base = distance[nearest];
+        }
+        if (sink != UNASSIGNED) {
+            final double length = distance[sink];
+            for (int i = 0; i < reachedCount; i++) {
+                int object = reachedObjects[i];
+                if (settled[object] && object != sink) {
+                    setPrice(object, priceOf(object) + length - distance[object]);
+                }
+            }
+            final int dropped = ownerOf(sink);
+            if (dropped != UNASSIGNED) {
+                setMatch(dropped, UNASSIGNED);
+            }
+            for (int object = sink; ; ) {
+                int previous = via[object];
+                int owner = previous == FROM_SOURCE ? source : ownerOf(previous);
+                setOwner(object, owner);
+                setMatch(owner, object);
+                if (previous == FROM_SOURCE) {
+                    break;
+                }
+                object = previous;
+            }
+            if (dropped != UNASSIGNED) {
+                surplusDummies--;
+                removeDummy(dummyIndex(dropped));
+            }
+        }
+        for (int i = 0; i < reachedCount; i++) {
+            reached[reachedObjects[i]] = false;
+            settled[reachedObjects[i]] = false;
+        }
+    }
+
+    /**
+     * Выгода участника от предмета; фиктивному участнику все предметы стоят ноль.
+     */
+    private double valueOf(int person, int object) {
+        return (person <= dummy(0) ? 0 : -personCost(person, object)) - priceOf(object);
+    }
+
+    /**
+     * Разбивает все пары и ставит всех участников в очередь. Цены сохраняются.
+     */
+    private void unassignAll() {
+        Arrays.fill(robotMatch, UNASSIGNED);
+        Arrays.fill(targetMatch, UNASSIGNED);
+        Arrays.fill(dummyMatch, 0, dummyCount, UNASSIGNED);
+        for (int person = 0, limit = personLimit(); person < limit; person++) {
+            if (isPerson(person)) {
+                enqueue(person);
+            }
+        }
+        for (int i = 0; i < dummyCount; i++) {
+            enqueue(dummy(i));
+        }
+    }
+
+    /**
+     * Наименьшая цена нового предмета, при которой он ни одному участнику
+     * не выгоднее его пары больше чем на {@code epsilon}.
+     */
+    private double lowestBalancedPrice(int object) {
+        double price = Double.NEGATIVE_INFINITY;
+        for (int person = 0, limit = personLimit(); person < limit; person++) {
+            if (isPerson(person) && matchOf(person) != UNASSIGNED) {
+                price = Math.max(price, -personCost(person, object) - currentValue(person) - epsilon);
+            }
+        }
+        for (int i = 0; i < dummyCount; i++) {
+            if (dummyMatch[i] != UNASSIGNED) {
+                price = Math.max(price, priceOf(dummyMatch[i]) - epsilon);
+            }
+        }
+        return price;
+    }
+
+    /**
+     * Цена нового предмета: наименьшая, при которой он никому не выгоднее
+     * пары, или ноль, если пар еще нет.
+     */
+    private double balancedPrice(int object) {
+        double price = lowestBalancedPrice(object);
+        return price == Double.NEGATIVE_INFINITY ? 0 : price;
+    }
+
+    /**
+     * Сверяет торги с набором роботов: остановившийся робот уходит из торгов,
+     * тронувшийся или новый - входит в них при тех же ценах остальных.
+     * Сначала уходят остановившиеся, чтобы к смене сторон ни у одной пары
+     * не осталось робота с нулевой скоростью.
+     */
+    private void syncRobots() {
+        boolean changed = false;
+        for (int robot = 0, count = robots.size(); robot < count; robot++) {
+            if (moving[robot] && !(robots.velocity[robot] > 0)) {
+                moving[robot] = false;
+                movable--;
+                changed = true;
+                int match = robotMatch[robot];
+                robotMatch[robot] = UNASSIGNED;
+                if (match <= dummy(0)) {
+                    dummyMatch[dummyIndex(match)] = UNASSIGNED;
+                    removeDummy(dummyIndex(match));
+                } else if (match != UNASSIGNED) {
+                    targetMatch[match] = UNASSIGNED;
+                    if (targetsBid) {
+                        enqueue(match);
+                    }
+                }
+            }
+        }
+        for (int robot = 0, count = robots.size(); robot < count; robot++) {
+            if (!moving[robot] && robots.velocity[robot] > 0) {
+                moving[robot] = true;
+                movable++;
+                changed = true;
+                robotMatch[robot] = UNASSIGNED;
+                if (targetsBid) {
+                    robotPrices[robot] = balancedPrice(robot);
+                } else {
+                    enqueue(robot);
+                }
+            }
+        }
+        if (changed) {
+            rebalance();
+        }
+    }
+
+    private boolean robotsUnchanged() {
+        for (int robot = 0, count = robots.size(); robot < count; robot++) {
+            if ((robots.velocity[robot] > 0) != moving[robot]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Подгоняет число фиктивных участников под разницу сторон после
+     * изменения по месту, а если меньшей стороной стали другие участники,
+     * меняет стороны.
+     */
+    private void rebalance() {
+        if ((targetCount <= movable) != targetsBid) {
+            swapSides();
+            return;
+        }
+        int needed = Math.abs(movable - targetCount);
+        while (dummyCount - surplusDummies < needed) {
+            if (surplusDummies > 0) {
+                surplusDummies--;
+            } else {
+                enqueue(addDummy());
+            }
+        }
+        surplusDummies = dummyCount - needed;
+    }
+
+    /**
+     * Меняет торгующую сторону, не трогая пар. Ценой предмета новой стороны
+     * становится выгода участника старой: для пары это ее выгода, для
+     * участника без пары - лучшая выгода. Если до смены у каждого участника
+     * пара была не хуже лучшей больше чем на {@code epsilon}, то и после
+     * смены это так. Фиктивные участники старой стороны удаляются, их
+     * предметы освобождаются, а для новой стороны заводятся свои.
+     */
+    private void swapSides() {
+        for (int i = 0; i < dummyCount; i++) {
+            if (dummyMatch[i] != UNASSIGNED) {
+                setOwner(dummyMatch[i], UNASSIGNED);
+            }
+        }
+        dummyCount = 0;
+        surplusDummies = 0;
+        for (int person = 0, limit = personLimit(); person < limit; person++) {
+            if (isPerson(person)) {
+                double value = matchOf(person) != UNASSIGNED ? currentValue(person) : bestValue(person);
+                if (targetsBid) {
+                    targetPrices[person] = value;
+                } else {
+                    robotPrices[person] = value;
+                }
+            }
+        }
+        targetsBid = !targetsBid;
+        queueSize = 0;
+        Arrays.fill(queued, false);
+        for (int person = 0, limit = personLimit(); person < limit; person++) {
+            if (isPerson(person) && matchOf(person) == UNASSIGNED) {
+                enqueue(person);
+            }
+        }
+        for (int i = Math.abs(movable - targetCount); i > 0; i--) {
+            enqueue(addDummy());
+        }
+    }
+
+    private int addDummy() {
+        if (dummyCount == dummyMatch.length) {
+            dummyMatch = Arrays.copyOf(dummyMatch, dummyCount * 2);
+            dummyQueued = Arrays.copyOf(dummyQueued, dummyCount * 2);
+        }
+        dummyMatch[dummyCount] = UNASSIGNED;
+        dummyQueued[dummyCount] = false;
+        return dummy(dummyCount++);
+    }
+
+    /**
+     * Удаляет фиктивного участника; его предмет остается без пары.
+     * На его место переезжает последний фиктивный участник.
+     */
+    private void removeDummy(int index) {
+        int object = dummyMatch[index];
+        if (object != UNASSIGNED) {
+            setOwner(object, UNASSIGNED);
+        }
+        int last = --dummyCount;
+        if (index != last) {
+            int lastObject = dummyMatch[last];
+            dummyMatch[index] = lastObject;
+            dummyQueued[index] = false;
+            if (lastObject != UNASSIGNED) {
+                setOwner(lastObject, dummy(index));
+            } else {
+                enqueue(dummy(index));
+            }
+        }
+        dummyQueued[last] = false;
+    }
+
+    /**
+     * Номер фиктивного участника {@code index}: отрицательный, чтобы
+     * не пересекаться с номерами целей и роботов и с {@link #UNASSIGNED}.
+     */
+    private static int dummy(int index) {
+        return -2 - index;
+    }
+
+    private static int dummyIndex(int dummy) {
+        return -2 - dummy;
+    }
+
+    private double bestValue(int person) {
+        double best = Double.NEGATIVE_INFINITY;
+        for (int object = 0, limit = objectLimit(); object < limit; object++) {
+            if (isObject(object)) {
+                best = Math.max(best, valueOf(person, object));
+            }
+        }
+        return best;
+    }
+
+    private double currentValue(int person) {
+        int object = matchOf(person);
+        return object != UNASSIGNED ? valueOf(person, object) : Double.NEGATIVE_INFINITY;
+    }
+
+    private int personLimit() {
+        return targetsBid ? targetSlots : robots.size();
+    }
+
+    private int objectLimit() {
+        return targetsBid ? robots.size() : targetSlots;
+    }
+
+    private boolean isPerson(int person) {
+        if (person <= dummy(0)) {
+            return dummyIndex(person) < dummyCount;
+        }
+        return targetsBid ? active[person] : robots.velocity[person] > 0;
+    }
+
+    private boolean isObject(int object) {
+        return targetsBid ? robots.velocity[object] > 0 : active[object];
+    }
+
+    private int matchOf(int person) {
+        if (person <= dummy(0)) {
+            return dummyMatch[dummyIndex(person)];
+        }
+        return targetsBid ? targetMatch[person] : robotMatch[person];
+    }
+
+    private void setMatch(int person, int object) {
+        if (person <= dummy(0)) {
+            dummyMatch[dummyIndex(person)] = object;
+        } else if (targetsBid) {
+            targetMatch[person] = object;
+        } else {
+            robotMatch[person] = object;
+        }
+    }
+
+    private int ownerOf(int object) {
+        return targetsBid ? robotMatch[object] : targetMatch[object];
+    }
+
+    private void setOwner(int object, int person) {
+        if (targetsBid) {
+            robotMatch[object] = person;
+        } else {
+            targetMatch[object] = person;
+        }
+    }
+
+    private double priceOf(int object) {
+        return targetsBid ? robotPrices[object] : targetPrices[object];
+    }
+
+    private void setPrice(int object, double price) {
+        if (targetsBid) {
+            robotPrices[object] = price;
+        } else {
+            targetPrices[object] = price;
+        }
+    }
+
+    private double personCost(int person, int object) {
+        return targetsBid ? cost(person, object) : cost(object, person);
+    }
+
+    private double cost(int target, int robot) {
+        final double dx = robots.x[robot] - targetX[target];
+        final double dy = robots.y[robot] - targetY[target];
+        return Math.sqrt(dx * dx + dy * dy) / robots.velocity[robot];
+    }
+
+    /**
+     * Оценка сверху для стоимости пары: диагональ прямоугольника,
+     * охватывающего роботов и цели, при самой малой скорости.
+     */
+    private double maxCost() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double minVelocity = Double.POSITIVE_INFINITY;
+        for (int robot = 0; robot < robots.size(); robot++) {
+            if (robots.velocity[robot] > 0) {
+                minX = Math.min(minX, robots.x[robot]);
+                minY = Math.min(minY, robots.y[robot]);
+                maxX = Math.max(maxX, robots.x[robot]);
+                maxY = Math.max(maxY, robots.y[robot]);
+                minVelocity = Math.min(minVelocity, robots.velocity[robot]);
+            }
+        }
+        for (int target = 0; target < targetSlots; target++) {
+            if (active[target]) {
+                minX = Math.min(minX, targetX[target]);
+                minY = Math.min(minY, targetY[target]);
+                maxX = Math.max(maxX, targetX[target]);
+                maxY = Math.max(maxY, targetY[target]);
+            }
+        }
+        if (minVelocity == Double.POSITIVE_INFINITY || targetCount == 0) {
+            return 0;
+        }
+        return Math.hypot(maxX - minX, maxY - minY) / minVelocity;
+    }
+
+    private void enqueue(int person) {
+        if (person <= dummy(0)) {
+            if (dummyQueued[dummyIndex(person)]) {
+                return;
+            }
+            dummyQueued[dummyIndex(person)] = true;
+        } else {
+            if (queued[person]) {
+                return;
+            }
+            queued[person] = true;
+        }
+        if (queueSize == queue.length) {
+            int[] grown = new int[queue.length * 2];
+            for (int i = 0; i < queueSize; i++) {
+                grown[i] = queue[(queueHead + i) % queue.length];
+            }
+            queue = grown;
+            queueHead = 0;
+        }
+        queue[(queueHead + queueSize) % queue.length] = person;
+        queueSize++;
+    }
+
+    private int dequeue() {
+        int person = queue[queueHead];
+        queueHead = (queueHead + 1) % queue.length;
+        queueSize--;
+        if (person <= dummy(0)) {
+            dummyQueued[dummyIndex(person)] = false;
+        } else {
+            queued[person] = false;
+        }
+        return person;
+    }
+
+    private void ensureTargetCapacity(int required) {
+        if (required <= targetX.length) {
+            return;
+        }
+        int capacity = Math.max(required, targetX.length * 2);
+        targetX = Arrays.copyOf(targetX, capacity);
+        targetY = Arrays.copyOf(targetY, capacity);
+        active = Arrays.copyOf(active, capacity);
+        targetMatch = Arrays.copyOf(targetMatch, capacity);
+        targetPrices = Arrays.copyOf(targetPrices, capacity);
+        if (queued.length < capacity) {
+            queued = Arrays.copyOf(queued, capacity);
+        }
+    }
+
+    private void checkTarget(int target) {
+        if (target < 0 || target >= targetSlots || !active[target]) {
+            throw new IllegalArgumentException("no such target: " + target);
+        }
+    }
+
+    /**
+     * Жадное распределение для сравнения: цели по порядку забирают ближайшего
+     * по времени свободного робота.
+     *
+     * @return номер робота для каждой цели или {@link #UNASSIGNED}
+     */
+    public static int[] greedy(RobotPoses robots, double[] targetX, double[] targetY, int count) {
+        int[] result = new int[count];
+        boolean[] taken = new boolean[robots.size()];
+        for (int target = 0; target < count; target++) {
+            int bestRobot = UNASSIGNED;
+            double best = Double.POSITIVE_INFINITY;
+            for (int robot = 0; robot < robots.size(); robot++) {
+                if (taken[robot] || !(robots.velocity[robot] > 0)) {
+                    continue;
+                }
+                final double dx = robots.x[robot] - targetX[target];
+                final double dy = robots.y[robot] - targetY[target];
+                final double time = Math.sqrt(dx * dx + dy * dy) / robots.velocity[robot];
+                if (time < best) {
+                    best = time;
+                    bestRobot = robot;
+                }
+            }
+            if (bestRobot != UNASSIGNED) {
+                taken[bestRobot] = true;
+            }
+            result[target] = bestRobot;
+        }
+        return result;
+    }
+}
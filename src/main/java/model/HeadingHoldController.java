@@ -0,0 +1,42 @@
+package model;
+
+/**
+ * Скалярная реализация {@link SteeringController#headingHold()}.
+ */
+final class HeadingHoldController extends SteeringController {
+    @Override
+    public void steer(RobotPoses poses, int from, int to, double dt, double boundsX, double boundsY,
+                      SteeringCommands commands) {
+        commands.checkRange(to);
+        for (int i = from; i < to; i++) {
+            steer(poses, i, boundsX, boundsY, commands);
+        }
+    }
+
+    static void steer(RobotPoses poses, int i, double boundsX, double boundsY, SteeringCommands commands) {
+        if (hasArrived(poses, i)) {
+            commands.stop(i);
+            return;
+        }
+
+        final double x = poses.x[i];
+        final double y = poses.y[i];
+        final double direction = poses.direction[i];
+        final double angularVelocity = poses.angularVelocity[i];
+        final double angleRobotTarget = RobotsMath.angleTo(x, y, poses.targetX[i], poses.targetY[i]);
+
+        if (Math.abs(angularVelocity) < ANGULAR_VELOCITY ||
+                Math.abs(direction - angleRobotTarget) < EPSILON) {
+            commands.set(i, 0, poses.velocity[i], 1, 1);
+            return;
+        }
+
+        commands.set(i, angularVelocity, poses.velocity[i],
+                RobotsMath.speedFactor(x, boundsX), RobotsMath.speedFactor(y, boundsY));
+    }
+
+    @Override
+    public String getName() {
+        return "heading hold";
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+/**
+ * Интегратор движения для пачки роботов из {@link RobotPoses}. Решения
+ * о повороте и скорости принимает {@link SteeringController} и записывает
+ * в {@link SteeringCommands}; ядро только переносит роботов на шаг вперед:
+ * стоящих оставляет на месте, робота с нулевой угловой скоростью везет прямо,
+ * остальных - по дуге окружности.
+ * Роботы не зависят друг от друга, поэтому реализация может считать их
+ * одновременно, в том числе векторными инструкциями.
+ */
+public abstract class KinematicsKernel {
+    /**
+     * Системное свойство: {@code scalar} отключает векторные реализации
+     * ядра и {@link SteeringController#headingHold()}.
+     */
+    public static final String KERNEL_PROPERTY = "robots.kinematics";
+
+    /**
+     * Поворот за шаг, меньше которого дуга считается прямой: радиус такой
+     * дуги больше, чем можно посчитать без потери точности.
+     */
+    static final double MIN_TURN = 1e-9;
+
+    private static final class DefaultHolder {
+        static final KinematicsKernel INSTANCE = create();
+    }
+
+    /**
+     * Самая быстрая доступная реализация: векторная, если JVM запущена
+     * с {@code --add-modules jdk.incubator.vector}, и скалярная иначе.
+     */
+    public static KinematicsKernel getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Скалярная реализация - эталон для проверки векторной.
+     */
+    public static KinematicsKernel scalar() {
+        return new ScalarKinematicsKernel();
+    }
+
+    private static KinematicsKernel create() {
+        if (isVectorEnabled()) {
+            try {
+                return new VectorKinematicsKernel();
+            } catch (LinkageError e) {
+                // Модуль объявлен, но классы не загрузились - считаем скалярно
+            }
+        }
+        return new ScalarKinematicsKernel();
+    }
+
+    /**
+     * Проверяет, что векторные реализации доступны и не отключены {@link #KERNEL_PROPERTY}.
+     */
+    static boolean isVectorEnabled() {
+        return !"scalar".equals(System.getProperty(KERNEL_PROPERTY))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    /**
+     * Переносит роботов {@code [from, to)} на шаг длительностью {@code dt}
+     * по командам из {@code commands}.
+     */
+    public abstract void integrate(RobotPoses poses, SteeringCommands commands, int from, int to, double dt);
+
+    /**
+     * Выполняет один шаг: вычисляет команды контроллером и сразу по ним двигает роботов.
+     *
+     * @param boundsX ширина поля
+     * @param boundsY высота поля
+     */
+    public final void step(RobotPoses poses, SteeringCommands commands, SteeringController controller,
+                           int from, int to, double dt, double boundsX, double boundsY) {
+        controller.steer(poses, from, to, dt, boundsX, boundsY, commands);
+        integrate(poses, commands, from, to, dt);
+    }
+
+    /**
+     * Название реализации для журнала.
+     */
+    public abstract String getName();
+}
@@ -0,0 +1,74 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * ПИД-регулятор курса, см. {@link SteeringController#pid(double, double, double, double)}.
+ * Интеграл и предыдущее отклонение хранятся по номерам роботов и сбрасываются,
+ * когда робот доезжает до цели. Интеграл ограничен так, чтобы его вклад
+ * не превышал предельной угловой скорости.
+ */
+final class PidHeadingController extends SteeringController {
+    private final double kp;
+    private final double ki;
+    private final double kd;
+    private final double maxAngularVelocity;
+
+    private double[] integral = new double[0];
+    /**
+     * Отклонение на прошлом шаге, {@code NaN} - прошлого шага не было.
+     */
+    private double[] previousError = new double[0];
+
+    PidHeadingController(double kp, double ki, double kd, double maxAngularVelocity) {
+        if (!(maxAngularVelocity > 0)) {
+            throw new IllegalArgumentException("maxAngularVelocity must be positive: " + maxAngularVelocity);
+        }
+        this.kp = kp;
+        this.ki = ki;
+        this.kd = kd;
+        this.maxAngularVelocity = maxAngularVelocity;
+    }
+
+    @Override
+    public void steer(RobotPoses poses, int from, int to, double dt, double boundsX, double boundsY,
+                      SteeringCommands commands) {
+        commands.checkRange(to);
+        ensureCapacity(to);
+        final double integralLimit = ki != 0 ? maxAngularVelocity / Math.abs(ki) : 0;
+        for (int i = from; i < to; i++) {
+            final double dx = poses.targetX[i] - poses.x[i];
+            final double dy = poses.targetY[i] - poses.y[i];
+            if (Math.sqrt(dx * dx + dy * dy) < TARGET_CLOSE_ENOUGH) {
+                integral[i] = 0;
+                previousError[i] = Double.NaN;
+                commands.stop(i);
+                continue;
+            }
+            final double error = RobotsMath.angleDifference(Math.atan2(dy, dx), poses.direction[i]);
+            final double previous = previousError[i];
+            final double derivative = Double.isNaN(previous) ? 0 : RobotsMath.angleDifference(error, previous) / dt;
+            integral[i] = RobotsMath.clamp(integral[i] + error * dt, integralLimit);
+            previousError[i] = error;
+            final double angularVelocity = RobotsMath.clamp(kp * error + ki * integral[i] + kd * derivative,
+                    maxAngularVelocity);
+            commands.set(i, angularVelocity, poses.velocity[i], 1, 1);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= integral.length) {
+            return;
+        }
+        int capacity = Math.max(required, integral.length * 2);
+        int oldLength = previousError.length;
+        integral = Arrays.copyOf(integral, capacity);
+        previousError = Arrays.copyOf(previousError, capacity);
+        Arrays.fill(previousError, oldLength, capacity, Double.NaN);
+    }
+
+    @Override
+    public String getName() {
+        return "PID";
+    }
+}
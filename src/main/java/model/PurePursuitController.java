@@ -0,0 +1,40 @@
+package model;
+
+/**
+ * Преследование цели, см. {@link SteeringController#purePursuit(double)}.
+ */
+final class PurePursuitController extends SteeringController {
+    private final double maxAngularVelocity;
+
+    PurePursuitController(double maxAngularVelocity) {
+        if (!(maxAngularVelocity > 0)) {
+            throw new IllegalArgumentException("maxAngularVelocity must be positive: " + maxAngularVelocity);
+        }
+        this.maxAngularVelocity = maxAngularVelocity;
+    }
+
+    @Override
+    public void steer(RobotPoses poses, int from, int to, double dt, double boundsX, double boundsY,
+                      SteeringCommands commands) {
+        commands.checkRange(to);
+        for (int i = from; i < to; i++) {
+            final double dx = poses.targetX[i] - poses.x[i];
+            final double dy = poses.targetY[i] - poses.y[i];
+            final double distance = Math.sqrt(dx * dx + dy * dy);
+            if (distance < TARGET_CLOSE_ENOUGH) {
+                commands.stop(i);
+                continue;
+            }
+            final double alpha = RobotsMath.angleDifference(Math.atan2(dy, dx), poses.direction[i]);
+            final double velocity = poses.velocity[i];
+            final double curvature = 2 * Math.sin(alpha) / distance;
+            final double angularVelocity = RobotsMath.clamp(velocity * curvature, maxAngularVelocity);
+            commands.set(i, angularVelocity, velocity, 1, 1);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "pure pursuit";
+    }
+}
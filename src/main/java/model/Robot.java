@@ -2,38 +2,57 @@ package model;
 
 import java.awt.geom.Point2D;
 
+/**
+ * Один робот из {@link RobotPoses}: все изменения пишутся прямо в массивы набора.
+ */
 public class Robot {
-    private final Point2D.Double position = new Point2D.Double(100, 100);
-    private double direction = 0;
-    private double angularVelocity = 0;
-    private final double velocity = 0.1;
+    private final RobotPoses poses;
+    private final int index;
+
+    public Robot() {
+        this(new RobotPoses(1), -1);
+    }
+
+    /**
+     * @param index номер робота в наборе; отрицательный - добавить нового робота
+     */
+    Robot(RobotPoses poses, int index) {
+        this.poses = poses;
+        this.index = index >= 0 ? index : poses.add(100, 100, 0, 0.1);
+    }
 
     public void move(Point2D.Double dv) {
-        position.setLocation(getPosition().getX() + dv.getX(),
-                getPosition().getY() + dv.getY());
+        poses.setPosition(index, poses.getX(index) + dv.getX(), poses.getY(index) + dv.getY());
     }
 
     public double getVelocity() {
-        return velocity;
+        return poses.getVelocity(index);
     }
 
+    /**
+     * Возвращает копию текущего положения робота.
+     */
     public Point2D.Double getPosition() {
-        return position;
+        return new Point2D.Double(poses.getX(index), poses.getY(index));
     }
 
     public double getDirection() {
-        return direction;
+        return poses.getDirection(index);
     }
 
     public void setDirection(double direction) {
-        this.direction = direction;
+        poses.setDirection(index, direction);
     }
 
     public void setAngularVelocity(double angularVelocity) {
-        this.angularVelocity = angularVelocity;
+        poses.setAngularVelocity(index, angularVelocity);
     }
 
     public double getAngularVelocity() {
-        return angularVelocity;
+        return poses.getAngularVelocity(index);
+    }
+
+    int getIndex() {
+        return index;
     }
-}
\ No newline at end of file
+}
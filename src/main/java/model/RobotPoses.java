@@ -0,0 +1,153 @@
+package model;
+
+/**
+ * Состояние группы роботов в виде параллельных массивов примитивов:
+ * координаты, направление, угловая и линейная скорости, координаты цели.
+ * Такое расположение позволяет {@link KinematicsKernel} обрабатывать
+ * роботов пачкой, а {@link Robot} служит представлением одной строки.
+ */
+public final class RobotPoses {
+    final double[] x;
+    final double[] y;
+    final double[] direction;
+    final double[] angularVelocity;
+    final double[] velocity;
+    final double[] targetX;
+    final double[] targetY;
+    private int size;
+
+    /**
+     * Создает пустой набор, вмещающий не больше {@code capacity} роботов.
+     */
+    public RobotPoses(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        x = new double[capacity];
+        y = new double[capacity];
+        direction = new double[capacity];
+        angularVelocity = new double[capacity];
+        velocity = new double[capacity];
+        targetX = new double[capacity];
+        targetY = new double[capacity];
+    }
+
+    /**
+     * Добавляет робота, стоящего в точке {@code (x, y)}; целью считается та же точка.
+     *
+     * @return номер добавленного робота
+     */
+    public int add(double x, double y, double direction, double velocity) {
+        return add(x, y, direction, 0, velocity, x, y);
+    }
+
+    /**
+     * Добавляет робота со всеми полями состояния.
+     *
+     * @return номер добавленного робота
+     */
+    public int add(double x, double y, double direction, double angularVelocity, double velocity,
+                   double targetX, double targetY) {
+        if (size == this.x.length) {
+            throw new IllegalStateException("robot poses are full: " + size);
+        }
+        int index = size++;
+        this.x[index] = x;
+        this.y[index] = y;
+        this.direction[index] = direction;
+        this.angularVelocity[index] = angularVelocity;
+        this.velocity[index] = velocity;
+        this.targetX[index] = targetX;
+        this.targetY[index] = targetY;
+        return index;
+    }
+
+    /**
+     * Копирует состояние робота {@code from} на место робота {@code to}.
+     */
+    public void copy(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        direction[to] = direction[from];
+        angularVelocity[to] = angularVelocity[from];
+        velocity[to] = velocity[from];
+        targetX[to] = targetX[from];
+        targetY[to] = targetY[from];
+    }
+
+    /**
+     * Оставляет только первых {@code size} роботов.
+     */
+    public void truncate(int size) {
+        if (size < 0 || size > this.size) {
+            throw new IllegalArgumentException("size out of range: " + size);
+        }
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    public double getX(int index) {
+        return x[index];
+    }
+
+    public double getY(int index) {
+        return y[index];
+    }
+
+    public void setPosition(int index, double x, double y) {
+        this.x[index] = x;
+        this.y[index] = y;
+    }
+
+    public double getDirection(int index) {
+        return direction[index];
+    }
+
+    public void setDirection(int index, double direction) {
+        this.direction[index] = direction;
+    }
+
+    public double getAngularVelocity(int index) {
+        return angularVelocity[index];
+    }
+
+    public void setAngularVelocity(int index, double angularVelocity) {
+        this.angularVelocity[index] = angularVelocity;
+    }
+
+    public double getVelocity(int index) {
+        return velocity[index];
+    }
+
+    public double getTargetX(int index) {
+        return targetX[index];
+    }
+
+    public double getTargetY(int index) {
+        return targetY[index];
+    }
+
+    public void setTarget(int index, double x, double y) {
+        targetX[index] = x;
+        targetY[index] = y;
+    }
+
+    /**
+     * Задает роботу цель и направление поворота к ней.
+     */
+    public void aimAt(int index, double x, double y) {
+        setTarget(index, x, y);
+        if (RobotsMath.angleTo(this.x[index], this.y[index], x, y) > direction[index]) {
+            angularVelocity[index] = -SteeringController.ANGULAR_VELOCITY;
+        } else {
+            angularVelocity[index] = SteeringController.ANGULAR_VELOCITY;
+        }
+    }
+}
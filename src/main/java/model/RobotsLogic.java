@@ -1,124 +1,346 @@
 package model;
 
 import java.awt.geom.Point2D;
-import java.awt.geom.Point2D.Double;
 import java.util.Observable;
+import java.util.Observer;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import log.Logger;
+import util.WeakListenerRegistry;
 
 public class RobotsLogic extends Observable {
-    private static final double ANGULAR_VELOCITY = 0.001;
-    private static final double TARGET_CLOSE_ENOUGH = 5;
-    private final static double EPSILON = 0.05;
+    private static final double TARGET_CLOSE_ENOUGH = SteeringController.TARGET_CLOSE_ENOUGH;
+
+    /**
+     * Масштаб времени, при котором симуляция идет так быстро, как позволяет процессор.
+     */
+    public static final double MAX_TIME_SCALE = Double.POSITIVE_INFINITY;
+    /**
+     * Доля периода таймера, которую может занимать пачка шагов: остаток
+     * оставлен потоку событий и другим задачам таймера.
+     */
+    private static final double TICK_BUDGET = 0.8;
+    /**
+     * Через сколько шагов в пачке проверяется, не вышло ли время.
+     */
+    private static final int BUDGET_CHECK_STEPS = 64;
 
+    private final RobotPoses poses = new RobotPoses(1);
+    private final KinematicsKernel kernel = KinematicsKernel.getDefault();
+    private final SteeringGroups steering = new SteeringGroups(poses.capacity(), SteeringController.headingHold());
+    private final SteeringCommands commands = new SteeringCommands(poses.capacity());
+    private volatile SharedPoseStore poseStore;
     private final Robot robot;
-    private Target target;
+    private volatile Target target;
 
     private final long dt = 5;
     private Timer timer;
-    private Point2D.Double windowBounds = new Point2D.Double(300, 300);
+    /**
+     * Задача шага симуляции; {@code null}, пока симуляция спит.
+     */
+    private TimerTask tickTask;
+    private final AtomicLong stateVersion = new AtomicLong();
+    /**
+     * События, привязанные к шагам симуляции; колесо продвигается на каждом шаге.
+     */
+    private final TimingWheel events = new TimingWheel(0);
+    private volatile double timeScale = 1;
+    /**
+     * Дробная часть шагов, накопленная при масштабе времени, не кратном единице.
+     * Используется только в потоке таймера.
+     */
+    private double pendingSteps;
+    private volatile Point2D.Double windowBounds = new Point2D.Double(300, 300);
+
+    /**
+     * Наблюдатели хранятся по слабым ссылкам вместо вектора {@link Observable},
+     * чтобы закрытые окна не удерживались в памяти и не получали уведомлений.
+     */
+    private final WeakListenerRegistry<Observer> observers = new WeakListenerRegistry<>();
 
     public RobotsLogic() {
-        robot = new Robot();
+        robot = new Robot(poses, -1);
         target = new Target(50, 50);
         setTarget(target);
         moveRobot();
 
     }
 
-    public void startTimer() {
+    public synchronized void startTimer() {
+        if (timer != null) {
+            return;
+        }
         timer = new Timer("event generator", true);
-        addActionToTimer(new TimerTask() {
+        scheduleTick();
+    }
+
+    private void scheduleTick() {
+        tickTask = new TimerTask() {
             @Override
             public void run() {
-                moveRobot();
-
-                setChanged();
-                notifyObservers();
+                tick();
             }
-        }, dt);
+        };
+        addActionToTimer(tickTask, dt);
     }
 
-    public void moveRobot() {
-        if (robot.getPosition().distance(target.getPosition()) < TARGET_CLOSE_ENOUGH) {
+    /**
+     * Срабатывание таймера: пачка шагов симуляции по {@code dt} каждый, число
+     * которых задается масштабом времени. Наблюдатели уведомляются один раз
+     * на пачку. Когда робот добрался до цели, срабатывания прекращаются
+     * до следующего {@link #setTarget}, чтобы простаивающая симуляция
+     * не занимала процессор.
+     */
+    private void tick() {
+        double scale = timeScale;
+        long steps;
+        if (scale == MAX_TIME_SCALE) {
+            steps = Long.MAX_VALUE;
+        } else {
+            pendingSteps += scale;
+            steps = (long) pendingSteps;
+            pendingSteps -= steps;
+        }
+        if (steps == 0) {
             return;
         }
 
-        final double angleRobotTarget = RobotsMath.angleTo(robot.getPosition(), target.getPosition());
-
-        if (Math.abs(robot.getAngularVelocity()) < ANGULAR_VELOCITY ||
-                Math.abs(robot.getDirection() - angleRobotTarget) < EPSILON) {
-            robot.move(new Double(
-                    robot.getVelocity() * Math.cos(robot.getDirection()) * dt,
-                    robot.getVelocity() * Math.sin(robot.getDirection()) * dt
-            ));
+        // Пачка, не уложившаяся в период таймера, обрезается: отставание
+        // не копится, симуляция просто идет медленнее заказанного
+        long deadline = System.nanoTime() + (long) (TimeUnit.MILLISECONDS.toNanos(dt) * TICK_BUDGET);
+        for (long step = 0; step < steps && !isIdle(); step++) {
+            moveRobot();
+            advanceEvents();
+            if (step % BUDGET_CHECK_STEPS == BUDGET_CHECK_STEPS - 1 && System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        stateVersion.incrementAndGet();
+        SharedPoseStore store = poseStore;
+        if (store != null) {
+            store.publish(poses, events.currentTick());
+        }
 
-            return;
+        synchronized (this) {
+            // Цель или события могли появиться во время шага: тогда засыпать нельзя
+            if (isIdle() && tickTask != null) {
+                tickTask.cancel();
+                tickTask = null;
+            }
         }
 
-        final double newAngle = RobotsMath.asNormalizedRadians(
-                robot.getDirection() + robot.getAngularVelocity() * dt);
+        setChanged();
+        notifyObservers();
+    }
 
-        final double dx = robot.getVelocity() / robot.getAngularVelocity() *
-                (Math.sin(newAngle) - Math.sin(robot.getDirection()));
-        final double dy = robot.getVelocity() / robot.getAngularVelocity() *
-                (Math.cos(newAngle) - Math.cos(robot.getDirection()));
+    /**
+     * Выполняет события очередного шага. Сбой события не должен выйти
+     * из задачи таймера: {@link Timer} при этом навсегда останавливается,
+     * а с ним и симуляция. Ошибка попадает в журнал, шаги идут дальше.
+     */
+    private void advanceEvents() {
+        long step = events.currentTick() + 1;
+        while (true) {
+            try {
+                events.advance(step);
+                return;
+            } catch (RuntimeException e) {
+                // Колесо прерывается после пачки со сбоем: события, поставленные
+                // на этот же шаг из ее действий, дорабатываются повторным вызовом
+                Logger.error("Событие шага {} завершилось ошибкой: {}", step, e);
+            }
+        }
+    }
 
-        robot.move(new Point2D.Double(
-                dx * RobotsMath.speedFactor(robot.getPosition().getX(), windowBounds.getX()),
-                - dy * RobotsMath.speedFactor(robot.getPosition().getY(), windowBounds.getY())
-        ));
-        robot.setDirection(newAngle);
+    private boolean isTargetReached() {
+        int index = robot.getIndex();
+        return Point2D.distance(poses.getX(index), poses.getY(index),
+                poses.getTargetX(index), poses.getTargetY(index)) < TARGET_CLOSE_ENOUGH;
     }
 
-    public void addActionToTimer(TimerTask task, long timeout) {
-        timer.schedule(task, 0, timeout);
+    /**
+     * Симуляции нечего делать: робот у цели и событий не запланировано.
+     */
+    private boolean isIdle() {
+        return isTargetReached() && events.size() == 0;
     }
-    public void stopTimer() {
-        timer.cancel();
+
+    /**
+     * Ставит действие на указанный шаг симуляции. Действие выполняется
+     * в потоке симуляции сразу после этого шага; события одного шага
+     * выполняются в порядке постановки. Спящая симуляция просыпается.
+     */
+    public TimingWheel.Timeout scheduleAtStep(long step, Runnable action) {
+        TimingWheel.Timeout timeout = events.schedule(step, action);
+        wakeUp();
+        return timeout;
     }
-    public Robot getRobot() {
-        return robot;
+
+    /**
+     * Ставит действие через указанное количество шагов симуляции.
+     */
+    public TimingWheel.Timeout scheduleAfterSteps(long steps, Runnable action) {
+        TimingWheel.Timeout timeout = events.scheduleAfter(steps, action);
+        wakeUp();
+        return timeout;
     }
 
-    public Target getTarget() {
-        return target;
+    /**
+     * Количество выполненных шагов симуляции.
+     */
+    public long getStepCount() {
+        return events.currentTick();
     }
 
-    public void setTarget(Target target) {
-        this.target = target;
+    /**
+     * Включает публикацию положений роботов в общую память после каждой
+     * пачки шагов; {@code null} выключает ее. Текущие положения публикуются сразу.
+     */
+    public void setPoseStore(SharedPoseStore poseStore) {
+        if (poseStore != null && poseStore.getCapacity() < poses.size()) {
+            throw new IllegalArgumentException("pose store holds " + poseStore.getCapacity()
+                    + " robots, simulation has " + poses.size());
+        }
+        this.poseStore = poseStore;
+        if (poseStore != null) {
+            synchronized (this) {
+                if (tickTask == null) {
+                    // Спящая симуляция не публикует кадры сама
+                    poseStore.publish(poses, events.currentTick());
+                }
+            }
+        }
+    }
 
-        if (RobotsMath.angleTo(robot.getPosition(), target.getPosition()) > robot.getDirection()) {
-            robot.setAngularVelocity(-ANGULAR_VELOCITY);
-        } else {
-            robot.setAngularVelocity(ANGULAR_VELOCITY);
+    /**
+     * Возобновляет шаги симуляции, если она спала.
+     */
+    private synchronized void wakeUp() {
+        if (timer != null && tickTask == null) {
+            scheduleTick();
         }
     }
 
-    public void setWindowBounds(Point2D.Double windowBounds) {
-        this.windowBounds = windowBounds;
+    /**
+     * Задает масштаб времени: сколько шагов симуляции выполняется за реальное
+     * время одного шага. {@link #MAX_TIME_SCALE} - сколько успеется.
+     */
+    public void setTimeScale(double timeScale) {
+        if (!(timeScale > 0)) {
+            throw new IllegalArgumentException("time scale must be positive: " + timeScale);
+        }
+        this.timeScale = timeScale;
     }
 
-    private static class RobotsMath {
-        public static double angleTo(Point2D.Double p0, Point2D.Double p1) {
-            final double dx = p1.getX() - p0.getX();
-            final double dy = p1.getY() - p0.getY();
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Номер состояния модели: меняется при каждом шаге и смене цели.
+     * По нему представления понимают, что перерисовывать нечего.
+     */
+    public long getStateVersion() {
+        return stateVersion.get();
+    }
+
+    /**
+     * Один шаг кинематики для всех роботов.
+     */
+    public void moveRobot() {
+        Point2D.Double bounds = windowBounds;
+        steering.steer(poses, 0, poses.size(), dt, bounds.getX(), bounds.getY(), commands);
+        kernel.integrate(poses, commands, 0, poses.size(), dt);
+    }
+
+    /**
+     * Назначает закон управления всем роботам.
+     */
+    public void setSteeringController(SteeringController controller) {
+        steering.set(0, poses.capacity(), controller);
+        wakeUp();
+    }
+
+    public SteeringController getSteeringController() {
+        return steering.get(robot.getIndex());
+    }
 
-            return asNormalizedRadians(Math.atan2(dy, dx));
+    /**
+     * Подписывает наблюдателя. В отличие от {@link Observable#addObserver},
+     * модель хранит только слабую ссылку: наблюдателя должен удерживать кто-то
+     * еще, иначе после сборки мусора он молча перестанет получать уведомления.
+     * Лямбду или анонимный объект нужно сохранить в поле владельца, а
+     * отписываться через {@link #deleteObserver} при закрытии окна.
+     */
+    @Override
+    public void addObserver(Observer o) {
+        if (o == null) {
+            throw new NullPointerException();
         }
+        observers.add(o);
+    }
 
-        private static double asNormalizedRadians(double angle) {
-            final double TAU = 2 * Math.PI;
+    @Override
+    public void deleteObserver(Observer o) {
+        observers.remove(o);
+    }
 
-            if (angle < 0) {
-                return TAU - ((-angle) % TAU);
-            }
+    @Override
+    public void deleteObservers() {
+        observers.clear();
+    }
 
-            return angle % TAU;
+    @Override
+    public int countObservers() {
+        return observers.size();
+    }
+
+    @Override
+    public void notifyObservers(Object arg) {
+        if (!hasChanged()) {
+            return;
         }
+        clearChanged();
+        observers.forEach(observer -> observer.update(this, arg));
+    }
 
-        private static double speedFactor(double t, double upperBoundT) {
-            return Math.max(1 - 2 * Math.abs((upperBoundT - t) / upperBoundT - 0.5), 0.01);
+    public void addActionToTimer(TimerTask task, long timeout) {
+        timer.schedule(task, 0, timeout);
+    }
+    /**
+     * Останавливает таймер. Модель может пережить окно, которое ее показывало:
+     * после остановки {@link #wakeUp()} ничего не делает до следующего {@link #startTimer()}.
+     */
+    public synchronized void stopTimer() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
         }
+        tickTask = null;
+    }
+    public int getRobotCount() {
+        return poses.size();
+    }
+
+    public Robot getRobot() {
+        return robot;
+    }
+
+    public Target getTarget() {
+        return target;
+    }
+
+    public void setTarget(Target target) {
+        this.target = target;
+        poses.aimAt(robot.getIndex(), target.getPosition().getX(), target.getPosition().getY());
+        stateVersion.incrementAndGet();
+        wakeUp();
+    }
+
+    public void setWindowBounds(Point2D.Double windowBounds) {
+        this.windowBounds = windowBounds;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+package model;
+
+final class RobotsMath {
+    static final double TAU = 2 * Math.PI;
+
+    private RobotsMath() {
+    }
+
+    public static double angleTo(double x0, double y0, double x1, double y1) {
+        final double dx = x1 - x0;
+        final double dy = y1 - y0;
+
+        return asNormalizedRadians(Math.atan2(dy, dx));
+    }
+
+    public static double asNormalizedRadians(double angle) {
+        if (angle < 0) {
+            return TAU - ((-angle) % TAU);
+        }
+
+        return angle % TAU;
+    }
+
+    /**
+     * Угол поворота от {@code from} к {@code to} в диапазоне {@code [-pi, pi)}.
+     */
+    public static double angleDifference(double to, double from) {
+        final double difference = asNormalizedRadians(to - from);
+        return difference >= Math.PI ? difference - TAU : difference;
+    }
+
+    /**
+     * Ограничивает {@code value} отрезком {@code [-limit, limit]}.
+     */
+    public static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
+    public static double speedFactor(double t, double upperBoundT) {
+        return Math.max(1 - 2 * Math.abs((upperBoundT - t) / upperBoundT - 0.5), 0.01);
+    }
+}
@@ -0,0 +1,46 @@
+package model;
+
+/**
+ * Интегрирование по одному роботу за раз.
+ */
+final class ScalarKinematicsKernel extends KinematicsKernel {
+    @Override
+    public void integrate(RobotPoses poses, SteeringCommands commands, int from, int to, double dt) {
+        commands.checkRange(to);
+        for (int i = from; i < to; i++) {
+            integrate(poses, commands, i, dt);
+        }
+    }
+
+    static void integrate(RobotPoses poses, SteeringCommands commands, int i, double dt) {
+        final double speed = commands.speed[i];
+        if (speed == 0) {
+            return;
+        }
+
+        final double x = poses.x[i];
+        final double y = poses.y[i];
+        final double direction = poses.direction[i];
+        final double angularVelocity = commands.angularVelocity[i];
+
+        if (Math.abs(angularVelocity * dt) < MIN_TURN) {
+            poses.x[i] = x + speed * Math.cos(direction) * dt * commands.factorX[i];
+            poses.y[i] = y + speed * Math.sin(direction) * dt * commands.factorY[i];
+            return;
+        }
+
+        final double newAngle = RobotsMath.asNormalizedRadians(direction + angularVelocity * dt);
+
+        final double dx = speed / angularVelocity * (Math.sin(newAngle) - Math.sin(direction));
+        final double dy = speed / angularVelocity * (Math.cos(newAngle) - Math.cos(direction));
+
+        poses.x[i] = x + dx * commands.factorX[i];
+        poses.y[i] = y - dy * commands.factorY[i];
+        poses.direction[i] = newAngle;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,140 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static model.SharedPoseStore.LONGS;
+
+/**
+ * Читатель файла {@link SharedPoseStore}, в том числе из другого процесса.
+ * Кадр читается прямо из отображенной памяти:
+ * <pre>
+ * SharedPoseReader.Frame frame;
+ * do {
+ *     frame = reader.latest();
+ *     // чтение frame.getX(i), frame.getY(i), frame.getDirection(i)
+ * } while (!frame.isConsistent());
+ * </pre>
+ * Прочитанные значения можно использовать только после успешной проверки
+ * {@link Frame#isConsistent()}: иначе писатель мог перезаписать кадр.
+ */
+public final class SharedPoseReader implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long frameBytes;
+    private final DoubleBuffer[][] fields = new DoubleBuffer[2][];
+
+    public SharedPoseReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.capacity() < SharedPoseStore.HEADER_BYTES
+                    || buffer.getInt(0) != SharedPoseStore.MAGIC
+                    || buffer.getInt(4) != SharedPoseStore.VERSION) {
+                throw new IOException("not a pose store: " + file);
+            }
+            capacity = buffer.getInt(SharedPoseStore.CAPACITY_OFFSET);
+            frameBytes = buffer.getLong(SharedPoseStore.FRAME_BYTES_OFFSET);
+            if (capacity <= 0 || frameBytes != SharedPoseStore.frameBytes(capacity)
+                    || buffer.capacity() < SharedPoseStore.HEADER_BYTES + 2 * frameBytes) {
+                throw new IOException("corrupted pose store header: " + file);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        for (int frame = 0; frame < 2; frame++) {
+            fields[frame] = SharedPoseStore.fieldViews(buffer,
+                    SharedPoseStore.frameOffset(frame, frameBytes), capacity);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Возвращает последний опубликованный кадр или {@code null}, если кадров еще нет.
+     * Если писатель как раз переписывает этот кадр, ждет окончания записи.
+     */
+    public Frame latest() {
+        while (true) {
+            long published = (long) LONGS.getAcquire(buffer, SharedPoseStore.PUBLISHED_OFFSET);
+            if (published < 0) {
+                return null;
+            }
+            int frame = (int) (published & 1);
+            int offset = SharedPoseStore.frameOffset(frame, frameBytes);
+            long sequence = (long) LONGS.getAcquire(buffer, offset + SharedPoseStore.SEQUENCE_OFFSET);
+            if ((sequence & 1) == 0) {
+                int count = Math.min(buffer.getInt(offset + SharedPoseStore.COUNT_OFFSET), capacity);
+                return new Frame(offset, sequence, count, fields[frame]);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Кадр, прочитанный по месту. Все методы читают отображенную память напрямую.
+     */
+    public final class Frame {
+        private final int offset;
+        private final long sequence;
+        private final int count;
+        private final DoubleBuffer[] views;
+
+        private Frame(int offset, long sequence, int count, DoubleBuffer[] views) {
+            this.offset = offset;
+            this.sequence = sequence;
+            this.count = count;
+            this.views = views;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getStep() {
+            return buffer.getLong(offset + SharedPoseStore.STEP_OFFSET);
+        }
+
+        public long getTimestamp() {
+            return buffer.getLong(offset + SharedPoseStore.TIMESTAMP_OFFSET);
+        }
+
+        public double getX(int index) {
+            return views[0].get(index);
+        }
+
+        public double getY(int index) {
+            return views[1].get(index);
+        }
+
+        public double getDirection(int index) {
+            return views[2].get(index);
+        }
+
+        /**
+         * Проверяет, что кадр не переписывали, пока его читали.
+         */
+        public boolean isConsistent() {
+            // Чтения данных не должны переместиться за повторную проверку счетчика
+            VarHandle.loadLoadFence();
+            return (long) LONGS.getAcquire(buffer, offset + SharedPoseStore.SEQUENCE_OFFSET) == sequence;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Положения роботов в отображенном в память файле, которые могут читать
+ * другие процессы без копирования и системных вызовов на каждый кадр,
+ * см. {@link SharedPoseReader}.
+ * <p>
+ * Формат файла (порядок байтов little-endian):
+ * <pre>
+ * заголовок, 64 байта:
+ *   0  int   MAGIC
+ *   4  int   VERSION
+ *   8  int   емкость (роботов)
+ *   16 long  размер кадра в байтах
+ *   24 long  номер последнего опубликованного кадра (-1, если кадров нет)
+ * два кадра по очереди, каждый:
+ *   0  long  счетчик seqlock: нечетный, пока кадр пишется
+ *   8  long  шаг симуляции
+ *   16 long  время публикации, мс
+ *   24 int   количество роботов
+ *   64       double x[емкость], double y[емкость], double direction[емкость]
+ * </pre>
+ * Кадр с номером {@code n} пишется в буфер {@code n & 1}, поэтому запись
+ * нового кадра не трогает последний опубликованный: читатель, успевший
+ * взять его, почти всегда дочитывает без повторов, а если отстал на
+ * целый кадр, seqlock это обнаружит.
+ * <p>
+ * Писатель должен быть один: второй писатель сбросил бы номер кадра и перемешал
+ * счетчики seqlock, и читатель мог бы принять разорванный кадр за целый.
+ * Поэтому писатель берет исключительную блокировку файла, и второй получает отказ.
+ * Блокируется байт далеко за концом файла: на системах с обязательными
+ * блокировками (Windows) блокировка данных мешала бы читателям.
+ */
+public final class SharedPoseStore implements Closeable {
+    static final int MAGIC = 0x53504252;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int FRAME_HEADER_BYTES = 64;
+    static final int FIELDS = 3;
+
+    static final int CAPACITY_OFFSET = 8;
+    static final int FRAME_BYTES_OFFSET = 16;
+    static final int PUBLISHED_OFFSET = 24;
+
+    static final int SEQUENCE_OFFSET = 0;
+    static final int STEP_OFFSET = 8;
+    static final int TIMESTAMP_OFFSET = 16;
+    static final int COUNT_OFFSET = 24;
+
+    /**
+     * Позиция блокировки писателя, за пределами любого реального размера файла.
+     */
+    static final long WRITER_LOCK_POSITION = Long.MAX_VALUE - 1;
+
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long frameBytes;
+    private final DoubleBuffer[][] fields = new DoubleBuffer[2][];
+    private long published = -1;
+
+    /**
+     * Создает файл для {@code capacity} роботов или переиспользует существующий.
+     * Файл никогда не обрезается, а только растягивается до нужного размера:
+     * программа просмотра могла отобразить его целиком, и обращение
+     * к отрезанному хвосту отображения завершило бы ее сигналом SIGBUS.
+     *
+     * @throws IOException если файл уже открыт другим писателем
+     */
+    public SharedPoseStore(Path file, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.frameBytes = frameBytes(capacity);
+        long size = HEADER_BYTES + 2 * frameBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too many robots for one mapping: " + capacity);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            lock(channel, file);
+            if (channel.size() < size) {
+                // Запись последнего байта растягивает файл, не трогая начало
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int frame = 0; frame < 2; frame++) {
+            int offset = frameOffset(frame, frameBytes);
+            fields[frame] = fieldViews(buffer, offset, capacity);
+            // Прежний писатель мог упасть посреди кадра: счетчик seqlock
+            // должен стать четным, но не уменьшаться
+            long sequence = (long) LONGS.getOpaque(buffer, offset + SEQUENCE_OFFSET);
+            LONGS.setRelease(buffer, offset + SEQUENCE_OFFSET, sequence + (sequence & 1));
+        }
+        LONGS.setRelease(buffer, PUBLISHED_OFFSET, -1L);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putLong(FRAME_BYTES_OFFSET, frameBytes);
+    }
+
+    private static void lock(FileChannel channel, Path file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock(WRITER_LOCK_POSITION, 1, false);
+        } catch (OverlappingFileLockException e) {
+            // Файл уже открыт писателем в этой же JVM
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("pose file is in use by another writer: " + file);
+        }
+        // Блокировка снимается закрытием канала
+    }
+
+    static long frameBytes(int capacity) {
+        return FRAME_HEADER_BYTES + (long) FIELDS * capacity * Double.BYTES;
+    }
+
+    static int frameOffset(int frame, long frameBytes) {
+        return (int) (HEADER_BYTES + frame * frameBytes);
+    }
+
+    /**
+     * Представления массивов x, y и direction кадра, начинающегося с {@code frameOffset}.
+     */
+    static DoubleBuffer[] fieldViews(ByteBuffer buffer, int frameOffset, int capacity) {
+        DoubleBuffer[] views = new DoubleBuffer[FIELDS];
+        for (int field = 0; field < FIELDS; field++) {
+            int offset = frameOffset + FRAME_HEADER_BYTES + field * capacity * Double.BYTES;
+            views[field] = buffer.slice(offset, capacity * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+        }
+        return views;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Публикует положения роботов как новый кадр.
+     *
+     * @param step шаг симуляции, к которому относится кадр
+     */
+    public void publish(RobotPoses poses, long step) {
+        int count = Math.min(poses.size(), capacity);
+        long next = published + 1;
+        int frame = (int) (next & 1);
+        int offset = frameOffset(frame, frameBytes);
+
+        long sequence = (long) LONGS.getOpaque(buffer, offset + SEQUENCE_OFFSET);
+        LONGS.setOpaque(buffer, offset + SEQUENCE_OFFSET, sequence + 1);
+        // Данные кадра не должны попасть в память раньше нечетного счетчика
+        VarHandle.storeStoreFence();
+
+        buffer.putLong(offset + STEP_OFFSET, step);
+        buffer.putLong(offset + TIMESTAMP_OFFSET, System.currentTimeMillis());
+        buffer.putInt(offset + COUNT_OFFSET, count);
+        DoubleBuffer[] views = fields[frame];
+        views[0].put(0, poses.x, 0, count);
+        views[1].put(0, poses.y, 0, count);
+        views[2].put(0, poses.direction, 0, count);
+
+        LONGS.setRelease(buffer, offset + SEQUENCE_OFFSET, sequence + 2);
+        LONGS.setRelease(buffer, PUBLISHED_OFFSET, next);
+        published = next;
+    }
+
+    /**
+     * Закрывает файл. Отображение остается в памяти процесса, пока буфер
+     * не соберет сборщик мусора, поэтому кадр, который симуляция публикует
+     * в этот момент, допишется безопасно; новых кадров публиковать не следует.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
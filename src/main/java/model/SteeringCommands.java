@@ -0,0 +1,74 @@
+package model;
+
+/**
+ * Команды, которые {@link SteeringController} выдает роботам на текущий шаг,
+ * в виде параллельных массивов с теми же номерами, что и в {@link RobotPoses}:
+ * угловая скорость, линейная скорость и множители смещения по осям.
+ * Нулевая скорость оставляет робота на месте, нулевая угловая скорость -
+ * везет прямо.
+ */
+public final class SteeringCommands {
+    final double[] angularVelocity;
+    final double[] speed;
+    final double[] factorX;
+    final double[] factorY;
+
+    /**
+     * Создает буфер команд для {@code capacity} роботов.
+     */
+    public SteeringCommands(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        angularVelocity = new double[capacity];
+        speed = new double[capacity];
+        factorX = new double[capacity];
+        factorY = new double[capacity];
+    }
+
+    public int capacity() {
+        return speed.length;
+    }
+
+    /**
+     * Задает команду роботу {@code index}.
+     *
+     * @param factorX множитель смещения по горизонтали
+     * @param factorY множитель смещения по вертикали
+     */
+    public void set(int index, double angularVelocity, double speed, double factorX, double factorY) {
+        this.angularVelocity[index] = angularVelocity;
+        this.speed[index] = speed;
+        this.factorX[index] = factorX;
+        this.factorY[index] = factorY;
+    }
+
+    /**
+     * Оставляет робота {@code index} на месте.
+     */
+    public void stop(int index) {
+        set(index, 0, 0, 1, 1);
+    }
+
+    public double getAngularVelocity(int index) {
+        return angularVelocity[index];
+    }
+
+    public double getSpeed(int index) {
+        return speed[index];
+    }
+
+    public double getFactorX(int index) {
+        return factorX[index];
+    }
+
+    public double getFactorY(int index) {
+        return factorY[index];
+    }
+
+    void checkRange(int to) {
+        if (to > speed.length) {
+            throw new IllegalArgumentException("commands hold " + speed.length + " robots, requested " + to);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package model;
+
+/**
+ * Закон управления роботами: по состоянию из {@link RobotPoses} решает,
+ * с какой угловой и линейной скоростью каждый робот поедет на этом шаге,
+ * и записывает решение в {@link SteeringCommands}. Двигает роботов
+ * {@link KinematicsKernel}.
+ * <p>
+ * Контроллер вызывается один раз на пачку соседних роботов, которыми он
+ * управляет (см. {@link SteeringGroups}), поэтому его цикл по роботам
+ * работает с одним классом и хорошо оптимизируется JIT. Контроллер
+ * с внутренним состоянием по роботам хранит его по номерам из {@link RobotPoses}.
+ */
+public abstract class SteeringController {
+    /**
+     * Угловая скорость разворота к цели по умолчанию.
+     */
+    public static final double ANGULAR_VELOCITY = 0.001;
+    /**
+     * Расстояние до цели, на котором робот считается приехавшим.
+     */
+    public static final double TARGET_CLOSE_ENOUGH = 5;
+    static final double EPSILON = 0.05;
+
+    private static final class HeadingHoldHolder {
+        static final SteeringController INSTANCE = createHeadingHold();
+    }
+
+    /**
+     * Прежний закон управления: робот разворачивается по дуге с постоянной
+     * угловой скоростью, знак которой задан при выборе цели, и едет прямо,
+     * когда смотрит на цель с точностью {@link #EPSILON}. У краев поля
+     * дуга сжимается. Векторная реализация, если она доступна
+     * (см. {@link KinematicsKernel#getDefault()}).
+     */
+    public static SteeringController headingHold() {
+        return HeadingHoldHolder.INSTANCE;
+    }
+
+    /**
+     * Скалярная реализация {@link #headingHold()} - эталон для проверки векторной.
+     */
+    public static SteeringController scalarHeadingHold() {
+        return new HeadingHoldController();
+    }
+
+    /**
+     * Преследование цели (pure pursuit): робот едет по дуге, проходящей
+     * через цель, с кривизной {@code 2 sin(alpha) / L}, где {@code alpha} -
+     * угол между направлением робота и направлением на цель, а {@code L} -
+     * расстояние до нее.
+     *
+     * @param maxAngularVelocity ограничение угловой скорости
+     */
+    public static SteeringController purePursuit(double maxAngularVelocity) {
+        return new PurePursuitController(maxAngularVelocity);
+    }
+
+    /**
+     * ПИД-регулятор курса: угловая скорость пропорциональна отклонению
+     * от направления на цель, его интегралу и производной.
+     *
+     * @param maxAngularVelocity ограничение угловой скорости
+     */
+    public static SteeringController pid(double kp, double ki, double kd, double maxAngularVelocity) {
+        return new PidHeadingController(kp, ki, kd, maxAngularVelocity);
+    }
+
+    private static SteeringController createHeadingHold() {
+        if (KinematicsKernel.isVectorEnabled()) {
+            try {
+                return new VectorHeadingHoldController();
+            } catch (LinkageError e) {
+                // Модуль объявлен, но классы не загрузились - считаем скалярно
+            }
+        }
+        return new HeadingHoldController();
+    }
+
+    /**
+     * Записывает в {@code commands} команды для роботов {@code [from, to)}
+     * на шаг длительностью {@code dt}.
+     *
+     * @param boundsX ширина поля
+     * @param boundsY высота поля
+     */
+    public abstract void steer(RobotPoses poses, int from, int to, double dt, double boundsX, double boundsY,
+                               SteeringCommands commands);
+
+    /**
+     * Название закона управления для журнала.
+     */
+    public abstract String getName();
+
+    /**
+     * Проверяет, что робот {@code i} доехал до своей цели.
+     */
+    static boolean hasArrived(RobotPoses poses, int i) {
+        final double dx = poses.targetX[i] - poses.x[i];
+        final double dy = poses.targetY[i] - poses.y[i];
+        return Math.sqrt(dx * dx + dy * dy) < TARGET_CLOSE_ENOUGH;
+    }
+}
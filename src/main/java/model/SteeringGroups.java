@@ -0,0 +1,74 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Распределение роботов между законами управления. Каждому роботу
+ * назначен {@link SteeringController}; на шаге подряд идущие роботы
+ * с одним контроллером передаются ему одним вызовом. Чтобы вызовов
+ * было мало, роботов с одинаковым контроллером стоит держать рядом.
+ */
+public final class SteeringGroups {
+    private SteeringController[] controllers;
+    private final SteeringController defaultController;
+
+    /**
+     * @param capacity число роботов
+     * @param defaultController контроллер для роботов, которым не назначен другой
+     */
+    public SteeringGroups(int capacity, SteeringController defaultController) {
+        if (defaultController == null) {
+            throw new NullPointerException("defaultController");
+        }
+        this.defaultController = defaultController;
+        this.controllers = new SteeringController[capacity];
+        Arrays.fill(controllers, defaultController);
+    }
+
+    /**
+     * Назначает контроллер роботам {@code [from, to)}.
+     */
+    public synchronized void set(int from, int to, SteeringController controller) {
+        if (controller == null) {
+            throw new NullPointerException("controller");
+        }
+        ensureCapacity(to);
+        Arrays.fill(controllers, from, to, controller);
+    }
+
+    public synchronized SteeringController get(int index) {
+        return index < controllers.length ? controllers[index] : defaultController;
+    }
+
+    /**
+     * Записывает в {@code commands} команды для роботов {@code [from, to)},
+     * вызывая контроллер один раз на каждую группу подряд идущих роботов.
+     */
+    public void steer(RobotPoses poses, int from, int to, double dt, double boundsX, double boundsY,
+                      SteeringCommands commands) {
+        SteeringController[] snapshot;
+        synchronized (this) {
+            ensureCapacity(to);
+            snapshot = controllers;
+        }
+        int start = from;
+        while (start < to) {
+            SteeringController controller = snapshot[start];
+            int end = start + 1;
+            while (end < to && snapshot[end] == controller) {
+                end++;
+            }
+            controller.steer(poses, start, end, dt, boundsX, boundsY, commands);
+            start = end;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= controllers.length) {
+            return;
+        }
+        int oldLength = controllers.length;
+        controllers = Arrays.copyOf(controllers, Math.max(required, oldLength * 2));
+        Arrays.fill(controllers, oldLength, controllers.length, defaultController);
+    }
+}
@@ -0,0 +1,338 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Иерархическое колесо таймеров, привязанное к шагам симуляции.
+ * <p>
+ * Колесо состоит из {@link #LEVELS} уровней по {@link #SLOTS} ячеек:
+ * ячейка уровня {@code L} охватывает {@code SLOTS^L} шагов. Событие кладется
+ * в ячейку самого младшего уровня, который до него дотягивается, а когда
+ * время подходит, переносится на уровень ниже. Ячейки - двусвязные списки,
+ * поэтому постановка и отмена стоят O(1) независимо от числа событий.
+ * Более далекие события лежат в отдельном списке до оборота старшего уровня.
+ * <p>
+ * События, срабатывающие на одном шаге, выполняются пачкой в порядке
+ * (шаг срабатывания, порядок постановки), так что прогон симуляции
+ * воспроизводим. Действия выполняются вне блокировки колеса и могут ставить
+ * и отменять события; событие, поставленное на уже прошедший шаг,
+ * сработает на следующем.
+ */
+public final class TimingWheel {
+    private static final int SLOT_BITS = 8;
+    static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    static final int LEVELS = 6;
+    /**
+     * Сколько шагов вперед охватывают уровни колеса.
+     */
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private static final Comparator<Timeout> FIRING_ORDER = Comparator.comparingLong(timeout -> timeout.sequence);
+
+    /**
+     * Уровень с единственной ячейкой для событий дальше {@link #SPAN} шагов.
+     */
+    private static final int OVERFLOW = LEVELS;
+
+    private final Timeout[][] heads = new Timeout[LEVELS + 1][];
+    private final Timeout[][] tails = new Timeout[LEVELS + 1][];
+    private final int[] levelSizes = new int[LEVELS + 1];
+    private long tick;
+    private long nextSequence;
+    private int size;
+
+    /**
+     * Создает колесо, в котором уже прошел шаг {@code currentTick}.
+     */
+    public TimingWheel(long currentTick) {
+        this.tick = currentTick;
+        for (int level = 0; level <= LEVELS; level++) {
+            int slots = level < OVERFLOW ? SLOTS : 1;
+            heads[level] = new Timeout[slots];
+            tails[level] = new Timeout[slots];
+        }
+    }
+
+    /**
+     * Последний обработанный шаг.
+     */
+    public synchronized long currentTick() {
+        return tick;
+    }
+
+    /**
+     * Количество ожидающих событий.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Ставит действие на шаг {@code deadlineTick}.
+     */
+    public synchronized Timeout schedule(long deadlineTick, Runnable action) {
+        if (action == null) {
+            throw new NullPointerException("action");
+        }
+        Timeout timeout = new Timeout(this, Math.max(deadlineTick, tick + 1), nextSequence++, action);
+        place(timeout, tick + 1);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Ставит действие через {@code delayTicks} шагов после текущего.
+     */
+    public synchronized Timeout scheduleAfter(long delayTicks, Runnable action) {
+        return schedule(tick + Math.max(delayTicks, 1), action);
+    }
+
+    /**
+     * Доводит колесо до шага {@code toTick}, выполняя все наступившие события.
+     * Пустые отрезки проматываются целиком, не перебирая шаги по одному.
+     *
+     * @return количество выполненных действий
+     */
+    public int advance(long toTick) {
+        int fired = 0;
+        while (true) {
+            List<Timeout> batch;
+            synchronized (this) {
+                batch = collectNext(toTick);
+            }
+            if (batch == null) {
+                return fired;
+            }
+            fired += fire(batch);
+        }
+    }
+
+    /**
+     * Продвигается до ближайшего шага с событиями, но не дальше {@code toTick},
+     * и снимает с колеса события этого шага.
+     *
+     * @return события в порядке срабатывания или {@code null}, если до {@code toTick} их нет
+     */
+    private List<Timeout> collectNext(long toTick) {
+        while (tick < toTick) {
+            if (size == 0) {
+                tick = toTick;
+                return null;
+            }
+            long next = tick + 1;
+            if (levelSizes[0] == 0) {
+                // До границы ячеек самого младшего непустого уровня ничего
+                // не сработает и не спустится вниз: проматываем
+                int level = 1;
+                while (level < LEVELS && levelSizes[level] == 0) {
+                    level++;
+                }
+                long unit = level < LEVELS ? 1L << (SLOT_BITS * level) : SPAN;
+                if ((next & (unit - 1)) != 0) {
+                    tick = Math.min(toTick, next | (unit - 1));
+                    continue;
+                }
+            }
+            tick = next;
+            if ((next & SLOT_MASK) == 0) {
+                cascade(next);
+            }
+            Timeout head = heads[0][(int) (next & SLOT_MASK)];
+            if (head != null) {
+                return detachExpired(head);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Переносит на нижние уровни события, чья очередь подошла к шагу {@code now}.
+     * Старшие уровни разбираются первыми: их события могут попасть
+     * в ячейку младшего уровня, которая разбирается следом.
+     */
+    private void cascade(long now) {
+        if ((now & (SPAN - 1)) == 0) {
+            replace(OVERFLOW, 0, now);
+        }
+        int top = 1;
+        while (top < LEVELS - 1 && (now & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        for (int level = top; level >= 1; level--) {
+            replace(level, (int) ((now >>> (SLOT_BITS * level)) & SLOT_MASK), now);
+        }
+    }
+
+    /**
+     * Снимает все события ячейки и раскладывает их заново относительно шага {@code now}.
+     */
+    private void replace(int level, int slot, long now) {
+        Timeout timeout = heads[level][slot];
+        heads[level][slot] = null;
+        tails[level][slot] = null;
+        while (timeout != null) {
+            Timeout following = timeout.next;
+            levelSizes[level]--;
+            place(timeout, now);
+            timeout = following;
+        }
+    }
+
+    private List<Timeout> detachExpired(Timeout head) {
+        List<Timeout> expired = new ArrayList<>();
+        int slot = (int) (tick & SLOT_MASK);
+        heads[0][slot] = null;
+        tails[0][slot] = null;
+        boolean ordered = true;
+        long lastSequence = Long.MIN_VALUE;
+        for (Timeout timeout = head; timeout != null; ) {
+            Timeout following = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.level = Timeout.EXPIRING;
+            ordered &= timeout.sequence > lastSequence;
+            lastSequence = timeout.sequence;
+            expired.add(timeout);
+            timeout = following;
+        }
+        levelSizes[0] -= expired.size();
+        size -= expired.size();
+        if (!ordered) {
+            // События, спустившиеся со старших уровней, дописываются в конец ячейки
+            expired.sort(FIRING_ORDER);
+        }
+        return expired;
+    }
+
+    private int fire(List<Timeout> batch) {
+        int fired = 0;
+        RuntimeException failure = null;
+        for (Timeout timeout : batch) {
+            Runnable action = claim(timeout);
+            if (action == null) {
+                continue;
+            }
+            fired++;
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                // Остальные события шага все равно должны сработать
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return fired;
+    }
+
+    private synchronized Runnable claim(Timeout timeout) {
+        Runnable action = timeout.action;
+        timeout.action = null;
+        return action;
+    }
+
+    /**
+     * Кладет событие в конец ячейки самого младшего уровня, который до него
+     * дотягивается, считая от шага {@code base} - ближайшего необработанного.
+     */
+    private void place(Timeout timeout, long base) {
+        long delta = timeout.deadline - base;
+        int level = 0;
+        while (level < OVERFLOW && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = level < OVERFLOW ? (int) ((timeout.deadline >>> (SLOT_BITS * level)) & SLOT_MASK) : 0;
+        Timeout tail = tails[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = tail;
+        timeout.next = null;
+        if (tail != null) {
+            tail.next = timeout;
+        } else {
+            heads[level][slot] = timeout;
+        }
+        tails[level][slot] = timeout;
+        levelSizes[level]++;
+    }
+
+    private synchronized boolean cancel(Timeout timeout) {
+        if (timeout.action == null) {
+            return false;
+        }
+        timeout.action = null;
+        if (timeout.level != Timeout.EXPIRING) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                heads[timeout.level][timeout.slot] = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tails[timeout.level][timeout.slot] = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            levelSizes[timeout.level]--;
+            size--;
+        }
+        return true;
+    }
+
+    /**
+     * Событие, поставленное в колесо.
+     */
+    public static final class Timeout {
+        private static final int EXPIRING = -1;
+
+        private final TimingWheel wheel;
+        private final long deadline;
+        private final long sequence;
+        private Runnable action;
+        private int level;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, long deadline, long sequence, Runnable action) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        /**
+         * Шаг, на котором событие сработает.
+         */
+        public long deadline() {
+            return deadline;
+        }
+
+        /**
+         * Проверяет, что событие еще не сработало и не отменено.
+         */
+        public boolean isPending() {
+            synchronized (wheel) {
+                return action != null;
+            }
+        }
+
+        /**
+         * Отменяет событие.
+         *
+         * @return {@code false}, если событие уже сработало или было отменено
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+}
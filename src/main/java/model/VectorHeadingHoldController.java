@@ -0,0 +1,67 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SteeringController#headingHold()} на Vector API. Результат совпадает
+ * со скалярным с точностью до погрешности векторного atan2.
+ * <p>
+ * Класс загружается только при доступном модуле {@code jdk.incubator.vector}.
+ */
+final class VectorHeadingHoldController extends SteeringController {
+    private static final VectorSpecies<Double> SPECIES = VectorKinematicsKernel.SPECIES;
+
+    @Override
+    public void steer(RobotPoses poses, int from, int to, double dt, double boundsX, double boundsY,
+                      SteeringCommands commands) {
+        commands.checkRange(to);
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, poses.x, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, poses.y, i);
+            DoubleVector targetDx = DoubleVector.fromArray(SPECIES, poses.targetX, i).sub(x);
+            DoubleVector targetDy = DoubleVector.fromArray(SPECIES, poses.targetY, i).sub(y);
+            VectorMask<Double> moving = targetDx.mul(targetDx).add(targetDy.mul(targetDy)).sqrt()
+                    .compare(VectorOperators.GE, TARGET_CLOSE_ENOUGH);
+            DoubleVector zero = DoubleVector.zero(SPECIES);
+            DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+            if (!moving.anyTrue()) {
+                zero.intoArray(commands.angularVelocity, i);
+                zero.intoArray(commands.speed, i);
+                one.intoArray(commands.factorX, i);
+                one.intoArray(commands.factorY, i);
+                continue;
+            }
+
+            DoubleVector direction = DoubleVector.fromArray(SPECIES, poses.direction, i);
+            DoubleVector angularVelocity = DoubleVector.fromArray(SPECIES, poses.angularVelocity, i);
+            DoubleVector velocity = DoubleVector.fromArray(SPECIES, poses.velocity, i);
+            DoubleVector angleRobotTarget = VectorKinematicsKernel.normalize(
+                    targetDy.lanewise(VectorOperators.ATAN2, targetDx));
+
+            VectorMask<Double> straight = angularVelocity.abs().compare(VectorOperators.LT, ANGULAR_VELOCITY)
+                    .or(direction.sub(angleRobotTarget).abs().compare(VectorOperators.LT, EPSILON));
+            VectorMask<Double> turning = moving.andNot(straight);
+
+            zero.blend(angularVelocity, turning).intoArray(commands.angularVelocity, i);
+            zero.blend(velocity, moving).intoArray(commands.speed, i);
+            one.blend(speedFactor(x, boundsX), turning).intoArray(commands.factorX, i);
+            one.blend(speedFactor(y, boundsY), turning).intoArray(commands.factorY, i);
+        }
+        for (; i < to; i++) {
+            HeadingHoldController.steer(poses, i, boundsX, boundsY, commands);
+        }
+    }
+
+    private static DoubleVector speedFactor(DoubleVector t, double upperBoundT) {
+        return t.neg().add(upperBoundT).div(upperBoundT).sub(0.5).abs().mul(-2).add(1).max(0.01);
+    }
+
+    @Override
+    public String getName() {
+        return "heading hold, vector " + SPECIES.length() + "x" + Double.SIZE;
+    }
+}
@@ -0,0 +1,80 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Интегрирование на Vector API: роботы обрабатываются по {@code SPECIES.length()}
+ * за раз, выбор между прямой и дугой делается маской, а не ветвлением.
+ * Остаток, не кратный длине вектора, считается скалярно. Результат совпадает
+ * со скалярным с точностью до погрешности векторных sin и cos.
+ * <p>
+ * Класс загружается только при доступном модуле {@code jdk.incubator.vector},
+ * см. {@link KinematicsKernel#getDefault()}.
+ */
+final class VectorKinematicsKernel extends KinematicsKernel {
+    static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void integrate(RobotPoses poses, SteeringCommands commands, int from, int to, double dt) {
+        commands.checkRange(to);
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector speed = DoubleVector.fromArray(SPECIES, commands.speed, i);
+            VectorMask<Double> moving = speed.compare(VectorOperators.NE, 0);
+            if (!moving.anyTrue()) {
+                continue;
+            }
+
+            DoubleVector x = DoubleVector.fromArray(SPECIES, poses.x, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, poses.y, i);
+            DoubleVector direction = DoubleVector.fromArray(SPECIES, poses.direction, i);
+            DoubleVector angularVelocity = DoubleVector.fromArray(SPECIES, commands.angularVelocity, i);
+            DoubleVector factorX = DoubleVector.fromArray(SPECIES, commands.factorX, i);
+            DoubleVector factorY = DoubleVector.fromArray(SPECIES, commands.factorY, i);
+
+            VectorMask<Double> straight = angularVelocity.mul(dt).abs().compare(VectorOperators.LT, MIN_TURN);
+
+            DoubleVector sinDirection = direction.lanewise(VectorOperators.SIN);
+            DoubleVector cosDirection = direction.lanewise(VectorOperators.COS);
+            DoubleVector straightX = x.add(speed.mul(cosDirection).mul(dt).mul(factorX));
+            DoubleVector straightY = y.add(speed.mul(sinDirection).mul(dt).mul(factorY));
+
+            DoubleVector newAngle = normalize(direction.add(angularVelocity.mul(dt)));
+            DoubleVector radius = speed.div(angularVelocity);
+            DoubleVector dx = radius.mul(newAngle.lanewise(VectorOperators.SIN).sub(sinDirection));
+            DoubleVector dy = radius.mul(newAngle.lanewise(VectorOperators.COS).sub(cosDirection));
+            DoubleVector arcX = x.add(dx.mul(factorX));
+            DoubleVector arcY = y.sub(dy.mul(factorY));
+
+            x.blend(arcX.blend(straightX, straight), moving).intoArray(poses.x, i);
+            y.blend(arcY.blend(straightY, straight), moving).intoArray(poses.y, i);
+            direction.blend(newAngle.blend(direction, straight), moving).intoArray(poses.direction, i);
+        }
+        for (; i < to; i++) {
+            ScalarKinematicsKernel.integrate(poses, commands, i, dt);
+        }
+    }
+
+    /**
+     * Векторный {@link RobotsMath#asNormalizedRadians}: остаток от деления
+     * модуля угла на 2*pi, для отрицательных углов - дополнение до 2*pi.
+     */
+    static DoubleVector normalize(DoubleVector angle) {
+        DoubleVector magnitude = angle.abs();
+        DoubleVector turns = (DoubleVector) magnitude.div(RobotsMath.TAU)
+                .convert(VectorOperators.D2L, 0)
+                .convert(VectorOperators.L2D, 0);
+        DoubleVector remainder = magnitude.sub(turns.mul(RobotsMath.TAU));
+        // Деление могло округлиться вверх до целого числа оборотов
+        remainder = remainder.add(RobotsMath.TAU, remainder.compare(VectorOperators.LT, 0));
+        return remainder.blend(remainder.neg().add(RobotsMath.TAU), angle.compare(VectorOperators.LT, 0));
+    }
+
+    @Override
+    public String getName() {
+        return "vector " + SPECIES.length() + "x" + Double.SIZE;
+    }
+}
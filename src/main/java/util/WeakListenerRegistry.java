@@ -0,0 +1,137 @@
+package util;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Реестр слушателей, который не удерживает их в памяти. Слушатели хранятся
+ * по слабым ссылкам в массиве, копируемом при каждом изменении, поэтому
+ * рассылка идет без блокировок по неизменяемому снимку. Ссылки на собранные
+ * сборщиком мусора слушатели вычищаются прямо во время рассылки.
+ * <p>
+ * Слушателя должен удерживать кто-то еще: анонимный объект или лямбда,
+ * на которые больше никто не ссылается, перестанут получать уведомления.
+ * Закрываемым окнам все равно стоит отписываться явно, не дожидаясь сборки мусора.
+ *
+ * @param <L> тип слушателя
+ */
+public final class WeakListenerRegistry<L> {
+    @SuppressWarnings("rawtypes")
+    private static final WeakReference[] EMPTY = new WeakReference[0];
+
+    @SuppressWarnings("unchecked")
+    private volatile WeakReference<L>[] listeners = EMPTY;
+
+    /**
+     * Добавляет слушателя, если его еще нет в реестре.
+     */
+    public synchronized void add(L listener) {
+        WeakReference<L>[] current = listeners;
+        int live = 0;
+        for (WeakReference<L> reference : current) {
+            L existing = reference.get();
+            if (existing == listener) {
+                return;
+            }
+            if (existing != null) {
+                live++;
+            }
+        }
+        // Копия может оказаться короче live: сборщик успел забрать кого-то еще
+        WeakReference<L>[] copied = copyLive(current, null, live);
+        WeakReference<L>[] updated = Arrays.copyOf(copied, copied.length + 1);
+        updated[copied.length] = new WeakReference<>(listener);
+        listeners = updated;
+    }
+
+    /**
+     * Удаляет слушателя.
+     */
+    public synchronized void remove(L listener) {
+        WeakReference<L>[] current = listeners;
+        int live = 0;
+        boolean found = false;
+        for (WeakReference<L> reference : current) {
+            L existing = reference.get();
+            if (existing == listener) {
+                found = true;
+            } else if (existing != null) {
+                live++;
+            }
+        }
+        if (found || live < current.length) {
+            listeners = copyLive(current, listener, live);
+        }
+    }
+
+    /**
+     * Удаляет всех слушателей.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void clear() {
+        listeners = EMPTY;
+    }
+
+    /**
+     * Возвращает количество еще живых слушателей.
+     */
+    public int size() {
+        int live = 0;
+        for (WeakReference<L> reference : listeners) {
+            if (reference.get() != null) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Уведомляет всех живых слушателей. Если по дороге встретились
+     * собранные слушатели, после рассылки они удаляются из реестра.
+     */
+    public void forEach(Consumer<? super L> action) {
+        boolean hasDead = false;
+        for (WeakReference<L> reference : listeners) {
+            L listener = reference.get();
+            if (listener == null) {
+                hasDead = true;
+            } else {
+                action.accept(listener);
+            }
+        }
+        if (hasDead) {
+            purge();
+        }
+    }
+
+    private synchronized void purge() {
+        WeakReference<L>[] current = listeners;
+        int live = 0;
+        for (WeakReference<L> reference : current) {
+            if (reference.get() != null) {
+                live++;
+            }
+        }
+        if (live < current.length) {
+            listeners = copyLive(current, null, live);
+        }
+    }
+
+    /**
+     * Копирует живые ссылки (кроме {@code excluded}) в новый массив указанной длины.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private WeakReference<L>[] copyLive(WeakReference<L>[] current, L excluded, int length) {
+        WeakReference<L>[] updated = new WeakReference[length];
+        int index = 0;
+        for (WeakReference<L> reference : current) {
+            L existing = reference.get();
+            if (existing != null && existing != excluded && index < length) {
+                updated[index++] = reference;
+            }
+        }
+        // Пока шло копирование, сборщик мог успеть забрать еще кого-то
+        return index == length ? updated : Arrays.copyOf(updated, index);
+    }
+}
@@ -0,0 +1,69 @@
+package State;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LayoutStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenedStoreRestoresSavedLayouts() throws InterruptedException {
+        Path file = directory.resolve("nested").resolve("layout");
+        LayoutStore store = new LayoutStore(file);
+        store.put("log", new WindowLayout(10, 20, 300, 400, false));
+        store.put("game window", new WindowLayout(new Rectangle(-5, 0, 800, 600), true));
+        store.saveInBackground().join();
+
+        LayoutStore reopened = new LayoutStore(file);
+        assertEquals(new Rectangle(10, 20, 300, 400), reopened.get("log").getBounds());
+        assertFalse(reopened.get("log").isIconified());
+        // Ключ с пробелами читается целиком
+        assertEquals(new Rectangle(-5, 0, 800, 600), reopened.get("game window").getBounds());
+        assertTrue(reopened.get("game window").isIconified());
+        assertNull(reopened.get("missing"));
+    }
+
+    @Test
+    void laterSaveWins() throws InterruptedException {
+        Path file = directory.resolve("layout");
+        LayoutStore store = new LayoutStore(file);
+        store.put("log", new WindowLayout(1, 1, 100, 100, false));
+        store.saveInBackground();
+        store.put("log", new WindowLayout(2, 2, 200, 200, false));
+        store.saveInBackground().join();
+
+        assertEquals(new Rectangle(2, 2, 200, 200), new LayoutStore(file).get("log").getBounds());
+    }
+
+    @Test
+    void skipsDamagedLinesAndKeepsTheRest() throws IOException {
+        Path file = directory.resolve("layout");
+        Files.write(file, List.of(
+                "# robots window layout v1",
+                "1 2 3",
+                "x 2 3 4 0 broken",
+                "5 6 70 80 0 log"), StandardCharsets.UTF_8);
+
+        LayoutStore store = new LayoutStore(file);
+        assertEquals(new Rectangle(5, 6, 70, 80), store.get("log").getBounds());
+        assertNull(store.get("broken"));
+    }
+
+    @Test
+    void missingFileMeansEmptyLayout() {
+        assertNull(new LayoutStore(directory.resolve("absent")).get("log"));
+    }
+}
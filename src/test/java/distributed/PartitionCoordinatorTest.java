@@ -0,0 +1,121 @@
+package distributed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import model.KinematicsKernel;
+import model.RobotPoses;
+import model.SteeringCommands;
+import model.SteeringController;
+
+/**
+ * Запускает участки отдельными JVM на loopback и сверяет результат
+ * с расчетом всех роботов в одном процессе.
+ */
+class PartitionCoordinatorTest {
+    private static final double WORLD = 1_000;
+    private static final double DT = 5;
+    private static final int ROBOTS = 2_000;
+    private static final int TICKS = 300;
+
+    @Test
+    void singleWorkerMatchesLocalRun() throws IOException {
+        assertMatchesLocalRun(1);
+    }
+
+    @Test
+    void severalWorkersMatchLocalRunAndMigrateRobots() throws IOException {
+        assertMatchesLocalRun(3);
+    }
+
+    @Test
+    void stalledWorkerFailsStepNamingThePartition() throws IOException {
+        try (PartitionCoordinator coordinator = new PartitionCoordinator(1, WORLD, WORLD, DT);
+                Socket stalled = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort())) {
+            // Участок здоровается и больше ничего не отвечает
+            DataOutputStream out = new DataOutputStream(stalled.getOutputStream());
+            out.writeInt(PartitionProtocol.NO_PEER);
+            out.flush();
+            coordinator.awaitWorkers(Duration.ofSeconds(10));
+            coordinator.setReplyTimeout(Duration.ofMillis(200));
+            coordinator.addRobot(1, 1, 0, 0.1, 2, 2);
+            coordinator.start();
+
+            IOException failure = assertThrows(IOException.class, () -> coordinator.step(1));
+            assertTrue(failure.getMessage().contains("partition 0"), failure.getMessage());
+            assertThrows(IllegalStateException.class, () -> coordinator.step(1));
+        }
+    }
+
+    private static void assertMatchesLocalRun(int partitions) throws IOException {
+        RobotPoses expected = new RobotPoses(ROBOTS);
+        RobotPoses distributed;
+        try (PartitionCoordinator coordinator = new PartitionCoordinator(partitions, WORLD, WORLD, DT)) {
+            coordinator.spawnLocalWorkers();
+            coordinator.awaitWorkers(Duration.ofMinutes(1));
+            Random random = new Random(5);
+            for (int i = 0; i < ROBOTS; i++) {
+                double x = random.nextDouble() * WORLD;
+                double y = random.nextDouble() * WORLD;
+                double direction = random.nextDouble() * 2 * Math.PI;
+                double targetX = random.nextDouble() * WORLD;
+                double targetY = random.nextDouble() * WORLD;
+                assertEquals(i, coordinator.addRobot(x, y, direction, 0.1, targetX, targetY));
+                expected.add(x, y, direction, 0.1);
+                expected.aimAt(i, targetX, targetY);
+            }
+            coordinator.start();
+            coordinator.step(TICKS / 2);
+            coordinator.step(TICKS - TICKS / 2);
+            assertEquals(TICKS, coordinator.getStep());
+            assertEquals(ROBOTS, coordinator.getRobotCount());
+            distributed = coordinator.snapshot();
+            // За шаг робот сдвигается много меньше ширины полосы, поэтому
+            // все переходы идут напрямую к соседу
+            assertEquals(0, coordinator.getRelayedMigrations());
+            if (partitions > 1) {
+                assertTrue(coordinator.getDirectMigrations() > 0, "no robot was handed to a neighbour");
+            }
+        }
+
+        RobotPoses initial = copy(expected);
+        SteeringCommands commands = new SteeringCommands(ROBOTS);
+        for (int tick = 0; tick < TICKS; tick++) {
+            KinematicsKernel.scalar().step(expected, commands, SteeringController.scalarHeadingHold(),
+                    0, ROBOTS, DT, WORLD, WORLD);
+        }
+
+        int migrated = 0;
+        for (int i = 0; i < ROBOTS; i++) {
+            assertEquals(expected.getX(i), distributed.getX(i), "x of robot " + i);
+            assertEquals(expected.getY(i), distributed.getY(i), "y of robot " + i);
+            assertEquals(expected.getDirection(i), distributed.getDirection(i), "direction of robot " + i);
+            if (PartitionProtocol.partitionOf(initial.getX(i), WORLD, partitions)
+                    != PartitionProtocol.partitionOf(expected.getX(i), WORLD, partitions)) {
+                migrated++;
+            }
+        }
+        if (partitions > 1) {
+            assertTrue(migrated > 0, "no robot crossed a partition border");
+        }
+    }
+
+    private static RobotPoses copy(RobotPoses source) {
+        RobotPoses copy = new RobotPoses(source.capacity());
+        for (int i = 0; i < source.size(); i++) {
+            copy.add(source.getX(i), source.getY(i), source.getDirection(i), source.getAngularVelocity(i),
+                    source.getVelocity(i), source.getTargetX(i), source.getTargetY(i));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,92 @@
+package gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.jupiter.api.Test;
+
+import log.LogIndex;
+import log.LogLevel;
+import log.LogWindowSource;
+
+class FilteredLogListModelTest {
+    @Test
+    void refreshAppendsOnlyNewMatches() {
+        LogWindowSource source = new LogWindowSource(100);
+        LogIndex index = source.enableIndex(1000);
+        for (int i = 0; i < 10; i++) {
+            source.append(i % 2 == 0 ? LogLevel.Error : LogLevel.Info, "message " + i);
+        }
+        FilteredLogListModel model = new FilteredLogListModel(source, index);
+        model.setFilter(EnumSet.of(LogLevel.Error), "");
+        assertEquals(5, model.getSize());
+        assertEquals("message 8", model.getElementAt(4).getMessage());
+
+        List<String> events = new ArrayList<>();
+        model.addListDataListener(new RecordingListener(events));
+        for (int i = 10; i < 14; i++) {
+            source.append(i % 2 == 0 ? LogLevel.Error : LogLevel.Info, "message " + i);
+        }
+        model.refresh();
+        assertEquals(List.of("added 5-6"), events);
+        assertEquals("message 12", model.getElementAt(6).getMessage());
+
+        events.clear();
+        model.refresh();
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void dropsRowsTheSourceCanNoLongerServe() {
+        // Без хранилища индекс ограничен памятью источника
+        LogWindowSource source = new LogWindowSource(64);
+        LogIndex index = source.enableIndex(1 << 20);
+        FilteredLogListModel model = new FilteredLogListModel(source, index);
+        model.setFilter(EnumSet.allOf(LogLevel.class), "message");
+        List<String> events = new ArrayList<>();
+        model.addListDataListener(new RecordingListener(events));
+        for (int i = 0; i < 1000; i++) {
+            source.append(LogLevel.Info, "message " + i);
+        }
+        model.refresh();
+        assertEquals(64, model.getSize());
+        assertEquals("message 936", model.getElementAt(0).getMessage());
+        assertEquals("message 999", model.getElementAt(63).getMessage());
+
+        for (int i = 1000; i < 1010; i++) {
+            source.append(LogLevel.Info, "message " + i);
+        }
+        events.clear();
+        model.refresh();
+        assertEquals(List.of("removed 0-9", "added 54-63"), events);
+        assertEquals("message 946", model.getElementAt(0).getMessage());
+    }
+
+    private static final class RecordingListener implements ListDataListener {
+        private final List<String> events;
+
+        RecordingListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void intervalAdded(ListDataEvent e) {
+            events.add("added " + e.getIndex0() + "-" + e.getIndex1());
+        }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) {
+            events.add("removed " + e.getIndex0() + "-" + e.getIndex1());
+        }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) {
+            events.add("changed " + e.getIndex0() + "-" + e.getIndex1());
+        }
+    }
+}
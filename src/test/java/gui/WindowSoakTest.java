@@ -0,0 +1,88 @@
+package gui;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import log.LogLevel;
+import log.LogWindowSource;
+import model.RobotsLogic;
+
+/**
+ * Открывает и закрывает 10 тысяч окон. Половина окон закрывается через
+ * {@code dispose()}, половина просто бросается: слабые реестры слушателей
+ * не должны удерживать ни те, ни другие, а цена рассылки не должна расти.
+ */
+class WindowSoakTest {
+    private static final int WINDOWS = 10_000;
+    private static final int CHECKPOINTS = 5;
+
+    @Test
+    void closedAndAbandonedWindowsAreReleased() throws InterruptedException {
+        NotifyingLogic logic = new NotifyingLogic();
+        LogWindowSource logSource = new LogWindowSource(100);
+
+        long[] heap = new long[CHECKPOINTS];
+        long[] dispatchNanos = new long[CHECKPOINTS];
+        int perCheckpoint = WINDOWS / CHECKPOINTS;
+        for (int checkpoint = 0; checkpoint < CHECKPOINTS; checkpoint++) {
+            for (int i = 0; i < perCheckpoint; i++) {
+                RobotInfo info = new RobotInfo(logic);
+                LogWindow log = new LogWindow(logSource);
+                info.materialize();
+                log.materialize();
+                logic.fire();
+                logSource.append(LogLevel.Debug, "opened");
+                if (i % 2 == 0) {
+                    info.dispose();
+                    log.dispose();
+                }
+            }
+            heap[checkpoint] = usedHeapAfterGc();
+            dispatchNanos[checkpoint] = dispatchCost(logic, logSource);
+        }
+
+        assertTrue(logic.countObservers() < perCheckpoint,
+                "observers still registered: " + logic.countObservers());
+        long growth = heap[CHECKPOINTS - 1] - heap[1];
+        assertTrue(growth < 16L * 1024 * 1024,
+                "heap grew by " + growth + " bytes: " + Arrays.toString(heap));
+        // Цена рассылки не растет вместе с числом когда-либо открытых окон
+        assertTrue(dispatchNanos[CHECKPOINTS - 1] < 4 * dispatchNanos[1] + 100_000,
+                "dispatch cost: " + Arrays.toString(dispatchNanos));
+    }
+
+    private static long dispatchCost(NotifyingLogic logic, LogWindowSource logSource) {
+        long[] samples = new long[101];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            logic.fire();
+            logSource.append(LogLevel.Debug, "tick");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        // Ждем, пока сборщик действительно заберет пробный объект
+        WeakReference<Object> probe = new WeakReference<>(new Object());
+        for (int i = 0; i < 10 && probe.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class NotifyingLogic extends RobotsLogic {
+        void fire() {
+            setChanged();
+            notifyObservers();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedLogQueueTest {
+    @Test
+    void refusesElementsWhenFull() {
+        BoundedLogQueue<Integer> queue = new BoundedLogQueue<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, queue.drainTo(drained, 10));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        BoundedLogQueue<Integer> queue = new BoundedLogQueue<>(5);
+        int accepted = 0;
+        while (queue.offer(accepted)) {
+            accepted++;
+        }
+        assertEquals(8, accepted);
+    }
+
+    @Test
+    void concurrentProducersAndConsumerLoseNothing() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 100_000;
+        BoundedLogQueue<Long> queue = new BoundedLogQueue<>(256);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final long producer = p;
+            Thread thread = new Thread(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    while (!queue.offer(producer * perProducer + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long[] last = new long[producers];
+        Arrays.fill(last, -1);
+        int received = 0;
+        List<Long> batch = new ArrayList<>();
+        while (received < producers * perProducer) {
+            batch.clear();
+            queue.drainTo(batch, 64);
+            for (long value : batch) {
+                int producer = (int) (value / perProducer);
+                // Записи одного писателя приходят по порядку
+                assertTrue(value > last[producer]);
+                last[producer] = value;
+            }
+            received += batch.size();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+        for (int p = 0; p < producers; p++) {
+            assertEquals((p + 1L) * perProducer - 1, last[p]);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package log;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CompactLogBufferTest {
+    private static final long NOW = System.currentTimeMillis();
+
+    @Test
+    void restoresPackedAndPlainEntries() {
+        CompactLogBuffer buffer = new CompactLogBuffer(8);
+        buffer.append(new LogEntry(LogLevel.Info, NOW, "main", "x = {}, ok = {}", new Object[] {1.5, true}));
+        buffer.append(new LogEntry(LogLevel.Warning, "plain text"));
+        buffer.append(new LogEntry(LogLevel.Error, NOW, "worker", "object {}", new Object[] {new StringBuilder("sb")}));
+
+        LogEntry packed = buffer.get(0);
+        assertEquals(LogLevel.Info, packed.getLevel());
+        assertEquals(NOW, packed.getTimestamp());
+        assertEquals("main", packed.getThreadName());
+        assertArrayEquals(new Object[] {1.5, true}, packed.getArguments());
+        assertEquals("x = 1.5, ok = true", packed.getMessage());
+
+        assertEquals("plain text", buffer.get(1).getMessage());
+        assertEquals(LogLevel.Warning, buffer.get(1).getLevel());
+        assertEquals("object sb", buffer.get(2).getMessage());
+    }
+
+    @Test
+    void plainMessagesDoNotEnterDictionary() {
+        CompactLogBuffer buffer = new CompactLogBuffer(5);
+        for (int i = 0; i < 10_000; i++) {
+            buffer.append(new LogEntry(LogLevel.Debug, "message " + i));
+        }
+        assertEquals(0, buffer.templateCount());
+        assertEquals("message 9999", buffer.get(9999).getMessage());
+        assertNull(buffer.get(9994));
+    }
+
+    @Test
+    void dictionaryForgetsTemplatesOfOverwrittenEntries() {
+        CompactLogBuffer buffer = new CompactLogBuffer(16);
+        for (int i = 0; i < 10_000; i++) {
+            String template = "template " + (i % 1000) + " value {}";
+            buffer.append(new LogEntry(LogLevel.Info, NOW, "main", template, new Object[] {i}));
+        }
+        assertTrue(buffer.templateCount() <= 16, "templates: " + buffer.templateCount());
+        assertEquals("template 999 value 9999", buffer.get(9999).getMessage());
+        assertEquals("template 984 value 9984", buffer.get(9984).getMessage());
+
+        // Общий шаблон остается в словаре один
+        for (int i = 0; i < 100; i++) {
+            buffer.append(new LogEntry(LogLevel.Info, NOW, "main", "shared {}", new Object[] {i}));
+        }
+        assertEquals(1, buffer.templateCount());
+    }
+}
@@ -0,0 +1,118 @@
+package log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLogBufferTest {
+    @Test
+    void evictsOldestEntries() {
+        ConcurrentLogBuffer<Integer> buffer = new ConcurrentLogBuffer<>(3);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, buffer.append(i));
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.firstSequence());
+        assertEquals(List.of(2, 3, 4), buffer.all());
+        assertNull(buffer.get(1));
+        assertEquals(4, buffer.get(4));
+    }
+
+    @Test
+    void rangeSkipsEvictedEntries() {
+        ConcurrentLogBuffer<Integer> buffer = new ConcurrentLogBuffer<>(100);
+        for (int i = 0; i < 250; i++) {
+            buffer.append(i);
+        }
+        assertEquals(List.of(150, 151, 152), buffer.rangeBySequence(100, 53));
+        assertEquals(List.of(), buffer.rangeBySequence(250, 10));
+    }
+
+    @Test
+    void clearKeepsSequenceNumbers() {
+        ConcurrentLogBuffer<Integer> buffer = new ConcurrentLogBuffer<>(10);
+        buffer.append(1);
+        buffer.append(2);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(2, buffer.append(3));
+        assertEquals(List.of(3), buffer.all());
+    }
+
+    @Test
+    void concurrentWritersLoseNothingWithinCapacity() throws InterruptedException {
+        final int writers = 8;
+        final int perWriter = 50_000;
+        ConcurrentLogBuffer<Long> buffer = new ConcurrentLogBuffer<>(writers * perWriter);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final long writer = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < perWriter; i++) {
+                    buffer.append(writer * perWriter + i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Long> all = buffer.all();
+        assertEquals(writers * perWriter, all.size());
+        Set<Long> unique = new HashSet<>(all);
+        assertEquals(all.size(), unique.size());
+        // Записи одного писателя идут в порядке добавления
+        long[] last = new long[writers];
+        Arrays.fill(last, -1);
+        for (long value : all) {
+            int writer = (int) (value / perWriter);
+            assertTrue(value > last[writer]);
+            last[writer] = value;
+        }
+    }
+
+    @Test
+    void readersNeverSeeTornEntriesWhileWritersOverwrite() throws InterruptedException {
+        ConcurrentLogBuffer<Long> buffer = new ConcurrentLogBuffer<>(64);
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    buffer.append((long) i);
+                }
+            });
+            writers[w].start();
+        }
+        while (writers[writers.length - 1].isAlive()) {
+            long from = buffer.firstSequence();
+            List<Long> range = buffer.rangeBySequence(from, 64);
+            assertTrue(range.size() <= 64);
+            for (Long value : range) {
+                // Вытесненная во время чтения запись пропускается, а не читается наполовину
+                assertTrue(value != null && value >= 0 && value < 200_000);
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(800_000, buffer.nextSequence());
+    }
+}
@@ -0,0 +1,73 @@
+package log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+class LogEntryTest {
+    @Test
+    void formatsPlaceholdersInOrder() {
+        LogEntry entry = new LogEntry(LogLevel.Info, 0, "main", "{} + {} = {}", new Object[] {1, 2, 3});
+        assertEquals("1 + 2 = 3", entry.getMessage());
+        LogEntry missing = new LogEntry(LogLevel.Info, 0, "main", "x = {}, y = {}", new Object[] {1});
+        assertEquals("x = 1, y = {}", missing.getMessage());
+    }
+
+    @Test
+    void formatsOnlyWhenRead() {
+        CountingArgument argument = new CountingArgument();
+        LogWindowSource source = new LogWindowSource(10);
+        source.append(LogLevel.Debug, "value {}", new Object[] {argument});
+        assertEquals(0, argument.calls);
+        LogEntry entry = source.get(0);
+        assertEquals("value counted", entry.getMessage());
+        assertEquals("value counted", entry.getMessage());
+        assertEquals(1, argument.calls);
+    }
+
+    @Test
+    void suppressedLevelsAllocateNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LogWindowSource source = Logger.getDefaultLogSource();
+        LogLevel previous = source.getThreshold();
+        source.setThreshold(LogLevel.Info);
+        try {
+            Object argument = "tick";
+            // Прогрев: загрузка классов и первый вызов getThreadAllocatedBytes сами выделяют память
+            for (int i = 0; i < 10_000; i++) {
+                suppressedCalls(argument);
+            }
+            long threadId = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100_000; i++) {
+                suppressedCalls(argument);
+            }
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+            // Одно выделение на вызов дало бы мегабайты; допуск - на сам замер
+            assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+        } finally {
+            source.setThreshold(previous);
+        }
+    }
+
+    private static void suppressedCalls(Object argument) {
+        Logger.debug("plain message");
+        Logger.debug("one argument {}", argument);
+        Logger.debug("two arguments {} {}", argument, argument);
+        Logger.trace("one argument {}", argument);
+    }
+
+    private static final class CountingArgument {
+        int calls;
+
+        @Override
+        public String toString() {
+            calls++;
+            return "counted";
+        }
+    }
+}
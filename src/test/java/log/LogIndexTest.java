@@ -0,0 +1,121 @@
+package log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class LogIndexTest {
+    private static final Set<LogLevel> ALL = EnumSet.allOf(LogLevel.class);
+
+    private static LogEntry entry(LogLevel level, String message) {
+        return new LogEntry(level, 0, "main", message, null);
+    }
+
+    private static List<Long> sequences(LogIndex.Result result) {
+        List<Long> sequences = new ArrayList<>();
+        result.forEach(sequences::add);
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(sequences.get(i), result.sequenceAt(i));
+        }
+        return sequences;
+    }
+
+    @Test
+    void filtersByLevelAndWords() {
+        LogIndex index = new LogIndex(128, 10);
+        index.add(10, entry(LogLevel.Info, "robot started"));
+        index.add(11, entry(LogLevel.Error, "robot crashed"));
+        index.add(12, entry(LogLevel.Debug, "target moved"));
+        index.add(13, entry(LogLevel.Error, "target lost"));
+
+        assertEquals(List.of(11L, 13L), sequences(index.search(EnumSet.of(LogLevel.Error), "")));
+        assertEquals(List.of(10L, 11L), sequences(index.search(ALL, "Robot")));
+        assertEquals(List.of(13L), sequences(index.search(EnumSet.of(LogLevel.Error), "target")));
+        assertEquals(List.of(), sequences(index.search(ALL, "missing")));
+    }
+
+    @Test
+    void continuesSearchFromPreviousResult() {
+        LogIndex index = new LogIndex(128, 0);
+        index.add(0, entry(LogLevel.Info, "tick"));
+        index.add(1, entry(LogLevel.Info, "tock"));
+        LogIndex.Result first = index.search(ALL, "tick");
+        assertEquals(List.of(0L), sequences(first));
+        assertEquals(2, first.nextSequence());
+
+        index.add(2, entry(LogLevel.Info, "tick"));
+        assertEquals(List.of(2L), sequences(index.search(ALL, "tick", first.nextSequence())));
+        assertEquals(List.of(2L), sequences(index.search(ALL, "", first.nextSequence())));
+    }
+
+    @Test
+    void indexesEntriesArrivingOutOfOrder() {
+        LogIndex index = new LogIndex(128, 0);
+        index.add(0, entry(LogLevel.Info, "tick"));
+        index.add(2, entry(LogLevel.Info, "tick"));
+        // Номер 1 еще не пришел: поиск останавливается перед ним
+        LogIndex.Result partial = index.search(ALL, "tick");
+        assertEquals(List.of(0L), sequences(partial));
+        assertEquals(1, partial.nextSequence());
+
+        index.add(1, entry(LogLevel.Warning, "tick"));
+        LogIndex.Result rest = index.search(ALL, "tick", partial.nextSequence());
+        assertEquals(List.of(1L, 2L), sequences(rest));
+        assertEquals(List.of(1L), sequences(index.search(EnumSet.of(LogLevel.Warning), "")));
+    }
+
+    @Test
+    void evictsOldestEntries() {
+        LogIndex index = new LogIndex(64, 0);
+        for (int i = 0; i < 100; i++) {
+            index.add(i, entry(i % 2 == 0 ? LogLevel.Info : LogLevel.Debug, "entry " + (i % 3 == 0 ? "fizz" : "")));
+        }
+        LogIndex.Result fizz = index.search(ALL, "fizz");
+        assertEquals(36, fizz.firstSequence());
+        assertEquals(36L, fizz.sequenceAt(0));
+        assertEquals(32, index.search(EnumSet.of(LogLevel.Info), "").size());
+        // Запоздавшая запись старше окна отбрасывается
+        index.add(5, entry(LogLevel.Error, "late"));
+        assertEquals(0, index.search(ALL, "late").size());
+    }
+
+    @Test
+    void limitsCapacityBeforeFirstEntry() {
+        LogIndex index = new LogIndex(1 << 20, 0);
+        index.limitCapacity(100);
+        for (int i = 0; i < 1000; i++) {
+            index.add(i, entry(LogLevel.Info, "entry"));
+        }
+        // Емкость округляется вверх до кратного 64
+        assertEquals(128, index.search(ALL, "entry").size());
+    }
+
+    @Test
+    void resetsOnJumpLongerThanWindow() {
+        LogIndex index = new LogIndex(64, 0);
+        index.add(0, entry(LogLevel.Info, "before"));
+        index.add(1_000_000, entry(LogLevel.Info, "after"));
+        assertEquals(0, index.search(ALL, "before").size());
+        assertEquals(List.of(1_000_000L), sequences(index.search(ALL, "")));
+    }
+
+    @Test
+    void indexesArgumentWordsOnlyAfterFirstKeywordSearch() {
+        LogIndex index = new LogIndex(128, 0);
+        index.add(0, new LogEntry(LogLevel.Info, 0, "main", "robot {}", new Object[] {"alpha"}));
+        assertEquals(List.of(), sequences(index.search(ALL, "alpha")));
+
+        StringBuilder mutable = new StringBuilder("beta");
+        index.add(1, new LogEntry(LogLevel.Info, 0, "main", "robot {} {} {}", new Object[] {"alpha", 17, mutable}));
+        assertEquals(List.of(1L), sequences(index.search(ALL, "alpha")));
+        assertEquals(List.of(1L), sequences(index.search(ALL, "17")));
+        // Текст изменяемых объектов не индексируется
+        assertEquals(List.of(), sequences(index.search(ALL, "beta")));
+        assertEquals(List.of(0L, 1L), sequences(index.search(ALL, "robot")));
+    }
+}
@@ -0,0 +1,69 @@
+package log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class LogWindowSourceTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void listenerLoggingIntoFullBlockingSourceDoesNotDeadlock() {
+        LogWindowSource source = new LogWindowSource(100, new LogDispatcher("test dispatcher"),
+                BackpressurePolicy.Block, 2);
+        AtomicInteger notifications = new AtomicInteger();
+        LogChangeListener listener = () -> {
+            // Слушатель в потоке диспетчера пишет больше, чем вмещает очередь
+            if (notifications.getAndIncrement() == 0) {
+                for (int i = 0; i < 8; i++) {
+                    source.append(LogLevel.Info, "from listener " + i);
+                }
+            }
+        };
+        source.registerListener(listener);
+
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            source.append(LogLevel.Info, "first");
+            // Запись писателя после этого доходит: диспетчер не заблокировал сам себя
+            awaitSize(source, 3);
+            source.append(LogLevel.Info, "last");
+            awaitSize(source, 4);
+        });
+        assertEquals(6, source.getDroppedCount());
+    }
+
+    @Test
+    void failingListenerIsCountedAndOthersAreStillNotified() {
+        LogWindowSource source = new LogWindowSource(100, new LogDispatcher("test dispatcher"),
+                BackpressurePolicy.Block, 64);
+        AtomicInteger notified = new AtomicInteger();
+        LogChangeListener failing = () -> {
+            throw new IllegalStateException("listener failure");
+        };
+        LogChangeListener counting = notified::incrementAndGet;
+        source.registerListener(failing);
+        source.registerListener(counting);
+
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (int i = 0; i < 3; i++) {
+                source.append(LogLevel.Info, "entry " + i);
+                awaitSize(source, i + 1);
+                while (notified.get() <= i) {
+                    Thread.sleep(1);
+                }
+            }
+        });
+        assertTrue(source.getFailureCount() >= 3, "failures: " + source.getFailureCount());
+    }
+
+    private static void awaitSize(LogWindowSource source, int size) throws InterruptedException {
+        while (source.size() < size) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentedLogStoreTest {
+    private static final long SEGMENT_BYTES = 4096;
+    private static final long RETENTION_BYTES = 1L << 30;
+    private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Время записей: недавнее, иначе сегменты удалятся по возрасту.
+     */
+    private static final long START = System.currentTimeMillis();
+
+    @TempDir
+    Path directory;
+
+    private SegmentedLogStore open() throws IOException {
+        return new SegmentedLogStore(directory, SEGMENT_BYTES, RETENTION_BYTES, RETENTION_MILLIS, false);
+    }
+
+    private static List<LogEntry> entries(int from, int count) {
+        List<LogEntry> entries = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            entries.add(new LogEntry(LogLevel.Info, START + i, "main", "entry {} of {}", new Object[] {i, "test"}));
+        }
+        return entries;
+    }
+
+    @Test
+    void readsBackAcrossSegments() throws IOException {
+        SegmentedLogStore store = open();
+        try {
+            store.append(entries(0, 500), 0);
+            assertEquals(500, store.nextSequence());
+            List<LogEntry> read = store.read(300, 3);
+            assertEquals(3, read.size());
+            assertEquals("entry 300 of test", read.get(0).getMessage());
+            assertEquals("entry 302 of test", read.get(2).getMessage());
+            assertEquals(START + 302, read.get(2).getTimestamp());
+            assertEquals(400, store.sequenceAt(START + 400));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void keepsPrimitiveArgumentsAsValues() throws IOException {
+        SegmentedLogStore store = open();
+        try {
+            Object[] arguments = {42, 7L, 0.5, 1.5f, true, (short) 3, (byte) 4, 'x', "text", List.of(1)};
+            store.append(List.of(new LogEntry(LogLevel.Info, START, "main", "values", arguments)), 0);
+            Object[] read = store.read(0, 1).get(0).getArguments();
+            assertEquals(List.of(42, 7L, 0.5, 1.5f, true, (short) 3, (byte) 4, 'x', "text", "[1]"), List.of(read));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void reopenedStoreContinuesNumbering() throws IOException {
+        SegmentedLogStore store = open();
+        store.append(entries(0, 100), 0);
+        store.close();
+
+        SegmentedLogStore reopened = open();
+        try {
+            assertEquals(100, reopened.nextSequence());
+            assertEquals("entry 99 of test", reopened.read(99, 1).get(0).getMessage());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void directoryIsLockedWhileOpen() throws IOException {
+        SegmentedLogStore store = open();
+        try {
+            IOException failure = assertThrows(IOException.class, this::open);
+            assertTrue(failure.getMessage().contains("in use"));
+        } finally {
+            store.close();
+        }
+        // После закрытия каталог снова свободен
+        open().close();
+    }
+
+    @Test
+    void sourceOpensStoreOnDispatcherThread() throws Exception {
+        SegmentedLogStore previous = open();
+        previous.append(entries(0, 10), 0);
+        previous.close();
+
+        List<String> openedOn = new ArrayList<>();
+        LogDispatcher dispatcher = new LogDispatcher("test dispatcher");
+        LogWindowSource source = new LogWindowSource(16, LogStorageMode.Compact, dispatcher,
+                BackpressurePolicy.Block, 64, () -> {
+                    openedOn.add(Thread.currentThread().getName());
+                    try {
+                        return open();
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                });
+        assertTrue(openedOn.isEmpty());
+        for (int i = 0; i < 40; i++) {
+            source.append(LogLevel.Info, "message " + i);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (source.nextSequence() < 50 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(List.of("test dispatcher"), openedOn);
+        // Нумерация продолжает хранилище, а вытесненные из памяти записи читаются с диска
+        assertEquals(50, source.nextSequence());
+        assertEquals(0, source.firstSequence());
+        assertEquals("message 0", source.get(10).getMessage());
+        assertEquals("entry 9 of test", source.get(9).getMessage());
+    }
+}
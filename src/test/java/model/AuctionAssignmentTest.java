@@ -0,0 +1,290 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Сверяет аукцион с точным решением венгерским алгоритмом на случайных
+ * задачах, в том числе после добавления и удаления целей по месту.
+ */
+class AuctionAssignmentTest {
+    private static final double EPSILON = 0.01;
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    @Test
+    void matchesHungarianOnRandomProblems() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 200; trial++) {
+            int robotCount = 1 + random.nextInt(40);
+            int targetCount = 1 + random.nextInt(40);
+            RobotPoses robots = randomRobots(random, robotCount);
+            AuctionAssignment assignment = new AuctionAssignment(robots, EPSILON);
+            List<Integer> targets = new ArrayList<>();
+            for (int i = 0; i < targetCount; i++) {
+                targets.add(assignment.addTarget(random.nextDouble() * 1000, random.nextDouble() * 1000));
+            }
+            assertTrue(assignment.solve(UNLIMITED));
+            assertNearOptimal(assignment, robots, targets, "trial " + trial + " cold");
+
+            // Изменения по месту: цели появляются и исчезают, номера используются повторно
+            for (int change = 0; change < 10; change++) {
+                if (random.nextBoolean() && targets.size() > 1) {
+                    assignment.removeTarget(targets.remove(random.nextInt(targets.size())));
+                } else {
+                    targets.add(assignment.addTarget(random.nextDouble() * 1000, random.nextDouble() * 1000));
+                }
+                assertTrue(assignment.solve(UNLIMITED));
+                assertNearOptimal(assignment, robots, targets, "trial " + trial + " change " + change);
+            }
+        }
+    }
+
+    @Test
+    void stoppingAndStartingRobotsKeepsPairsNearOptimal() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 100; trial++) {
+            int robotCount = 2 + random.nextInt(30);
+            RobotPoses robots = randomRobots(random, robotCount);
+            double[] velocity = Arrays.copyOf(robots.velocity, robotCount);
+            AuctionAssignment assignment = new AuctionAssignment(robots, EPSILON);
+            List<Integer> targets = new ArrayList<>();
+            for (int i = 0, count = 1 + random.nextInt(30); i < count; i++) {
+                targets.add(assignment.addTarget(random.nextDouble() * 1000, random.nextDouble() * 1000));
+            }
+            assertTrue(assignment.solve(UNLIMITED));
+
+            // Число едущих роботов проходит через число целей, и стороны меняются
+            for (int change = 0; change < 10; change++) {
+                int robot = random.nextInt(robotCount);
+                robots.velocity[robot] = robots.velocity[robot] > 0 ? 0 : velocity[robot];
+                assertTrue(assignment.solve(UNLIMITED));
+                assertNearOptimal(assignment, robots, targets, "trial " + trial + " change " + change);
+            }
+        }
+    }
+
+    @Test
+    void newTargetCostsFewBidsOnSettledProblem() {
+        Random random = new Random(13);
+        RobotPoses robots = randomRobots(random, 1000);
+        AuctionAssignment assignment = new AuctionAssignment(robots, EPSILON);
+        for (int i = 0; i < 990; i++) {
+            assignment.addTarget(random.nextDouble() * 1000, random.nextDouble() * 1000);
+        }
+        assertTrue(assignment.solve(UNLIMITED));
+        long coldBids = assignment.getBidCount();
+
+        long[] added = new long[20];
+        for (int trial = 0; trial < added.length; trial++) {
+            long before = assignment.getBidCount();
+            int target = assignment.addTarget(random.nextDouble() * 1000, random.nextDouble() * 1000);
+            assertTrue(assignment.solve(UNLIMITED));
+            added[trial] = assignment.getBidCount() - before;
+            assignment.removeTarget(target);
+            assertTrue(assignment.solve(UNLIMITED));
+        }
+        Arrays.sort(added);
+        // Торги с нуля - десятки ставок на участника; новая цель - десятки на всех
+        assertTrue(added[added.length / 2] <= 100, "median " + added[added.length / 2] + " of " + coldBids);
+        assertTrue(added[added.length - 1] <= 1000, "worst " + added[added.length - 1] + " of " + coldBids);
+    }
+
+    @Test
+    void targetBeyondRobotCountSwapsSidesWithoutStartingOver() {
+        Random random = new Random(17);
+        RobotPoses robots = randomRobots(random, 1000);
+        AuctionAssignment assignment = new AuctionAssignment(robots, EPSILON);
+        for (int i = 0; i < 1000; i++) {
+            assignment.addTarget(random.nextDouble() * 1000, random.nextDouble() * 1000);
+        }
+        assertTrue(assignment.solve(UNLIMITED));
+        long coldBids = assignment.getBidCount();
+
+        long before = assignment.getBidCount();
+        int target = assignment.addTarget(random.nextDouble() * 1000, random.nextDouble() * 1000);
+        assertTrue(assignment.solve(UNLIMITED));
+        // Без пары остается самая невыгодная цель во всем мире: цепочка
+        // просматривает не больше одного раза каждого участника
+        long swapped = assignment.getBidCount() - before;
+        assertTrue(swapped <= robots.size(), swapped + " bids, cold " + coldBids);
+        assertEquals(1000, countAssigned(assignment, 1001));
+
+        before = assignment.getBidCount();
+        assignment.removeTarget(target);
+        assertTrue(assignment.solve(UNLIMITED));
+        assertTrue(assignment.getBidCount() - before <= robots.size());
+        assertEquals(1000, countAssigned(assignment, 1001));
+    }
+
+    private static int countAssigned(AuctionAssignment assignment, int targetSlots) {
+        int assigned = 0;
+        for (int target = 0; target < targetSlots; target++) {
+            try {
+                if (assignment.getRobot(target) != AuctionAssignment.UNASSIGNED) {
+                    assigned++;
+                }
+            } catch (IllegalArgumentException e) {
+                // Номер удаленной цели
+            }
+        }
+        return assigned;
+    }
+
+    @Test
+    void isNeverWorseThanGreedy() {
+        Random random = new Random(9);
+        for (int trial = 0; trial < 20; trial++) {
+            int robotCount = 50 + random.nextInt(100);
+            RobotPoses robots = randomRobots(random, robotCount);
+            int targetCount = robotCount - random.nextInt(10);
+            double[] targetX = new double[targetCount];
+            double[] targetY = new double[targetCount];
+            AuctionAssignment assignment = new AuctionAssignment(robots, EPSILON);
+            for (int i = 0; i < targetCount; i++) {
+                targetX[i] = random.nextDouble() * 1000;
+                targetY[i] = random.nextDouble() * 1000;
+                assignment.addTarget(targetX[i], targetY[i]);
+            }
+            assertTrue(assignment.solve(UNLIMITED));
+
+            int[] greedy = AuctionAssignment.greedy(robots, targetX, targetY, targetCount);
+            double greedyCost = 0;
+            for (int target = 0; target < targetCount; target++) {
+                greedyCost += cost(robots, greedy[target], targetX[target], targetY[target]);
+            }
+            assertTrue(assignment.getTotalCost() <= greedyCost + targetCount * EPSILON,
+                    "auction " + assignment.getTotalCost() + " greedy " + greedyCost);
+        }
+    }
+
+    /**
+     * Проверяет, что пары согласованы и каждая меньшая сторона получила пару,
+     * а сумма отличается от оптимума не больше чем на {@code epsilon} на пару.
+     */
+    private static void assertNearOptimal(AuctionAssignment assignment, RobotPoses robots, List<Integer> targets,
+                                          String stage) {
+        List<Integer> moving = new ArrayList<>();
+        for (int robot = 0; robot < robots.size(); robot++) {
+            if (robots.getVelocity(robot) > 0) {
+                moving.add(robot);
+            }
+        }
+        int pairs = Math.min(targets.size(), moving.size());
+        Set<Integer> usedRobots = new HashSet<>();
+        for (int target : targets) {
+            int robot = assignment.getRobot(target);
+            if (robot != AuctionAssignment.UNASSIGNED) {
+                assertTrue(usedRobots.add(robot), stage + ": robot " + robot + " assigned twice");
+                assertEquals(target, assignment.getTarget(robot), stage + ": inconsistent pair");
+            }
+        }
+        assertEquals(pairs, usedRobots.size(), stage + ": assigned pairs");
+        if (pairs == 0) {
+            return;
+        }
+
+        // Строки - меньшая сторона
+        boolean targetRows = targets.size() <= moving.size();
+        double[][] costs = targetRows ? new double[targets.size()][moving.size()]
+                : new double[moving.size()][targets.size()];
+        for (int i = 0; i < targets.size(); i++) {
+            int target = targets.get(i);
+            for (int j = 0; j < moving.size(); j++) {
+                double cost = cost(robots, moving.get(j), assignment.getTargetX(target),
+                        assignment.getTargetY(target));
+                if (targetRows) {
+                    costs[i][j] = cost;
+                } else {
+                    costs[j][i] = cost;
+                }
+            }
+        }
+        double optimum = hungarian(costs);
+        assertTrue(assignment.getTotalCost() <= optimum + pairs * EPSILON + 1e-6,
+                stage + ": cost " + assignment.getTotalCost() + ", optimum " + optimum);
+    }
+
+    private static double cost(RobotPoses robots, int robot, double x, double y) {
+        return Math.hypot(robots.getX(robot) - x, robots.getY(robot) - y) / robots.getVelocity(robot);
+    }
+
+    private static RobotPoses randomRobots(Random random, int count) {
+        RobotPoses robots = new RobotPoses(count);
+        for (int i = 0; i < count; i++) {
+            robots.add(random.nextDouble() * 1000, random.nextDouble() * 1000, 0, 0.05 + random.nextDouble() * 0.2);
+        }
+        return robots;
+    }
+
+    /**
+     * Венгерский алгоритм с потенциалами за O(n^2 m) для матрицы, у которой
+     * строк не больше, чем столбцов.
+     *
+     * @return наименьшая сумма стоимостей, при которой каждой строке достался свой столбец
+     */
+    private static double hungarian(double[][] costs) {
+        int rows = costs.length;
+        int columns = costs[0].length;
+        double[] rowPotential = new double[rows + 1];
+        double[] columnPotential = new double[columns + 1];
+        int[] rowOfColumn = new int[columns + 1];
+        int[] way = new int[columns + 1];
+        for (int row = 1; row <= rows; row++) {
+            rowOfColumn[0] = row;
+            int column = 0;
+            double[] slack = new double[columns + 1];
+            Arrays.fill(slack, Double.MAX_VALUE);
+            boolean[] used = new boolean[columns + 1];
+            do {
+                used[column] = true;
+                int currentRow = rowOfColumn[column];
+                int nextColumn = 0;
+                double delta = Double.MAX_VALUE;
+                for (int j = 1; j <= columns; j++) {
+                    if (used[j]) {
+                        continue;
+                    }
+                    double reduced = costs[currentRow - 1][j - 1] - rowPotential[currentRow] - columnPotential[j];
+                    if (reduced < slack[j]) {
+                        slack[j] = reduced;
+                        way[j] = column;
+                    }
+                    if (slack[j] < delta) {
+                        delta = slack[j];
+                        nextColumn = j;
+                    }
+                }
+                for (int j = 0; j <= columns; j++) {
+                    if (used[j]) {
+                        rowPotential[rowOfColumn[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else {
+                        slack[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (rowOfColumn[column] != 0);
+            do {
+                int previous = way[column];
+                rowOfColumn[column] = rowOfColumn[previous];
+                column = previous;
+            } while (column != 0);
+        }
+        double total = 0;
+        for (int j = 1; j <= columns; j++) {
+            if (rowOfColumn[j] != 0) {
+                total += costs[rowOfColumn[j] - 1][j - 1];
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,119 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Сверяет векторные реализации со скалярными на случайных роботах:
+ * стоящих, едущих прямо и по дуге в обе стороны, с числом роботов,
+ * не кратным длине вектора.
+ */
+class KinematicsKernelTest {
+    private static final double DT = 5;
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void vectorKernelIsAvailableInTests() {
+        assertTrue(KinematicsKernel.isVectorEnabled());
+        assertTrue(KinematicsKernel.getDefault().getName().startsWith("vector"));
+    }
+
+    @Test
+    void vectorIntegrationMatchesScalar() {
+        Random random = new Random(7);
+        for (int robots : new int[] {1, 3, 8, 17, 1000}) {
+            RobotPoses scalar = randomPoses(random, robots);
+            RobotPoses vector = copy(scalar);
+            SteeringCommands commands = randomCommands(random, robots);
+
+            KinematicsKernel.scalar().integrate(scalar, commands, 0, robots, DT);
+            new VectorKinematicsKernel().integrate(vector, commands, 0, robots, DT);
+
+            assertSamePoses(scalar, vector, TOLERANCE);
+        }
+    }
+
+    @Test
+    void vectorIntegrationHonoursRange() {
+        Random random = new Random(11);
+        RobotPoses scalar = randomPoses(random, 100);
+        RobotPoses vector = copy(scalar);
+        SteeringCommands commands = randomCommands(random, 100);
+
+        KinematicsKernel.scalar().integrate(scalar, commands, 13, 71, DT);
+        new VectorKinematicsKernel().integrate(vector, commands, 13, 71, DT);
+
+        assertSamePoses(scalar, vector, TOLERANCE);
+    }
+
+    /**
+     * Полные шаги с управлением: погрешность векторных sin и cos
+     * накапливается, поэтому допуск здесь шире.
+     */
+    @Test
+    void vectorSteppingStaysCloseToScalar() {
+        Random random = new Random(3);
+        int robots = 257;
+        RobotPoses scalar = randomPoses(random, robots);
+        RobotPoses vector = copy(scalar);
+        SteeringCommands scalarCommands = new SteeringCommands(robots);
+        SteeringCommands vectorCommands = new SteeringCommands(robots);
+        for (int step = 0; step < 200; step++) {
+            KinematicsKernel.scalar().step(scalar, scalarCommands, SteeringController.scalarHeadingHold(),
+                    0, robots, DT, 400, 400);
+            new VectorKinematicsKernel().step(vector, vectorCommands, new VectorHeadingHoldController(),
+                    0, robots, DT, 400, 400);
+        }
+        assertSamePoses(scalar, vector, 1e-6);
+    }
+
+    private static RobotPoses randomPoses(Random random, int robots) {
+        RobotPoses poses = new RobotPoses(robots);
+        for (int i = 0; i < robots; i++) {
+            poses.add(random.nextDouble() * 400, random.nextDouble() * 400,
+                    (random.nextDouble() - 0.5) * 4 * Math.PI, 0, 0.1,
+                    random.nextDouble() * 400, random.nextDouble() * 400);
+        }
+        return poses;
+    }
+
+    private static SteeringCommands randomCommands(Random random, int robots) {
+        SteeringCommands commands = new SteeringCommands(robots);
+        for (int i = 0; i < robots; i++) {
+            switch (random.nextInt(4)) {
+            case 0:
+                commands.stop(i);
+                break;
+            case 1:
+                commands.set(i, 0, 0.1, 1, 1);
+                break;
+            default:
+                double angularVelocity = (random.nextBoolean() ? 1 : -1) * (0.0005 + random.nextDouble() * 0.01);
+                commands.set(i, angularVelocity, 0.1, random.nextDouble(), random.nextDouble());
+                break;
+            }
+        }
+        return commands;
+    }
+
+    private static RobotPoses copy(RobotPoses source) {
+        RobotPoses copy = new RobotPoses(source.capacity());
+        for (int i = 0; i < source.size(); i++) {
+            copy.add(source.getX(i), source.getY(i), source.getDirection(i), source.getAngularVelocity(i),
+                    source.getVelocity(i), source.getTargetX(i), source.getTargetY(i));
+        }
+        return copy;
+    }
+
+    private static void assertSamePoses(RobotPoses expected, RobotPoses actual, double tolerance) {
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getX(i), actual.getX(i), tolerance, "x of robot " + i);
+            assertEquals(expected.getY(i), actual.getY(i), tolerance, "y of robot " + i);
+            assertEquals(expected.getDirection(i), actual.getDirection(i), tolerance, "direction of robot " + i);
+        }
+    }
+}
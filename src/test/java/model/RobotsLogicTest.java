@@ -0,0 +1,60 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class RobotsLogicTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void stoppedSimulationIgnoresWakeUpsAndRestarts() {
+        RobotsLogic logic = new RobotsLogic();
+        logic.startTimer();
+        logic.stopTimer();
+        // Окно игры закрыто, а модель продолжают трогать остальные окна
+        logic.setTarget(new Target(200, 200));
+        logic.scheduleAfterSteps(1, () -> { });
+        logic.setSteeringController(SteeringController.headingHold());
+        logic.stopTimer();
+
+        CountDownLatch fired = new CountDownLatch(1);
+        logic.scheduleAfterSteps(3, fired::countDown);
+        logic.startTimer();
+        try {
+            assertTimeoutPreemptively(TIMEOUT, () -> fired.await());
+            assertTrue(logic.getStepCount() >= 3);
+        } finally {
+            logic.stopTimer();
+        }
+    }
+
+    @Test
+    void failingEventDoesNotStopSimulation() {
+        RobotsLogic logic = new RobotsLogic();
+        CountDownLatch later = new CountDownLatch(1);
+        CountDownLatch sameStep = new CountDownLatch(1);
+        logic.scheduleAfterSteps(2, () -> {
+            throw new IllegalStateException("broken event");
+        });
+        logic.scheduleAfterSteps(2, sameStep::countDown);
+        logic.scheduleAfterSteps(5, later::countDown);
+        logic.startTimer();
+        try {
+            assertTimeoutPreemptively(TIMEOUT, () -> {
+                sameStep.await();
+                later.await();
+            });
+            // Таймер жив: новые события принимаются и выполняются
+            CountDownLatch afterFailure = new CountDownLatch(1);
+            logic.scheduleAfterSteps(1, afterFailure::countDown);
+            assertTimeoutPreemptively(TIMEOUT, () -> afterFailure.await());
+        } finally {
+            logic.stopTimer();
+        }
+    }
+}
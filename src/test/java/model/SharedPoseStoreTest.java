@@ -0,0 +1,88 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SharedPoseStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readerSeesPublishedFrame() throws IOException {
+        Path file = directory.resolve("poses");
+        RobotPoses poses = new RobotPoses(3);
+        poses.add(1, 2, 0.5, 0);
+        poses.add(3, 4, 1.5, 0);
+        try (SharedPoseStore store = new SharedPoseStore(file, 3);
+             SharedPoseReader reader = new SharedPoseReader(file)) {
+            assertNull(reader.latest());
+            store.publish(poses, 42);
+
+            SharedPoseReader.Frame frame = reader.latest();
+            assertEquals(2, frame.getCount());
+            assertEquals(42, frame.getStep());
+            assertEquals(3, frame.getX(1));
+            assertEquals(1.5, frame.getDirection(1));
+            assertTrue(frame.isConsistent());
+        }
+    }
+
+    /**
+     * Новый писатель с меньшей емкостью не обрезает файл, который
+     * отображен у программы просмотра.
+     */
+    @Test
+    void reopeningDoesNotTruncateMappedFile() throws IOException {
+        Path file = directory.resolve("poses");
+        RobotPoses poses = new RobotPoses(1000);
+        for (int i = 0; i < 1000; i++) {
+            poses.add(i, i, 0, 0);
+        }
+        try (SharedPoseStore store = new SharedPoseStore(file, 1000)) {
+            store.publish(poses, 1);
+        }
+        long size = Files.size(file);
+
+        try (SharedPoseReader reader = new SharedPoseReader(file)) {
+            SharedPoseReader.Frame frame = reader.latest();
+            try (SharedPoseStore smaller = new SharedPoseStore(file, 10)) {
+                assertEquals(size, Files.size(file));
+                // Хвост старого отображения по-прежнему читается
+                assertEquals(999, frame.getX(999));
+                smaller.publish(poses, 2);
+            }
+        }
+
+        try (SharedPoseReader reader = new SharedPoseReader(file)) {
+            assertEquals(10, reader.getCapacity());
+            SharedPoseReader.Frame frame = reader.latest();
+            assertEquals(10, frame.getCount());
+            assertEquals(2, frame.getStep());
+            assertEquals(9, frame.getY(9));
+        }
+    }
+
+    @Test
+    void secondWriterIsRefused() throws IOException {
+        Path file = directory.resolve("poses");
+        try (SharedPoseStore store = new SharedPoseStore(file, 4)) {
+            assertThrows(IOException.class, () -> new SharedPoseStore(file, 4));
+            // Читателям блокировка не мешает
+            try (SharedPoseReader reader = new SharedPoseReader(file)) {
+                store.publish(new RobotPoses(4), 1);
+                assertEquals(1, reader.latest().getStep());
+            }
+        }
+        // После закрытия файл снова можно открыть для записи
+        new SharedPoseStore(file, 4).close();
+    }
+}
@@ -0,0 +1,218 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+    @Test
+    void firesEventsOfOneStepInSchedulingOrder() {
+        TimingWheel wheel = new TimingWheel(0);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(300, () -> fired.add("far"));
+        wheel.schedule(5, () -> fired.add("first"));
+        // Событие на уже прошедший шаг срабатывает на следующем
+        wheel.schedule(-1, () -> fired.add("late"));
+        TimingWheel.Timeout cancelled = wheel.schedule(5, () -> fired.add("cancelled"));
+        wheel.schedule(5, () -> fired.add("second"));
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(3, wheel.advance(5));
+        assertEquals(List.of("late", "first", "second"), fired);
+        assertEquals(1, wheel.advance(1_000));
+        assertEquals("far", fired.get(3));
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Случайные постановки, отмены и продвижения, в том числе из действий,
+     * сверяются с эталоном на двоичной куче.
+     */
+    @Test
+    void matchesPriorityQueueReference() {
+        for (long seed = 1; seed <= 20; seed++) {
+            List<String> expected = run(new ReferenceScheduler(), seed);
+            List<String> actual = run(new WheelScheduler(), seed);
+            assertEquals(expected, actual, "seed " + seed);
+        }
+    }
+
+    private static List<String> run(Scheduler scheduler, long seed) {
+        Random random = new Random(seed);
+        List<String> log = new ArrayList<>();
+        List<Handle> handles = new ArrayList<>();
+        for (int op = 0; op < 20_000; op++) {
+            int choice = random.nextInt(10);
+            if (choice < 4) {
+                schedule(scheduler, handles, log, scheduler.tick() + randomDelay(random));
+            } else if (choice < 6 && !handles.isEmpty()) {
+                int id = random.nextInt(handles.size());
+                log.add("cancel " + id + " " + handles.get(id).cancel());
+            } else {
+                scheduler.advance(scheduler.tick() + randomAdvance(random));
+                log.add("tick " + scheduler.tick() + " size " + scheduler.size());
+            }
+        }
+        scheduler.advance(Long.MAX_VALUE / 2);
+        log.add("size " + scheduler.size());
+        return log;
+    }
+
+    /**
+     * Действие события: запись в журнал, а для части событий - постановка
+     * нового события и отмена предыдущего прямо во время срабатывания.
+     */
+    private static void schedule(Scheduler scheduler, List<Handle> handles, List<String> log, long deadline) {
+        int id = handles.size();
+        handles.add(scheduler.schedule(deadline, () -> {
+            log.add(id + "@" + scheduler.tick());
+            if (id % 7 == 0) {
+                schedule(scheduler, handles, log, scheduler.tick() + id % 13 - 2);
+            }
+            if (id % 11 == 0 && id > 0) {
+                log.add("cancel " + (id - 1) + " " + handles.get(id - 1).cancel());
+            }
+        }));
+    }
+
+    private static long randomDelay(Random random) {
+        switch (random.nextInt(6)) {
+        case 0:
+            return random.nextInt(11) - 5;
+        case 1:
+            return random.nextInt(256);
+        case 2:
+            return random.nextInt(1 << 16);
+        case 3:
+            return random.nextInt(1 << 24);
+        case 4:
+            return random.nextLong() & ((1L << 40) - 1);
+        default:
+            // За пределами всех уровней колеса
+            return (1L << 48) + (random.nextLong() & ((1L << 49) - 1));
+        }
+    }
+
+    private static long randomAdvance(Random random) {
+        switch (random.nextInt(8)) {
+        case 0:
+            return random.nextInt(1 << 20);
+        case 1:
+            return random.nextLong() & ((1L << 50) - 1);
+        default:
+            return random.nextInt(300);
+        }
+    }
+
+    private interface Handle {
+        boolean cancel();
+    }
+
+    private interface Scheduler {
+        Handle schedule(long deadline, Runnable action);
+
+        void advance(long toTick);
+
+        long tick();
+
+        int size();
+    }
+
+    private static final class WheelScheduler implements Scheduler {
+        private final TimingWheel wheel = new TimingWheel(0);
+
+        @Override
+        public Handle schedule(long deadline, Runnable action) {
+            return wheel.schedule(deadline, action)::cancel;
+        }
+
+        @Override
+        public void advance(long toTick) {
+            wheel.advance(toTick);
+        }
+
+        @Override
+        public long tick() {
+            return wheel.currentTick();
+        }
+
+        @Override
+        public int size() {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Эталон: куча по (шаг срабатывания, порядок постановки).
+     */
+    private static final class ReferenceScheduler implements Scheduler {
+        private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+                Comparator.<Entry>comparingLong(entry -> entry.deadline).thenComparingLong(entry -> entry.sequence));
+        private long tick;
+        private long nextSequence;
+
+        @Override
+        public Handle schedule(long deadline, Runnable action) {
+            Entry entry = new Entry(Math.max(deadline, tick + 1), nextSequence++, action);
+            queue.add(entry);
+            return () -> {
+                if (entry.done) {
+                    return false;
+                }
+                entry.done = true;
+                queue.remove(entry);
+                return true;
+            };
+        }
+
+        @Override
+        public void advance(long toTick) {
+            while (!queue.isEmpty() && queue.peek().deadline <= toTick) {
+                tick = queue.peek().deadline;
+                List<Entry> batch = new ArrayList<>();
+                while (!queue.isEmpty() && queue.peek().deadline == tick) {
+                    batch.add(queue.poll());
+                }
+                for (Entry entry : batch) {
+                    if (!entry.done) {
+                        entry.done = true;
+                        entry.action.run();
+                    }
+                }
+            }
+            tick = Math.max(tick, toTick);
+        }
+
+        @Override
+        public long tick() {
+            return tick;
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+
+        private static final class Entry {
+            final long deadline;
+            final long sequence;
+            final Runnable action;
+            boolean done;
+
+            Entry(long deadline, long sequence, Runnable action) {
+                this.deadline = deadline;
+                this.sequence = sequence;
+                this.action = action;
+            }
+        }
+    }
+}